@@ -15,6 +15,9 @@
  */
 package com.github.heuermh.adam.explorer;
 
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
@@ -65,7 +68,14 @@ public final class ADAMExplorer {
             super("Alignments");
             setSize(970, 600);
             setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
-            add("Center", new AlignmentView(alignments));
+            final AlignmentView view = new AlignmentView(alignments);
+            add("Center", view);
+            addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(final WindowEvent event) {
+                        view.cancel();
+                    }
+                });
         }
     }
 
@@ -99,7 +109,14 @@ public final class ADAMExplorer {
             super("Features");
             setSize(970, 600);
             setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
-            add("Center", new FeatureView(features));
+            final FeatureView view = new FeatureView(features);
+            add("Center", view);
+            addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(final WindowEvent event) {
+                        view.cancel();
+                    }
+                });
         }
     }
 
@@ -133,7 +150,14 @@ public final class ADAMExplorer {
             super("Fragments");
             setSize(970, 600);
             setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
-            add("Center", new FragmentView(fragments));
+            final FragmentView view = new FragmentView(fragments);
+            add("Center", view);
+            addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(final WindowEvent event) {
+                        view.cancel();
+                    }
+                });
         }
     }
 
@@ -167,7 +191,14 @@ public final class ADAMExplorer {
             super("Genotypes");
             setSize(970, 600);
             setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
-            add("Center", new GenotypeView(genotypes));
+            final GenotypeView view = new GenotypeView(genotypes);
+            add("Center", view);
+            addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(final WindowEvent event) {
+                        view.cancel();
+                    }
+                });
         }
     }
 
@@ -201,7 +232,14 @@ public final class ADAMExplorer {
             super("Reads");
             setSize(970, 600);
             setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
-            add("Center", new ReadView(reads));
+            final ReadView view = new ReadView(reads);
+            add("Center", view);
+            addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(final WindowEvent event) {
+                        view.cancel();
+                    }
+                });
         }
     }
 
@@ -235,7 +273,14 @@ public final class ADAMExplorer {
             super("Sequences");
             setSize(970, 600);
             setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
-            add("Center", new SequenceView(sequences));
+            final SequenceView view = new SequenceView(sequences);
+            add("Center", view);
+            addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(final WindowEvent event) {
+                        view.cancel();
+                    }
+                });
         }
     }
 
@@ -269,7 +314,14 @@ public final class ADAMExplorer {
             super("Slices");
             setSize(970, 600);
             setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
-            add("Center", new SliceView(slices));
+            final SliceView view = new SliceView(slices);
+            add("Center", view);
+            addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(final WindowEvent event) {
+                        view.cancel();
+                    }
+                });
         }
     }
 
@@ -303,7 +355,14 @@ public final class ADAMExplorer {
             super("Variants");
             setSize(970, 600);
             setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
-            add("Center", new VariantView(variants));
+            final VariantView view = new VariantView(variants);
+            add("Center", view);
+            addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(final WindowEvent event) {
+                        view.cancel();
+                    }
+                });
         }
     }
 }
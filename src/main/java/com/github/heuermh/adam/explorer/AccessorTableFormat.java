@@ -0,0 +1,171 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import java.lang.reflect.Method;
+
+import java.util.Comparator;
+
+import java.util.function.Function;
+
+import ca.odell.glazedlists.gui.AdvancedTableFormat;
+
+/**
+ * Accessor table format.
+ *
+ * <p>
+ * A table format that reads column values through accessors generated once per column
+ * with <code>LambdaMetafactory</code> from the getter methods for its properties, rather than
+ * through JavaBeans reflection on every cell read as <code>GlazedLists.tableFormat</code> does.
+ * Nested properties, e.g. <code>variant.referenceAllele</code>, are chained accessors, and are
+ * <code>null</code> if any property along the path is <code>null</code>.
+ * </p>
+ *
+ * @param <E> element type
+ * @author  Michael Heuer
+ */
+final class AccessorTableFormat<E> implements AdvancedTableFormat<E> {
+    private final String[] columnLabels;
+    private final Function<Object, Object>[] accessors;
+    private final Class<?>[] columnClasses;
+
+
+    /**
+     * Create a new accessor table format.
+     *
+     * @param columnLabels column labels
+     * @param accessors column value accessors
+     * @param columnClasses column classes
+     */
+    private AccessorTableFormat(final String[] columnLabels, final Function<Object, Object>[] accessors, final Class<?>[] columnClasses) {
+        this.columnLabels = columnLabels;
+        this.accessors = accessors;
+        this.columnClasses = columnClasses;
+    }
+
+
+    @Override
+    public int getColumnCount() {
+        return columnLabels.length;
+    }
+
+    @Override
+    public String getColumnName(final int column) {
+        return columnLabels[column];
+    }
+
+    @Override
+    public Object getColumnValue(final E element, final int column) {
+        return accessors[column].apply(element);
+    }
+
+    @Override
+    public Class<?> getColumnClass(final int column) {
+        return columnClasses[column];
+    }
+
+    @Override
+    public Comparator<?> getColumnComparator(final int column) {
+        return Comparable.class.isAssignableFrom(columnClasses[column]) ? Comparator.nullsFirst(Comparator.naturalOrder()) : null;
+    }
+
+    /**
+     * Create a new accessor table format for the specified class with the specified properties
+     * and column labels.
+     *
+     * @param <E> element type
+     * @param type element class, must not be null
+     * @param propertyNames property names, possibly nested with dots, must not be null
+     * @param columnLabels column labels, must not be null and must be the same length as the property names
+     * @return a new accessor table format for the specified class with the specified properties
+     *    and column labels
+     * @throws IllegalArgumentException if a getter method can not be found for any of the specified properties
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    static <E> AccessorTableFormat<E> create(final Class<E> type, final String[] propertyNames, final String[] columnLabels) {
+        if (propertyNames.length != columnLabels.length) {
+            throw new IllegalArgumentException("propertyNames and columnLabels must be the same length");
+        }
+        Function<Object, Object>[] accessors = new Function[propertyNames.length];
+        Class<?>[] columnClasses = new Class<?>[propertyNames.length];
+        for (int i = 0; i < propertyNames.length; i++) {
+            Class<?> t = type;
+            Function<Object, Object> accessor = null;
+            for (String property : propertyNames[i].split("\\.")) {
+                Method getter = getter(t, property);
+                accessor = (accessor == null) ? accessor(getter) : chain(accessor, accessor(getter));
+                t = getter.getReturnType();
+            }
+            accessors[i] = accessor;
+            columnClasses[i] = MethodType.methodType(t).wrap().returnType();
+        }
+        return new AccessorTableFormat<E>(columnLabels.clone(), accessors, columnClasses);
+    }
+
+    /**
+     * Return an accessor that applies the specified accessor to the value of the specified
+     * accessor, or <code>null</code> if that value is <code>null</code>.
+     */
+    private static Function<Object, Object> chain(final Function<Object, Object> first, final Function<Object, Object> second) {
+        return element -> {
+            Object value = first.apply(element);
+            return (value == null) ? null : second.apply(value);
+        };
+    }
+
+    /**
+     * Return the getter method for the specified property of the specified class.
+     */
+    private static Method getter(final Class<?> type, final String property) {
+        String suffix = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (String prefix : new String[] { "get", "is" }) {
+            try {
+                return type.getMethod(prefix + suffix);
+            }
+            catch (NoSuchMethodException e) {
+                // try the next prefix
+            }
+        }
+        throw new IllegalArgumentException("no getter method for property " + property + " of " + type.getName());
+    }
+
+    /**
+     * Generate an accessor for the specified getter method.
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> accessor(final Method getter) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(getter);
+            CallSite site = LambdaMetafactory.metafactory(lookup,
+                                                          "apply",
+                                                          MethodType.methodType(Function.class),
+                                                          MethodType.methodType(Object.class, Object.class),
+                                                          handle,
+                                                          handle.type().wrap());
+            return (Function<Object, Object>) site.getTarget().invokeExact();
+        }
+        catch (Throwable t) {
+            throw new IllegalArgumentException("could not generate accessor for " + getter, t);
+        }
+    }
+}
@@ -15,20 +15,20 @@
  */
 package com.github.heuermh.adam.explorer;
 
-import java.util.ArrayList;
-import java.util.List;
+import static org.apache.spark.sql.functions.col;
 
-import java.util.concurrent.ExecutionException;
+import java.util.List;
 
 import java.util.stream.Collectors;
 
 import javax.swing.JDialog;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
 import javax.swing.JTable;
 import javax.swing.SwingUtilities;
-import javax.swing.SwingWorker;
 import javax.swing.WindowConstants;
 
 import javax.swing.border.EmptyBorder;
@@ -55,6 +55,8 @@ import org.dishevelled.eventlist.view.CountLabel;
 
 import org.dishevelled.layout.LabelFieldPanel;
 
+import org.seqdoop.hadoop_bam.SAMFormat;
+
 import scala.collection.JavaConversions;
 
 /**
@@ -66,6 +68,12 @@ final class AlignmentView extends LabelFieldPanel {
     private final AlignmentModel model;
     private final AlignmentTable table;
 
+    /** Facet property names. */
+    private static final String[] FACET_PROPERTY_NAMES = { "referenceName", "readGroupId", "readGroupSampleId", "readMapped", "duplicateRead" };
+
+    /** Facet labels. */
+    private static final String[] FACET_LABELS = { "Reference", "Read group", "Sample", "Mapped", "Duplicate" };
+
     /**
      * Create a new alignment view with the specified dataset.
      *
@@ -79,6 +87,13 @@ final class AlignmentView extends LabelFieldPanel {
         model.take(10);
     }
 
+    /**
+     * Cancel any Spark jobs running for this view.
+     */
+    void cancel() {
+        model.cancel();
+    }
+
     private void layoutComponents() {
         JTabbedPane tabbedPane = new JTabbedPane();
         tabbedPane.add("Alignments", layoutAlignmentView());
@@ -92,22 +107,34 @@ final class AlignmentView extends LabelFieldPanel {
         LabelFieldPanel panel = new LabelFieldPanel();
         panel.setOpaque(false);
         panel.setBorder(new EmptyBorder(12, 12, 12, 12));
-        panel.addField("Alignment count:", new DatasetCountLabel(model.getDataset()));
+        panel.addField("Alignment count:", new DatasetCountLabel(model));
+        panel.addField("Page cache:", new PageCacheLabel(PageCache.getInstance()));
         panel.addField("Alignments currently viewing:", new CountLabel<Alignment>(model.getAlignments()));
+        panel.addField("Region:", new RegionField(model));
+        FilterBar filterBar = new FilterBar(model, AlignmentTable.PROPERTY_NAMES, AlignmentTable.COLUMN_LABELS);
+        panel.addField("Filter:", filterBar);
+        panel.addField("Sort:", new SortBar(model, AlignmentTable.PROPERTY_NAMES, AlignmentTable.COLUMN_LABELS));
+        panel.addField("Coverage:", new CoveragePanel(model));
+        panel.addField("Track:", new TrackPanel(model, col("readName"), col("readNegativeStrand")));
         panel.addSpacing(12);
-        panel.addFinalField(table);
+        JScrollPane facets = new JScrollPane(new FacetPanel(model, FACET_PROPERTY_NAMES, FACET_LABELS, filterBar::update));
+        facets.setBorder(null);
+        facets.setOpaque(false);
+        facets.getViewport().setOpaque(false);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, facets, table);
+        splitPane.setBorder(null);
+        splitPane.setOpaque(false);
+        panel.addFinalField(splitPane);
         return panel;
     }
 
     /**
      * Alignment model.
      */
-    static class AlignmentModel {
-        private final AlignmentDataset dataset;
+    static class AlignmentModel extends ExplorerModel<Alignment, AlignmentDataset> {
         private final EventList<Reference> references;
         private final EventList<ReadGroup> readGroups;
         private final EventList<ProcessingStep> processingSteps;
-        private final EventList<Alignment> alignments;
 
         /**
          * Create a new alignment model with the specified dataset.
@@ -115,8 +142,7 @@ final class AlignmentView extends LabelFieldPanel {
          * @param dataset dataset, must not be null
          */
         AlignmentModel(final AlignmentDataset dataset) {
-            this.dataset = dataset;
-            alignments = GlazedLists.eventList(new ArrayList<Alignment>());
+            super(dataset, Alignment.getClassSchema(), AlignmentTable.PROPERTY_NAMES);
 
             List<SequenceRecord> s = JavaConversions.seqAsJavaList(dataset.references().records());;
             references = GlazedLists.eventList(s.stream().map(v -> v.toADAMReference()).collect(Collectors.toList()));
@@ -126,40 +152,8 @@ final class AlignmentView extends LabelFieldPanel {
             processingSteps = GlazedLists.eventList(JavaConversions.seqAsJavaList(dataset.processingSteps()));
         }
 
-        void take(final int take) {
-            new SwingWorker<List<Alignment>, Void>() {
-                @Override
-                public List<Alignment> doInBackground() {
-                    return dataset.jrdd().take(take);
-                }
-
-                @Override
-                public void done() {
-                    try {
-                        List<Alignment> result = get();
-
-                        alignments.getReadWriteLock().writeLock().lock();
-                        try {
-                            alignments.clear();
-                            alignments.addAll(result);
-                        }
-                        finally {
-                            alignments.getReadWriteLock().writeLock().unlock();
-                        }
-                    }
-                    catch (InterruptedException | ExecutionException e) {
-                        // ignore
-                    }
-                }
-            }.execute();
-        }
-
-        AlignmentDataset getDataset() {
-            return dataset;
-        }
-
         EventList<Alignment> getAlignments() {
-            return alignments;
+            return getElements();
         }
 
         EventList<Reference> getReferences() {
@@ -182,7 +176,7 @@ final class AlignmentView extends LabelFieldPanel {
         private final AlignmentModel model;
         private static final String[] PROPERTY_NAMES = { "referenceName", "start", "end", "readName", "readGroupSampleId", "readGroupId" };
         private static final String[] COLUMN_LABELS = { "Reference Name", "Start", "End", "Read Name", "Sample", "Read Group" };
-        private static final TableFormat<Alignment> TABLE_FORMAT = GlazedLists.tableFormat(Alignment.class, PROPERTY_NAMES, COLUMN_LABELS);
+        private static final TableFormat<Alignment> TABLE_FORMAT = AccessorTableFormat.create(Alignment.class, PROPERTY_NAMES, COLUMN_LABELS);
 
         /**
          * Create a new alignment table with the specified model.
@@ -190,8 +184,13 @@ final class AlignmentView extends LabelFieldPanel {
          * @param model model, must not be null
          */
         AlignmentTable(final AlignmentModel model) {
-            super("Alignments:", model.getAlignments(), TABLE_FORMAT);
+            super("Alignments:", model, TABLE_FORMAT);
             this.model = model;
+
+            getToolBar().add(new DatasetExportAction<AlignmentDataset>(this, model,
+                new DatasetExportAction.Format<AlignmentDataset>("ADAM Parquet", "adam", (d, path, single) -> d.saveAsParquet(path)),
+                new DatasetExportAction.Format<AlignmentDataset>("BAM", "bam", (d, path, single) -> d.saveAsSam(path, SAMFormat.BAM, single, false)),
+                new DatasetExportAction.Format<AlignmentDataset>("SAM", "sam", (d, path, single) -> d.saveAsSam(path, SAMFormat.SAM, single, false))));
         }
 
 
@@ -205,12 +204,7 @@ final class AlignmentView extends LabelFieldPanel {
 
         @Override
         public void add() {
-            if (model.getAlignments().isEmpty()) {
-                model.take(10);
-            }
-            else {
-                model.take(model.getAlignments().size() * 2);
-            }
+            model.next(ExplorerModel.PAGE_SIZE);
         }
     }
 }
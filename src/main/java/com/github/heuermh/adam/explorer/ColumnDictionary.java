@@ -0,0 +1,108 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column dictionary.
+ *
+ * <p>
+ * A dictionary of the distinct values of a low-cardinality string column, e.g.
+ * <code>referenceName</code> or <code>sampleId</code>, assigning each value an int code
+ * in the order values are first seen.  Values are encoded as a single character holding their
+ * code, so that encoded rows carry a code instead of a copy of the value, and decoded rows
+ * share one instance of each value.  Once the dictionary is full, further values are encoded
+ * as themselves, with a prefix.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class ColumnDictionary {
+    private final List<String> values = new ArrayList<String>();
+    private final Map<String, Integer> codes = new HashMap<String, Integer>();
+
+    /** Prefix for values encoded as themselves. */
+    private static final char LITERAL = '\u0000';
+
+    /** Maximum number of values, codes are single characters below the surrogate range. */
+    static final int MAX_SIZE = Character.MIN_SURROGATE - 1;
+
+
+    /**
+     * Return the code for the specified value, adding it to this dictionary if necessary,
+     * or <code>-1</code> if this dictionary is full.
+     *
+     * @param value value, must not be null
+     * @return the code for the specified value, or <code>-1</code> if this dictionary is full
+     */
+    synchronized int code(final String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            if (values.size() >= MAX_SIZE) {
+                return -1;
+            }
+            code = Integer.valueOf(values.size());
+            values.add(value);
+            codes.put(value, code);
+        }
+        return code.intValue();
+    }
+
+    /**
+     * Return the value for the specified code.
+     *
+     * @param code code
+     * @return the value for the specified code
+     */
+    synchronized String value(final int code) {
+        return values.get(code);
+    }
+
+    /**
+     * Return the number of values in this dictionary.
+     *
+     * @return the number of values in this dictionary
+     */
+    synchronized int size() {
+        return values.size();
+    }
+
+    /**
+     * Encode the specified value.
+     *
+     * @param value value, must not be null
+     * @return the specified value encoded
+     */
+    String encode(final String value) {
+        int code = code(value);
+        return (code < 0) ? LITERAL + value : String.valueOf((char) (code + 1));
+    }
+
+    /**
+     * Decode the specified encoded value.
+     *
+     * @param encoded value encoded by {@link #encode(String)}, must not be null
+     * @return the specified encoded value decoded
+     */
+    String decode(final CharSequence encoded) {
+        char c = encoded.charAt(0);
+        return (c == LITERAL) ? encoded.subSequence(1, encoded.length()).toString() : value(c - 1);
+    }
+}
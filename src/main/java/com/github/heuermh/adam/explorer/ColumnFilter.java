@@ -0,0 +1,181 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import static org.apache.spark.sql.functions.col;
+
+import java.io.Serializable;
+
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.spark.sql.Column;
+
+import org.bdgenomics.adam.ds.GenomicDataset;
+
+/**
+ * Column filter.
+ *
+ * <p>
+ * Column filters compile to Spark SQL column predicates, applied to the Spark SQL
+ * <code>Dataset</code> view of a genomic dataset so that they run on the cluster and,
+ * for datasets loaded from Parquet, are pushed down to Parquet row group statistics.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class ColumnFilter implements Serializable {
+    private final String column;
+    private final Operator operator;
+    private final Object value;
+
+
+    /**
+     * Create a new column filter.
+     *
+     * @param column column name, must not be null
+     * @param operator operator, must not be null
+     * @param value value, must not be null
+     */
+    ColumnFilter(final String column, final Operator operator, final Object value) {
+        this.column = column;
+        this.operator = operator;
+        this.value = value;
+    }
+
+
+    /**
+     * Return this column filter as a Spark SQL column predicate.
+     *
+     * @return this column filter as a Spark SQL column predicate
+     */
+    Column toColumn() {
+        Column c = col(column);
+        switch (operator) {
+        case EQUAL:
+            return c.equalTo(value);
+        case NOT_EQUAL:
+            return c.notEqual(value);
+        case LESS_THAN:
+            return c.lt(value);
+        case LESS_THAN_OR_EQUAL:
+            return c.leq(value);
+        case GREATER_THAN:
+            return c.gt(value);
+        case GREATER_THAN_OR_EQUAL:
+            return c.geq(value);
+        case STARTS_WITH:
+            return c.startsWith(value.toString());
+        case CONTAINS:
+            return c.contains(value.toString());
+        default:
+            throw new IllegalStateException("unknown operator " + operator);
+        }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ColumnFilter)) {
+            return false;
+        }
+        ColumnFilter columnFilter = (ColumnFilter) o;
+        return column.equals(columnFilter.column) && operator == columnFilter.operator && value.equals(columnFilter.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(column, operator, value);
+    }
+
+    @Override
+    public String toString() {
+        return column + " " + operator + " " + value;
+    }
+
+    /**
+     * Filter the specified dataset to records matching all of the specified column filters.
+     *
+     * @param <E> element type
+     * @param dataset dataset to filter, must not be null
+     * @param filters column filters, must not be null
+     * @return the specified dataset filtered to records matching all of the specified column filters
+     */
+    static <E> GenomicDataset<E, ?, ?> filter(final GenomicDataset<E, ?, ?> dataset, final List<ColumnFilter> filters) {
+        if (filters.isEmpty()) {
+            return dataset;
+        }
+        final ColumnFilter[] f = filters.toArray(new ColumnFilter[0]);
+        return dataset.transformDataFrame(df -> {
+                Column predicate = f[0].toColumn();
+                for (int i = 1; i < f.length; i++) {
+                    predicate = predicate.and(f[i].toColumn());
+                }
+                return df.filter(predicate);
+            });
+    }
+
+
+    /**
+     * Operator.
+     */
+    enum Operator {
+        /** Equal. */
+        EQUAL("="),
+
+        /** Not equal. */
+        NOT_EQUAL("!="),
+
+        /** Less than. */
+        LESS_THAN("<"),
+
+        /** Less than or equal. */
+        LESS_THAN_OR_EQUAL("<="),
+
+        /** Greater than. */
+        GREATER_THAN(">"),
+
+        /** Greater than or equal. */
+        GREATER_THAN_OR_EQUAL(">="),
+
+        /** Starts with, for string columns. */
+        STARTS_WITH("starts with"),
+
+        /** Contains, for string columns. */
+        CONTAINS("contains");
+
+        /** Symbol for this operator. */
+        private final String symbol;
+
+
+        /**
+         * Create a new operator.
+         *
+         * @param symbol symbol for this operator
+         */
+        Operator(final String symbol) {
+            this.symbol = symbol;
+        }
+
+
+        @Override
+        public String toString() {
+            return symbol;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.struct;
+import static org.apache.spark.sql.functions.substring;
+
+import java.io.Serializable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+
+import org.apache.avro.generic.IndexedRecord;
+
+import org.apache.avro.specific.SpecificData;
+
+import org.apache.spark.api.java.JavaRDD;
+
+import org.apache.spark.api.java.function.Function;
+
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+
+import org.apache.spark.sql.types.BooleanType;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DoubleType;
+import org.apache.spark.sql.types.FloatType;
+import org.apache.spark.sql.types.IntegerType;
+import org.apache.spark.sql.types.LongType;
+import org.apache.spark.sql.types.StringType;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+
+import org.bdgenomics.adam.ds.GenomicDataset;
+
+import scala.collection.JavaConversions;
+
+/**
+ * Column projection.
+ *
+ * <p>
+ * Selects only the projected columns from the Spark SQL <code>Dataset</code> view of a genomic
+ * dataset, so that Parquet reads only those columns, and converts the projected rows to
+ * Avro records on the executors with all other fields left null or empty, so that only the
+ * projected fields are shipped to the driver.  Nested fields are projected with dotted column names,
+ * e.g. <code>variant.referenceAllele</code>.  String columns may be truncated to a prefix on the executors,
+ * e.g. to preview very long sequences, see {@link #truncate(String, int)}.
+ * </p>
+ *
+ * @param <T> Avro record type
+ * @author  Michael Heuer
+ */
+final class ColumnProjection<T> implements Serializable {
+    private final Schema schema;
+    private final String[] columns;
+    private final Map<String, Integer> truncated;
+
+
+    /**
+     * Create a new column projection.
+     *
+     * @param schema Avro schema of the record type, must not be null
+     * @param columns columns to project, must not be null
+     */
+    ColumnProjection(final Schema schema, final String... columns) {
+        this(schema, columns, new HashMap<String, Integer>());
+    }
+
+    private ColumnProjection(final Schema schema, final String[] columns, final Map<String, Integer> truncated) {
+        this.schema = schema;
+        this.columns = columns.clone();
+        this.truncated = truncated;
+    }
+
+
+    /**
+     * Return the Avro schema of the record type for this projection.
+     *
+     * @return the Avro schema of the record type for this projection
+     */
+    Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Return the columns in this projection.
+     *
+     * @return the columns in this projection
+     */
+    String[] getColumns() {
+        return columns.clone();
+    }
+
+    /**
+     * Return true if any string columns in this projection are truncated.
+     *
+     * @return true if any string columns in this projection are truncated
+     */
+    boolean isTruncated() {
+        return !truncated.isEmpty();
+    }
+
+    /**
+     * Return a new column projection with the columns in this projection, none of them truncated,
+     * for example to export rows in full.
+     *
+     * @return a new column projection with the columns in this projection, none of them truncated
+     */
+    ColumnProjection<T> untruncated() {
+        return new ColumnProjection<T>(schema, columns, new HashMap<String, Integer>());
+    }
+
+    /**
+     * Return a new column projection with the columns in this projection, with the specified
+     * string column truncated to its first <code>length</code> characters.
+     *
+     * @param column string column to truncate, must not be null
+     * @param length number of characters to keep
+     * @return a new column projection with the columns in this projection, with the specified
+     *    string column truncated to its first <code>length</code> characters
+     */
+    ColumnProjection<T> truncate(final String column, final int length) {
+        Map<String, Integer> t = new HashMap<String, Integer>(truncated);
+        t.put(column, length);
+        return new ColumnProjection<T>(schema, columns, t);
+    }
+
+    /**
+     * Return the Spark SQL <code>Dataset</code> view of the specified dataset with only the columns
+     * in this projection, or <code>null</code> if none of the columns in this projection are in
+     * the Spark SQL schema of the specified dataset.
+     *
+     * @param dataset dataset, must not be null
+     * @return the Spark SQL <code>Dataset</code> view of the specified dataset with only the columns
+     *    in this projection, or <code>null</code>
+     */
+    Dataset<Row> select(final GenomicDataset<T, ?, ?> dataset) {
+        StructType sqlSchema = dataset.dataset().schema();
+        Map<String, Object> tree = new LinkedHashMap<String, Object>();
+        for (String column : columns) {
+            if (resolve(sqlSchema, column) != null) {
+                add(tree, column.split("\\."), 0);
+            }
+        }
+        if (tree.isEmpty()) {
+            return null;
+        }
+        return dataset.dataset().toDF().select(select(tree, ""));
+    }
+
+    /**
+     * Return an RDD of the specified dataset with only the columns in this projection.  The
+     * partitions of the returned RDD correspond to the partitions of the Spark SQL <code>Dataset</code>
+     * view of the specified dataset.  If none of the columns in this projection are in the Spark SQL
+     * schema of the specified dataset, returns <code>dataset.jrdd()</code>.
+     *
+     * @param dataset dataset, must not be null
+     * @return an RDD of the specified dataset with only the columns in this projection
+     */
+    JavaRDD<T> rdd(final GenomicDataset<T, ?, ?> dataset) {
+        Dataset<Row> df = select(dataset);
+        return (df == null) ? dataset.jrdd() : df.toJavaRDD().map(new ToRecord<T>(schema));
+    }
+
+    /**
+     * Convert the specified row, selected by this projection, to an Avro record.
+     *
+     * @param row row, must not be null
+     * @return the specified row converted to an Avro record
+     */
+    T toRecord(final Row row) {
+        return new ToRecord<T>(schema).call(row);
+    }
+
+    /**
+     * Add the specified column path to the specified tree of projected columns.
+     */
+    @SuppressWarnings("unchecked")
+    private static void add(final Map<String, Object> tree, final String[] path, final int depth) {
+        String name = path[depth];
+        if (depth == path.length - 1) {
+            // the whole column, replacing any nested columns
+            tree.put(name, null);
+            return;
+        }
+        if (tree.containsKey(name) && tree.get(name) == null) {
+            // the whole column is already projected
+            return;
+        }
+        Map<String, Object> nested = (Map<String, Object>) tree.get(name);
+        if (nested == null) {
+            nested = new LinkedHashMap<String, Object>();
+            tree.put(name, nested);
+        }
+        add(nested, path, depth + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Column[] select(final Map<String, Object> tree, final String prefix) {
+        List<Column> select = new ArrayList<Column>(tree.size());
+        for (Map.Entry<String, Object> entry : tree.entrySet()) {
+            String name = entry.getKey();
+            if (entry.getValue() == null) {
+                Integer length = truncated.get(prefix + name);
+                select.add(((length == null) ? col(prefix + name) : substring(col(prefix + name), 1, length)).as(name));
+            }
+            else {
+                select.add(struct(select((Map<String, Object>) entry.getValue(), prefix + name + ".")).as(name));
+            }
+        }
+        return select.toArray(new Column[0]);
+    }
+
+    /**
+     * Return true if the specified type is a string, numeric, or boolean type, so that columns of
+     * that type may be filtered, sorted, or counted as facets.
+     *
+     * @param type Spark SQL data type, if any
+     * @return true if the specified type is a string, numeric, or boolean type
+     */
+    static boolean isScalar(final DataType type) {
+        return type instanceof StringType
+            || type instanceof LongType
+            || type instanceof IntegerType
+            || type instanceof DoubleType
+            || type instanceof FloatType
+            || type instanceof BooleanType;
+    }
+
+    /**
+     * Return the Spark SQL data type of the specified column, or <code>null</code> if the
+     * specified column is not in the specified schema.
+     *
+     * @param schema Spark SQL schema, must not be null
+     * @param column column name, possibly nested with dots
+     * @return the Spark SQL data type of the specified column, or <code>null</code>
+     */
+    static DataType resolve(final StructType schema, final String column) {
+        DataType type = schema;
+        for (String name : column.split("\\.")) {
+            if (!(type instanceof StructType)) {
+                return null;
+            }
+            StructType struct = (StructType) type;
+            if (!struct.getFieldIndex(name).isDefined()) {
+                return null;
+            }
+            type = struct.apply(name).dataType();
+        }
+        return type;
+    }
+
+
+    /**
+     * Spark SQL row to Avro record function.
+     *
+     * @param <T> Avro record type
+     */
+    private static final class ToRecord<T> implements Function<Row, T> {
+        private final Schema schema;
+
+
+        /**
+         * Create a new row to record function.
+         *
+         * @param schema Avro schema of the record type
+         */
+        ToRecord(final Schema schema) {
+            this.schema = schema;
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T call(final Row row) {
+            return (T) convert(row, schema);
+        }
+
+        private static Object convert(final Object value, final Schema schema) {
+            if (value == null) {
+                return null;
+            }
+            switch (schema.getType()) {
+            case UNION:
+                for (Schema type : schema.getTypes()) {
+                    if (type.getType() != Schema.Type.NULL) {
+                        return convert(value, type);
+                    }
+                }
+                return null;
+            case RECORD:
+                Row row = (Row) value;
+                IndexedRecord record = (IndexedRecord) SpecificData.get().newRecord(null, schema);
+
+                // fields that are not projected must still be serializable, e.g. arrays that default to empty
+                for (Schema.Field field : schema.getFields()) {
+                    if (field.hasDefaultValue()) {
+                        Object defaultValue = SpecificData.get().getDefaultValue(field);
+                        if (defaultValue != null) {
+                            record.put(field.pos(), SpecificData.get().deepCopy(field.schema(), defaultValue));
+                        }
+                    }
+                }
+                StructField[] fields = row.schema().fields();
+                for (int i = 0; i < fields.length; i++) {
+                    Schema.Field field = schema.getField(fields[i].name());
+                    if (field != null) {
+                        record.put(field.pos(), convert(row.get(i), field.schema()));
+                    }
+                }
+                return record;
+            case ENUM:
+                return SpecificData.get().createEnum(value.toString(), schema);
+            case ARRAY:
+                List<?> elements = (value instanceof scala.collection.Seq)
+                    ? JavaConversions.seqAsJavaList((scala.collection.Seq<?>) value) : (List<?>) value;
+                List<Object> array = new ArrayList<Object>(elements.size());
+                for (Object element : elements) {
+                    array.add(convert(element, schema.getElementType()));
+                }
+                return array;
+            case MAP:
+                Map<?, ?> entries = (value instanceof scala.collection.Map)
+                    ? JavaConversions.mapAsJavaMap((scala.collection.Map<?, ?>) value) : (Map<?, ?>) value;
+                Map<String, Object> map = new HashMap<String, Object>(entries.size());
+                for (Map.Entry<?, ?> entry : entries.entrySet()) {
+                    map.put(entry.getKey().toString(), convert(entry.getValue(), schema.getValueType()));
+                }
+                return map;
+            case INT:
+                return ((Number) value).intValue();
+            case LONG:
+                return ((Number) value).longValue();
+            case FLOAT:
+                return ((Number) value).floatValue();
+            case DOUBLE:
+                return ((Number) value).doubleValue();
+            default:
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+
+import java.awt.event.ActionEvent;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.DefaultComboBoxModel;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingWorker;
+
+import org.bdgenomics.adam.ds.GenomicDataset;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import org.dishevelled.iconbundle.tango.TangoProject;
+
+import org.dishevelled.identify.IdButton;
+import org.dishevelled.identify.IdentifiableAction;
+
+/**
+ * Coverage panel.
+ *
+ * <p>
+ * Shows a coverage track for the dataset of an alignment model, restricted to its current column
+ * filters but not its region, see {@link CoveragePyramid}.  Coverage is computed on request, since
+ * it scans every mapped read, and coverage pyramids are kept for the most recent column filters so
+ * that returning to them does not run Spark jobs.  Double-clicking a bin restricts the rows in the
+ * model to that bin.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+class CoveragePanel extends JPanel {
+    private final ExplorerModel<Alignment, ?> model;
+    private final Map<List<ColumnFilter>, CoveragePyramid> pyramids;
+    private final JComboBox<String> references;
+    private final CoverageTrack track;
+    private final JLabel label;
+    private final IdentifiableAction computeAction;
+    private final IdentifiableAction cancelAction;
+    private CoveragePyramid pyramid;
+    private SwingWorker<CoveragePyramid, Void> worker;
+    private volatile String task;
+
+    /** Number of coverage pyramids kept, for the most recent column filters. */
+    private static final int CACHE_SIZE = 4;
+
+
+    /**
+     * Create a new coverage panel for the specified alignment model.
+     *
+     * @param model alignment model, must not be null
+     */
+    CoveragePanel(final ExplorerModel<Alignment, ?> model) {
+        super(new BorderLayout());
+        setOpaque(false);
+        this.model = model;
+
+        pyramids = new LinkedHashMap<List<ColumnFilter>, CoveragePyramid>(CACHE_SIZE * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<List<ColumnFilter>, CoveragePyramid> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+        track = new CoverageTrack(region -> model.setRegion(region));
+        references = new JComboBox<String>();
+        references.addActionListener(event -> track.show(pyramid, (String) references.getSelectedItem()));
+        label = new JLabel("");
+
+        computeAction = new IdentifiableAction("Compute coverage", TangoProject.VIEW_REFRESH) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    compute();
+                }
+            };
+        cancelAction = new IdentifiableAction("Cancel coverage", TangoProject.PROCESS_STOP) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    cancel();
+                }
+            };
+        cancelAction.setEnabled(false);
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        controls.setOpaque(false);
+        controls.add(references);
+        controls.add(createButton(computeAction));
+        controls.add(createButton(cancelAction));
+        controls.add(label);
+
+        add("North", controls);
+        add("Center", track);
+    }
+
+
+    private static IdButton createButton(final IdentifiableAction action) {
+        IdButton button = new IdButton(action, TangoProject.EXTRA_SMALL);
+        button.displayIcon();
+        button.setBorderPainted(false);
+        button.setToolTipText(action.getName());
+        return button;
+    }
+
+    /**
+     * Show coverage for the dataset of the model, restricted to its current column filters,
+     * computing it in the background if it has not already been computed.
+     */
+    void compute() {
+        final List<ColumnFilter> filters = model.getFilters();
+        CoveragePyramid cached = pyramids.get(filters);
+        if (cached != null) {
+            show(cached);
+            return;
+        }
+        final GenomicDataset<Alignment, ?, ?> dataset = ColumnFilter.filter(model.getDataset(), filters);
+        final JobGroup jobGroup = model.getJobGroup();
+        label.setText("Computing coverage\u2026");
+        computeAction.setEnabled(false);
+        cancelAction.setEnabled(true);
+        worker = new SwingWorker<CoveragePyramid, Void>() {
+            @Override
+            public CoveragePyramid doInBackground() {
+                task = jobGroup.begin("Compute coverage", JobGroup.Pool.BULK);
+                try {
+                    return CoveragePyramid.compute(dataset);
+                }
+                finally {
+                    jobGroup.end(task);
+                }
+            }
+
+            @Override
+            public void done() {
+                computeAction.setEnabled(true);
+                cancelAction.setEnabled(false);
+                if (isCancelled()) {
+                    label.setText("Cancelled");
+                    return;
+                }
+                try {
+                    CoveragePyramid computed = get();
+                    pyramids.put(filters, computed);
+                    show(computed);
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    label.setText("Could not compute coverage");
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    /**
+     * Cancel computing coverage, if running.
+     */
+    void cancel() {
+        if (worker != null) {
+            worker.cancel(false);
+            String id = task;
+            if (id != null) {
+                model.getJobGroup().cancel(id);
+            }
+        }
+    }
+
+    private void show(final CoveragePyramid pyramid) {
+        this.pyramid = pyramid;
+        Object selected = references.getSelectedItem();
+        references.setModel(new DefaultComboBoxModel<String>(pyramid.getReferenceNames().toArray(new String[0])));
+        if (selected != null && pyramid.getLength((String) selected) > 0L) {
+            references.setSelectedItem(selected);
+        }
+        label.setText(String.format("Maximum depth %.1f per %,d bp", pyramid.maxDepth(CoveragePyramid.FINEST), CoveragePyramid.BIN_SIZES[CoveragePyramid.FINEST]));
+        track.show(pyramid, (String) references.getSelectedItem());
+    }
+}
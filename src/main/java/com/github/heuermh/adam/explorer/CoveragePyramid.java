@@ -0,0 +1,231 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.explode;
+import static org.apache.spark.sql.functions.floor;
+import static org.apache.spark.sql.functions.greatest;
+import static org.apache.spark.sql.functions.least;
+import static org.apache.spark.sql.functions.sequence;
+import static org.apache.spark.sql.functions.sum;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.spark.sql.Row;
+
+import org.bdgenomics.adam.ds.GenomicDataset;
+
+import org.bdgenomics.adam.models.SequenceRecord;
+
+import org.bdgenomics.formats.avro.Alignment;
+
+import scala.collection.JavaConversions;
+
+/**
+ * Coverage pyramid.
+ *
+ * <p>
+ * Read depth of an alignment dataset per reference, in bins at several resolutions, e.g.
+ * 1 Mb, 100 kb, 10 kb, and 1 kb.  The aligned bases of each mapped read are summed per bin
+ * of the finest resolution on the cluster in a single Spark SQL aggregation, which reads only
+ * the <code>referenceName</code>, <code>start</code>, <code>end</code>, and <code>readMapped</code>
+ * columns.  Only the non-empty bins are shipped to the driver, where the coarser resolutions are
+ * summed from the finest, so that zooming reads the appropriate resolution without running Spark jobs.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class CoveragePyramid {
+    private final Map<String, Long> lengths;
+    private final Map<String, long[][]> bases;
+    private final double[] maxDepths;
+
+    /** Bin sizes of each resolution, from coarsest to finest; each a multiple of the next. */
+    static final int[] BIN_SIZES = { 1000000, 100000, 10000, 1000 };
+
+    /** Index of the finest resolution. */
+    static final int FINEST = BIN_SIZES.length - 1;
+
+
+    /**
+     * Create a new coverage pyramid.
+     *
+     * @param lengths reference lengths, in order
+     * @param bases aligned bases per bin of each resolution, per reference
+     */
+    private CoveragePyramid(final Map<String, Long> lengths, final Map<String, long[][]> bases) {
+        this.lengths = lengths;
+        this.bases = bases;
+        maxDepths = new double[BIN_SIZES.length];
+        for (int level = 0; level < BIN_SIZES.length; level++) {
+            for (String referenceName : lengths.keySet()) {
+                for (int bin = 0, bins = bins(referenceName, level); bin < bins; bin++) {
+                    maxDepths[level] = Math.max(maxDepths[level], depth(referenceName, level, bin));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Return the names of the references in this coverage pyramid, in sequence dictionary order.
+     *
+     * @return the names of the references in this coverage pyramid
+     */
+    List<String> getReferenceNames() {
+        return Collections.unmodifiableList(new ArrayList<String>(lengths.keySet()));
+    }
+
+    /**
+     * Return the length of the specified reference, or <code>0</code> if the specified reference is not
+     * in this coverage pyramid.
+     *
+     * @param referenceName reference name
+     * @return the length of the specified reference, or <code>0</code>
+     */
+    long getLength(final String referenceName) {
+        Long length = lengths.get(referenceName);
+        return (length == null) ? 0L : length;
+    }
+
+    /**
+     * Return the finest resolution with bins at least as large as the specified number of bases,
+     * e.g. the number of bases per pixel, or the finest resolution if there is none.
+     *
+     * @param bases number of bases
+     * @return the finest resolution with bins at least as large as the specified number of bases
+     */
+    static int level(final double bases) {
+        for (int level = FINEST; level > 0; level--) {
+            if (BIN_SIZES[level] >= bases) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Return the number of bins of the specified reference at the specified resolution.
+     *
+     * @param referenceName reference name
+     * @param level resolution, an index into {@link #BIN_SIZES}
+     * @return the number of bins of the specified reference at the specified resolution
+     */
+    int bins(final String referenceName, final int level) {
+        long[][] b = bases.get(referenceName);
+        return (b == null) ? 0 : b[level].length;
+    }
+
+    /**
+     * Return the mean read depth of the specified bin of the specified reference at the specified resolution.
+     *
+     * @param referenceName reference name
+     * @param level resolution, an index into {@link #BIN_SIZES}
+     * @param bin bin
+     * @return the mean read depth of the specified bin, or <code>0.0</code> if the bin does not exist
+     */
+    double depth(final String referenceName, final int level, final int bin) {
+        long[][] b = bases.get(referenceName);
+        if (b == null || bin < 0 || bin >= b[level].length) {
+            return 0.0d;
+        }
+        long start = (long) bin * BIN_SIZES[level];
+        long end = Math.min(start + BIN_SIZES[level], getLength(referenceName));
+        return (end > start) ? b[level][bin] / (double) (end - start) : 0.0d;
+    }
+
+    /**
+     * Return the maximum mean read depth of any bin at the specified resolution.
+     *
+     * @param level resolution, an index into {@link #BIN_SIZES}
+     * @return the maximum mean read depth of any bin at the specified resolution
+     */
+    double maxDepth(final int level) {
+        return maxDepths[level];
+    }
+
+    /**
+     * Compute a coverage pyramid for the specified alignment dataset.  Blocks until the Spark
+     * job completes; do not call on the event dispatch thread.
+     *
+     * @param dataset alignment dataset, must not be null
+     * @return a coverage pyramid for the specified alignment dataset
+     */
+    static CoveragePyramid compute(final GenomicDataset<Alignment, ?, ?> dataset) {
+        long binSize = BIN_SIZES[FINEST];
+        List<Row> rows = dataset.dataset().toDF()
+            .filter(col("readMapped").equalTo(true)
+                    .and(col("referenceName").isNotNull())
+                    .and(col("end").gt(col("start"))))
+            .select(col("referenceName"), col("start"), col("end"),
+                    explode(sequence(floor(col("start").divide(binSize)), floor(col("end").minus(1L).divide(binSize)))).as("bin"))
+            .groupBy(col("referenceName"), col("bin"))
+            .agg(sum(least(col("end"), col("bin").plus(1L).multiply(binSize)).minus(greatest(col("start"), col("bin").multiply(binSize)))).as("bases"))
+            .collectAsList();
+
+        // references in sequence dictionary order, then any others
+        Map<String, Long> lengths = new LinkedHashMap<String, Long>();
+        for (SequenceRecord record : JavaConversions.seqAsJavaList(dataset.references().records())) {
+            lengths.put(record.name(), record.length());
+        }
+        // lengths of references missing from the sequence dictionary extend to their last non-empty bin
+        Map<String, Long> others = new TreeMap<String, Long>();
+        for (Row row : rows) {
+            String referenceName = row.getString(0);
+            if (lengths.containsKey(referenceName)) {
+                continue;
+            }
+            long end = (row.getLong(1) + 1L) * binSize;
+            Long length = others.get(referenceName);
+            if (length == null || length < end) {
+                others.put(referenceName, end);
+            }
+        }
+        lengths.putAll(others);
+
+        Map<String, long[][]> bases = new HashMap<String, long[][]>(lengths.size());
+        for (Map.Entry<String, Long> entry : lengths.entrySet()) {
+            long[][] levels = new long[BIN_SIZES.length][];
+            for (int level = 0; level < BIN_SIZES.length; level++) {
+                levels[level] = new long[(int) ((entry.getValue() + BIN_SIZES[level] - 1L) / BIN_SIZES[level])];
+            }
+            bases.put(entry.getKey(), levels);
+        }
+        for (Row row : rows) {
+            long[] finest = bases.get(row.getString(0))[FINEST];
+            // ignore bases of alignments past the end of a reference in the sequence dictionary
+            if (row.getLong(1) < finest.length) {
+                finest[(int) row.getLong(1)] = row.getLong(2);
+            }
+        }
+        for (long[][] levels : bases.values()) {
+            for (int level = FINEST - 1; level >= 0; level--) {
+                int factor = BIN_SIZES[level] / BIN_SIZES[level + 1];
+                for (int bin = 0; bin < levels[level + 1].length; bin++) {
+                    levels[level][bin / factor] += levels[level + 1][bin];
+                }
+            }
+        }
+        return new CoveragePyramid(lengths, bases);
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+
+import java.util.function.Consumer;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+import org.bdgenomics.adam.models.ReferenceRegion;
+
+import org.bdgenomics.formats.avro.Strand;
+
+/**
+ * Coverage track.
+ *
+ * <p>
+ * Draws the read depth of one reference from a coverage pyramid, reading the resolution
+ * closest to the current zoom level, so that zooming and panning do not run Spark jobs.
+ * Bins without coverage are marked in red.  Scroll to zoom, drag to pan, and double-click
+ * to restrict the rows shown to the bin under the mouse.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class CoverageTrack extends JComponent {
+    private CoveragePyramid pyramid;
+    private String referenceName;
+    private double start;
+    private double basesPerPixel = 1.0d;
+    private final Consumer<ReferenceRegion> open;
+
+    /** Fewest bases per pixel, when zoomed in all the way. */
+    private static final double MIN_BASES_PER_PIXEL = 1.0d;
+
+    /** Zoom factor per mouse wheel notch. */
+    private static final double ZOOM_FACTOR = 1.25d;
+
+    /** Height of the marks for bins without coverage, in pixels. */
+    private static final int DROPOUT_HEIGHT = 3;
+
+    /** Color of the marks for bins without coverage. */
+    private static final Color DROPOUT = new Color(204, 0, 0);
+
+    /** Color of read depth. */
+    private static final Color DEPTH = new Color(52, 101, 164);
+
+
+    /**
+     * Create a new coverage track.
+     *
+     * @param open consumer of the region of a bin double-clicked on, must not be null
+     */
+    CoverageTrack(final Consumer<ReferenceRegion> open) {
+        this.open = open;
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(600, 96));
+        setToolTipText("");
+
+        MouseAdapter mouseAdapter = new MouseAdapter() {
+                private int x;
+
+                @Override
+                public void mousePressed(final MouseEvent event) {
+                    x = event.getX();
+                }
+
+                @Override
+                public void mouseDragged(final MouseEvent event) {
+                    pan((x - event.getX()) * basesPerPixel);
+                    x = event.getX();
+                }
+
+                @Override
+                public void mouseWheelMoved(final MouseWheelEvent event) {
+                    zoom(Math.pow(ZOOM_FACTOR, event.getPreciseWheelRotation()), event.getX());
+                }
+
+                @Override
+                public void mouseClicked(final MouseEvent event) {
+                    if (event.getClickCount() == 2 && SwingUtilities.isLeftMouseButton(event) && referenceName != null) {
+                        double position = position(event.getX());
+                        int binSize = CoveragePyramid.BIN_SIZES[CoveragePyramid.level(basesPerPixel)];
+                        long bin = (long) (position / binSize);
+                        long length = pyramid.getLength(referenceName);
+                        if (bin >= 0L && bin * binSize < length) {
+                            open.accept(ReferenceRegion.apply(referenceName, bin * binSize, Math.min((bin + 1L) * binSize, length), Strand.INDEPENDENT));
+                        }
+                    }
+                }
+            };
+        addMouseListener(mouseAdapter);
+        addMouseMotionListener(mouseAdapter);
+        addMouseWheelListener(mouseAdapter);
+    }
+
+
+    /**
+     * Show the specified reference from the specified coverage pyramid, zoomed out all the way.
+     *
+     * @param pyramid coverage pyramid, if any
+     * @param referenceName reference name, if any
+     */
+    void show(final CoveragePyramid pyramid, final String referenceName) {
+        this.pyramid = pyramid;
+        this.referenceName = referenceName;
+        start = 0.0d;
+        // zoomed out all the way once the width is known
+        basesPerPixel = 0.0d;
+        repaint();
+    }
+
+    private double maxBasesPerPixel() {
+        if (pyramid == null || referenceName == null) {
+            return MIN_BASES_PER_PIXEL;
+        }
+        return Math.max(MIN_BASES_PER_PIXEL, pyramid.getLength(referenceName) / (double) Math.max(1, getWidth()));
+    }
+
+    private double position(final int x) {
+        if (basesPerPixel <= 0.0d) {
+            basesPerPixel = maxBasesPerPixel();
+        }
+        return start + x * basesPerPixel;
+    }
+
+    private void pan(final double bases) {
+        if (pyramid == null || referenceName == null) {
+            return;
+        }
+        double length = pyramid.getLength(referenceName);
+        start = Math.max(0.0d, Math.min(start + bases, length - getWidth() * basesPerPixel));
+        repaint();
+    }
+
+    private void zoom(final double factor, final int x) {
+        if (pyramid == null || referenceName == null) {
+            return;
+        }
+        double position = position(x);
+        basesPerPixel = Math.max(MIN_BASES_PER_PIXEL, Math.min(basesPerPixel * factor, maxBasesPerPixel()));
+        start = position - x * basesPerPixel;
+        pan(0.0d);
+    }
+
+    @Override
+    public String getToolTipText(final MouseEvent event) {
+        if (pyramid == null || referenceName == null) {
+            return null;
+        }
+        double position = position(event.getX());
+        int level = CoveragePyramid.level(basesPerPixel);
+        int binSize = CoveragePyramid.BIN_SIZES[level];
+        int bin = (int) (position / binSize);
+        if (bin < 0 || bin >= pyramid.bins(referenceName, level)) {
+            return null;
+        }
+        long binStart = (long) bin * binSize;
+        long binEnd = Math.min(binStart + binSize, pyramid.getLength(referenceName));
+        return String.format("%s:%,d-%,d mean depth %.1f", referenceName, binStart + 1L, binEnd, pyramid.depth(referenceName, level, bin));
+    }
+
+    @Override
+    protected void paintComponent(final Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        if (pyramid == null || referenceName == null) {
+            return;
+        }
+        if (basesPerPixel <= 0.0d) {
+            basesPerPixel = maxBasesPerPixel();
+        }
+        int level = CoveragePyramid.level(basesPerPixel);
+        int binSize = CoveragePyramid.BIN_SIZES[level];
+        int bins = pyramid.bins(referenceName, level);
+        double maxDepth = Math.max(1.0d, pyramid.maxDepth(level));
+        int height = getHeight() - DROPOUT_HEIGHT;
+
+        // one column of pixels at a time, the mean of the bins it covers
+        for (int x = 0, width = getWidth(); x < width; x++) {
+            int first = (int) (position(x) / binSize);
+            int last = Math.min(bins - 1, (int) Math.ceil(position(x + 1) / binSize) - 1);
+            if (first >= bins) {
+                break;
+            }
+            double total = 0.0d;
+            boolean dropout = false;
+            for (int bin = first; bin <= Math.max(first, last); bin++) {
+                double depth = pyramid.depth(referenceName, level, bin);
+                total += depth;
+                dropout |= (depth == 0.0d);
+            }
+            double mean = total / (Math.max(first, last) - first + 1);
+            int h = (int) Math.round(height * Math.min(1.0d, mean / maxDepth));
+            if (h > 0) {
+                g.setColor(DEPTH);
+                g.fillRect(x, height - h, 1, h);
+            }
+            if (dropout) {
+                g.setColor(DROPOUT);
+                g.fillRect(x, height, 1, DROPOUT_HEIGHT);
+            }
+        }
+    }
+}
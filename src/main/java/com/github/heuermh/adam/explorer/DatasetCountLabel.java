@@ -15,42 +15,129 @@
  */
 package com.github.heuermh.adam.explorer;
 
+import java.awt.BorderLayout;
+
+import java.awt.event.ActionEvent;
+
+import java.util.List;
+
 import java.util.concurrent.ExecutionException;
 
 import javax.swing.JLabel;
+import javax.swing.JPanel;
 import javax.swing.SwingWorker;
 
-import org.bdgenomics.adam.ds.GenomicDataset;
+import org.dishevelled.iconbundle.tango.TangoProject;
+
+import org.dishevelled.identify.IdButton;
+import org.dishevelled.identify.IdentifiableAction;
 
 /**
  * Dataset count label.
  *
+ * <p>
+ * Datasets loaded from Parquet are counted from their Parquet file footers without running
+ * a Spark job.  Other datasets are counted in rounds of growing size, sampled evenly across
+ * partitions, showing an estimate of the total row count with a 95% confidence interval
+ * after each round until the exact count is known.  The count may be cancelled, which cancels its
+ * Spark jobs so that they do not compete with page fetches.
+ * </p>
+ *
  * @author  Michael Heuer
  */
-class DatasetCountLabel extends JLabel {
+class DatasetCountLabel extends JPanel {
+    private final JLabel label;
+    private final IdentifiableAction cancelAction;
+    private volatile String task;
+
+    /** Factor by which the number of partitions counted grows per round. */
+    private static final int SCALE_UP_FACTOR = 4;
+
 
     /**
-     * Create a new dataset count label for the specified dataset.
+     * Create a new dataset count label for the dataset in the specified model.  The
+     * count pass records per-partition row counts in the partition index of the model.
      *
-     * @param dataset dataset, must not be null
+     * @param model model, must not be null
      */
-    DatasetCountLabel(final GenomicDataset dataset) {
-        super("");
-        new SwingWorker<Long, Void>() {
+    DatasetCountLabel(final ExplorerModel<?, ?> model) {
+        super(new BorderLayout());
+
+        final PartitionFetcher<?> fetcher = model.getFetcher();
+        final PartitionIndex index = fetcher.getIndex();
+        final JobGroup jobGroup = model.getJobGroup();
+
+        label = new JLabel("");
+        final SwingWorker<Long, double[]> worker = new SwingWorker<Long, double[]>() {
             @Override
             public Long doInBackground() {
-                return dataset.jrdd().count();
+                long count = ParquetRowCount.count(model.getDataset());
+                if (count != PartitionIndex.UNKNOWN) {
+                    return count;
+                }
+                task = jobGroup.begin("Count rows", JobGroup.Pool.BULK);
+                try {
+                    int batch = Math.max(1, fetcher.getRdd().context().defaultParallelism());
+                    while (!index.isComplete() && !isCancelled()) {
+                        fetcher.count(index.sample(batch));
+                        double[] estimate = index.estimate();
+                        if (estimate != null && !index.isComplete()) {
+                            publish(estimate);
+                        }
+                        batch *= SCALE_UP_FACTOR;
+                    }
+                    return index.total();
+                }
+                finally {
+                    jobGroup.end(task);
+                }
+            }
+
+            @Override
+            protected void process(final List<double[]> estimates) {
+                double[] estimate = estimates.get(estimates.size() - 1);
+                label.setText(String.format("~%d \u00b1 %d", Math.round(estimate[0]), Math.round(estimate[1])));
+                label.setToolTipText("Estimated, with 95% confidence interval");
             }
 
             @Override
             public void done() {
+                cancelAction.setEnabled(false);
+                if (isCancelled()) {
+                    label.setText(label.getText().isEmpty() ? "Cancelled" : label.getText() + " (cancelled)");
+                    return;
+                }
                 try {
-                    setText(get().toString());
+                    Long count = get();
+                    label.setText(count.toString());
+                    label.setToolTipText(null);
+                    model.setDatasetCount(count);
                 }
                 catch (InterruptedException | ExecutionException e) {
                     // ignore
                 }
             }
-        }.execute();
+        };
+
+        cancelAction = new IdentifiableAction("Cancel count", TangoProject.PROCESS_STOP) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    worker.cancel(false);
+                    String id = task;
+                    if (id != null) {
+                        jobGroup.cancel(id);
+                    }
+                }
+            };
+
+        IdButton cancel = new IdButton(cancelAction, TangoProject.EXTRA_SMALL);
+        cancel.displayIcon();
+        cancel.setBorderPainted(false);
+        cancel.setToolTipText("Cancel count");
+
+        add("Center", label);
+        add("East", cancel);
+
+        worker.execute();
     }
 }
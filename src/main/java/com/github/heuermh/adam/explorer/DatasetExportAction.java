@@ -0,0 +1,295 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dialog;
+
+import java.awt.event.ActionEvent;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.WindowConstants;
+
+import javax.swing.border.EmptyBorder;
+
+import org.apache.hadoop.conf.Configuration;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import org.bdgenomics.adam.ds.GenomicDataset;
+
+import org.dishevelled.iconbundle.tango.TangoProject;
+
+import org.dishevelled.identify.IdentifiableAction;
+
+import org.dishevelled.layout.LabelFieldPanel;
+
+/**
+ * Dataset export action.
+ *
+ * <p>
+ * Saves the view of the dataset for an explorer model, restricted to its current column filters
+ * and region, with one of ADAM's savers, e.g. Parquet, BAM, or VCF.  The filters are applied and the
+ * output written in parallel on the executors, so no rows are brought to the driver.  The order of
+ * rows chosen with the sort bar is not applied.  Outputs other than Parquet are written as a directory
+ * of part files, unless merged into a single file.
+ * </p>
+ *
+ * <p>
+ * The savers write on the cluster, so the destination is a Hadoop path, e.g.
+ * <code>hdfs://namenode/user/name/sample.bam</code> or <code>s3a://bucket/sample.bam</code>, and paths
+ * without a scheme are resolved against the default file system of the Hadoop configuration of the
+ * Spark context, <code>fs.defaultFS</code>, rather than against the local file system of the driver.
+ * </p>
+ *
+ * @param <D> dataset type
+ * @author  Michael Heuer
+ */
+final class DatasetExportAction<D extends GenomicDataset<?, ?, ?>> extends IdentifiableAction {
+    private final Component parent;
+    private final ExplorerModel<?, D> model;
+    private final List<Format<D>> formats;
+
+
+    /**
+     * Create a new dataset export action.
+     *
+     * @param parent parent component for dialogs
+     * @param model explorer model, must not be null
+     * @param formats formats to save the dataset in, must not be null or empty
+     */
+    @SafeVarargs
+    DatasetExportAction(final Component parent, final ExplorerModel<?, D> model, final Format<D>... formats) {
+        super("Export filtered dataset", TangoProject.DOCUMENT_SAVE);
+        if (formats.length == 0) {
+            throw new IllegalArgumentException("formats must not be empty");
+        }
+        this.parent = parent;
+        this.model = model;
+        List<Format<D>> f = new ArrayList<Format<D>>(formats.length);
+        for (Format<D> format : formats) {
+            f.add(format);
+        }
+        this.formats = Collections.unmodifiableList(f);
+    }
+
+
+    @Override
+    public void actionPerformed(final ActionEvent event) {
+        Configuration conf = model.getDataset().jrdd().context().hadoopConfiguration();
+        JComboBox<String> format = new JComboBox<String>();
+        for (Format<D> f : formats) {
+            format.addItem(f.getDescription());
+        }
+        JTextField destination = new JTextField(40);
+        destination.setText(defaultDestination(conf, formats.get(0)));
+        destination.setToolTipText("Hadoop path or URI, paths without a scheme are resolved against " + conf.get(FileSystem.FS_DEFAULT_NAME_KEY));
+        format.addActionListener(e -> destination.setText(replaceExtension(destination.getText(), formats.get(format.getSelectedIndex()))));
+        JCheckBox single = new JCheckBox("Merge into a single file");
+        single.setToolTipText("Merges part files after they are written; Parquet is always written as a directory");
+
+        LabelFieldPanel panel = new LabelFieldPanel();
+        panel.addField("Format:", format);
+        panel.addField("Destination:", destination);
+        panel.addField("", single);
+        if (JOptionPane.showConfirmDialog(parent, panel, "Export filtered dataset", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        Format<D> selected = formats.get(format.getSelectedIndex());
+        Path path;
+        try {
+            path = new Path(destination.getText().trim());
+            if (!path.getName().contains(".")) {
+                path = path.suffix("." + selected.getExtension());
+            }
+            path = path.getFileSystem(conf).makeQualified(path);
+        }
+        catch (IllegalArgumentException | IOException e) {
+            JOptionPane.showMessageDialog(parent, "Invalid destination " + destination.getText() + ":\n" + e.getMessage(),
+                                          "Export filtered dataset", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        export(model.getView(), selected, path, conf, single.isSelected());
+    }
+
+    /**
+     * Return the default destination for the specified format, in the working directory of the
+     * default file system.
+     */
+    private static String defaultDestination(final Configuration conf, final Format<?> format) {
+        try {
+            return new Path(FileSystem.get(conf).getWorkingDirectory(), "export." + format.getExtension()).toString();
+        }
+        catch (IOException e) {
+            return "export." + format.getExtension();
+        }
+    }
+
+    /**
+     * Replace the extension of the specified destination with that of the specified format.
+     */
+    private static String replaceExtension(final String destination, final Format<?> format) {
+        int slash = destination.lastIndexOf('/');
+        int dot = destination.lastIndexOf('.');
+        return ((dot > slash) ? destination.substring(0, dot) : destination) + "." + format.getExtension();
+    }
+
+    /**
+     * Save the specified dataset in the specified format to the specified fully qualified path in the
+     * background, showing a dialog that allows the export to be cancelled.  Fails if the path already exists.
+     */
+    private void export(final D dataset, final Format<D> format, final Path path, final Configuration conf, final boolean asSingleFile) {
+        final JobGroup jobGroup = model.getJobGroup();
+        final JDialog dialog = new JDialog(SwingUtilities.getWindowAncestor(parent), "Export filtered dataset", Dialog.ModalityType.MODELESS);
+        final JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        final JButton cancel = new JButton("Cancel");
+        final List<String> tasks = new CopyOnWriteArrayList<String>();
+
+        final SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+                @Override
+                public Void doInBackground() throws IOException {
+                    if (path.getFileSystem(conf).exists(path)) {
+                        throw new IOException(path + " already exists");
+                    }
+                    String task = jobGroup.begin("Export " + format.getDescription() + " to " + path, JobGroup.Pool.BULK);
+                    tasks.add(task);
+                    try {
+                        format.getSaver().save(dataset, path.toString(), asSingleFile);
+                        return null;
+                    }
+                    finally {
+                        jobGroup.end(task);
+                    }
+                }
+
+                @Override
+                public void done() {
+                    dialog.dispose();
+                    if (isCancelled()) {
+                        return;
+                    }
+                    try {
+                        get();
+                    }
+                    catch (InterruptedException e) {
+                        // ignore
+                    }
+                    catch (ExecutionException e) {
+                        JOptionPane.showMessageDialog(parent, "Could not export filtered dataset to " + path + ":\n" + e.getCause().getMessage(),
+                                                      "Export filtered dataset", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            };
+        cancel.addActionListener(e -> {
+                worker.cancel(false);
+                for (String task : tasks) {
+                    jobGroup.cancel(task);
+                }
+            });
+
+        JPanel panel = new JPanel(new BorderLayout(0, 12));
+        panel.setBorder(new EmptyBorder(12, 12, 12, 12));
+        panel.add("North", new JLabel("Exporting " + format.getDescription() + " to " + path));
+        panel.add("Center", progressBar);
+        JPanel buttons = new JPanel();
+        buttons.add(cancel);
+        panel.add("South", buttons);
+        dialog.setContentPane(panel);
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        dialog.pack();
+        dialog.setLocationRelativeTo(parent);
+        dialog.setVisible(true);
+        worker.execute();
+    }
+
+
+    /**
+     * Saver, saves a dataset to a path with one of ADAM's savers on the executors.
+     *
+     * @param <D> dataset type
+     */
+    interface Saver<D> {
+
+        /**
+         * Save the specified dataset to the specified path.  Blocks until Spark job(s) complete.
+         *
+         * @param dataset dataset to save, must not be null
+         * @param path path to save to, must not be null
+         * @param asSingleFile true to merge part files into a single file, if supported
+         */
+        void save(D dataset, String path, boolean asSingleFile);
+    }
+
+    /**
+     * Export format.
+     *
+     * @param <D> dataset type
+     */
+    static final class Format<D> {
+        private final String description;
+        private final String extension;
+        private final Saver<D> saver;
+
+
+        /**
+         * Create a new export format.
+         *
+         * @param description description, e.g. <code>BAM</code>
+         * @param extension file extension, without the leading dot
+         * @param saver saver, must not be null
+         */
+        Format(final String description, final String extension, final Saver<D> saver) {
+            this.description = description;
+            this.extension = extension;
+            this.saver = saver;
+        }
+
+
+        String getDescription() {
+            return description;
+        }
+
+        String getExtension() {
+            return extension;
+        }
+
+        Saver<D> getSaver() {
+            return saver;
+        }
+    }
+}
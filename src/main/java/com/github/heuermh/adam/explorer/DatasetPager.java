@@ -0,0 +1,268 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import java.util.function.Consumer;
+
+/**
+ * Dataset pager.
+ *
+ * <p>
+ * Keeps a cursor (partition index plus offset into that partition) over an RDD
+ * and fetches only the next page of rows from the partitions at or after the cursor,
+ * so that the cost of fetching a page does not depend on how far into the RDD the
+ * cursor is.  Partitions with known row counts are targeted exactly; partitions with
+ * unknown row counts are scanned in growing batches, as in <code>RDD.take</code>.
+ * </p>
+ *
+ * @param <T> element type
+ * @author  Michael Heuer
+ */
+final class DatasetPager<T> implements Pager<T> {
+    private final PartitionFetcher<T> fetcher;
+    private final PartitionIndex index;
+    private final int partitions;
+    private int partition;
+    private long offset;
+
+    /** Factor by which the number of partitions with unknown row counts scanned grows per job. */
+    private static final int SCALE_UP_FACTOR = 4;
+
+    /** Maximum number of rows read from each partition selected at random for a sample. */
+    static final long SAMPLE_PREFIX = 10000L;
+
+
+    /**
+     * Create a new dataset pager for the specified partition fetcher.
+     *
+     * @param fetcher partition fetcher, must not be null
+     */
+    DatasetPager(final PartitionFetcher<T> fetcher) {
+        this.fetcher = fetcher;
+        this.index = fetcher.getIndex();
+        this.partitions = index.partitions();
+    }
+
+
+    /**
+     * Return the partition index for this pager.
+     *
+     * @return the partition index for this pager
+     */
+    PartitionIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Return true if there may be more rows after the cursor.
+     *
+     * @return true if there may be more rows after the cursor
+     */
+    @Override
+    public synchronized boolean hasNext() {
+        for (int i = partition; i < partitions; i++) {
+            long size = index.size(i);
+            if (size == PartitionIndex.UNKNOWN || size > ((i == partition) ? offset : 0L)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reset the cursor to the first row.
+     */
+    synchronized void reset() {
+        partition = 0;
+        offset = 0L;
+    }
+
+    /**
+     * Move the cursor to the specified row, counting partitions with unknown row counts
+     * before that row as necessary.  This method may block until Spark job(s) complete,
+     * and should not be called on the event dispatch thread.
+     *
+     * @param row row, must be at least zero
+     * @return true if the specified row exists
+     */
+    @Override
+    public synchronized boolean seek(final long row) {
+        if (row == 0L) {
+            reset();
+            return hasNext();
+        }
+        long[] location = index.locate(row);
+        int scan = 1;
+        while (location == null) {
+            fetcher.count(index.unknown(scan));
+            location = index.locate(row);
+            scan *= SCALE_UP_FACTOR;
+        }
+        partition = (int) location[0];
+        offset = location[1];
+        return partition < partitions;
+    }
+
+    @Override
+    public List<T> next(final int count) {
+        return next(count, null);
+    }
+
+    @Override
+    public synchronized List<T> next(final int count, final Consumer<List<T>> batches) {
+        final List<T> page = new ArrayList<T>(count);
+        int scan = 1;
+        while (page.size() < count && hasNext()) {
+            int limit = count - page.size();
+
+            // select known partitions until they cover the page, or up to scan unknown partitions
+            int[] ids = new int[partitions - partition];
+            long[] skips = new long[ids.length];
+            int n = 0;
+            int unknown = 0;
+            long covered = 0L;
+            for (int i = partition; i < partitions && covered < limit && unknown < scan; i++) {
+                long skip = (i == partition) ? offset : 0L;
+                long size = index.size(i);
+                if (size == PartitionIndex.UNKNOWN) {
+                    unknown++;
+                }
+                else if (size > skip) {
+                    covered += size - skip;
+                }
+                else {
+                    continue;
+                }
+                ids[n] = i;
+                skips[n] = skip;
+                n++;
+            }
+
+            // slices arrive in partition order, possibly before the job completes
+            fetcher.fetch(Arrays.copyOf(ids, n), Arrays.copyOf(skips, n), limit, slice -> {
+                    List<T> batch = advance(slice, count - page.size());
+                    if (!batch.isEmpty()) {
+                        page.addAll(batch);
+                        if (batches != null) {
+                            batches.accept(batch);
+                        }
+                    }
+                });
+            scan *= SCALE_UP_FACTOR;
+        }
+        return page;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return fetcher.getRdd().toLocalIterator();
+    }
+
+    /**
+     * Advance the cursor past up to <code>needed</code> rows in the specified slice and return those rows.
+     */
+    private List<T> advance(final PartitionFetcher.Slice<T> slice, final int needed) {
+        if (needed == 0) {
+            return Collections.emptyList();
+        }
+        if (slice.getPartition() != partition) {
+            partition = slice.getPartition();
+            offset = 0L;
+        }
+        List<T> rows = slice.getRows();
+        if (rows.size() > needed) {
+            offset += needed;
+            return rows.subList(0, needed);
+        }
+        if (slice.isExhausted()) {
+            partition++;
+            offset = 0L;
+        }
+        else {
+            offset += rows.size();
+        }
+        return rows;
+    }
+
+    /**
+     * Fetch a sample of up to the specified number of rows, spread across partitions, in a
+     * single job.  If <code>random</code> is null, the sample is taken from the start of
+     * partitions spaced evenly across the RDD, so that no task reads more rows than a head
+     * fetch would.  Otherwise the sample is taken from partitions selected at random, and rows
+     * are selected at random within each of those, from the first {@link #SAMPLE_PREFIX} rows,
+     * with a seed for each partition drawn from <code>random</code>.  The cursor is not moved.
+     * This method blocks until the Spark job completes, and should not be called on the event
+     * dispatch thread.
+     *
+     * @param count number of rows to sample
+     * @param random source of randomness for selecting partitions and rows, if any
+     * @return a sample of up to the specified number of rows
+     */
+    synchronized List<T> sample(final int count, final Random random) {
+        // skip partitions known to be empty
+        int[] candidates = new int[partitions];
+        int n = 0;
+        for (int i = 0; i < partitions; i++) {
+            if (index.size(i) != 0L) {
+                candidates[n++] = i;
+            }
+        }
+        int k = Math.min(count, n);
+        if (k == 0) {
+            return new ArrayList<T>();
+        }
+
+        int[] ids = new int[k];
+        int limit = (count + k - 1) / k;
+        List<PartitionFetcher.Slice<T>> slices;
+        if (random == null) {
+            for (int i = 0; i < k; i++) {
+                ids[i] = candidates[(int) (((long) i * n) / k)];
+            }
+            slices = fetcher.fetch(ids, new long[k], limit);
+        }
+        else {
+            // partial Fisher-Yates shuffle
+            for (int i = 0; i < k; i++) {
+                int j = i + random.nextInt(n - i);
+                int tmp = candidates[i];
+                candidates[i] = candidates[j];
+                candidates[j] = tmp;
+                ids[i] = candidates[i];
+            }
+            Arrays.sort(ids);
+            long[] seeds = new long[k];
+            for (int i = 0; i < k; i++) {
+                seeds[i] = random.nextLong();
+            }
+            slices = fetcher.sample(ids, seeds, limit, SAMPLE_PREFIX);
+        }
+
+        List<T> sample = new ArrayList<T>(count);
+        for (PartitionFetcher.Slice<T> slice : slices) {
+            List<T> rows = slice.getRows();
+            sample.addAll(rows.subList(0, Math.min(rows.size(), count - sample.size())));
+        }
+        return sample;
+    }
+}
@@ -19,6 +19,11 @@ import java.awt.Toolkit;
 
 import java.awt.datatransfer.StringSelection;
 
+import java.awt.event.ActionEvent;
+
+import java.nio.file.Path;
+
+import java.util.ArrayList;
 import java.util.List;
 
 import ca.odell.glazedlists.EventList;
@@ -29,12 +34,16 @@ import org.dishevelled.eventlist.view.ElementsList;
 
 import org.dishevelled.iconbundle.tango.TangoProject;
 
+import org.dishevelled.identify.IdentifiableAction;
+
 /**
  * Explorer list.
  *
  * @author  Michael Heuer
  */
 abstract class ExplorerList<E> extends ElementsList<E> {
+    private final IdentifiableAction exportAction;
+
 
     /**
      * Create a new explorer list.
@@ -44,12 +53,45 @@ abstract class ExplorerList<E> extends ElementsList<E> {
      */
     ExplorerList(final String labelText, final EventList<E> model) {
         super(labelText, model);
+        exportAction = new IdentifiableAction("Export rows", TangoProject.DOCUMENT_SAVE_AS) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    export();
+                }
+            };
+        getToolBar().add(exportAction);
+        getContextMenu().addSeparator();
+        getContextMenu().add(exportAction);
+
         getPasteAction().setEnabled(false);
         getToolBar().displayIcons();
         getToolBar().setIconSize(TangoProject.EXTRA_SMALL);
     }
 
 
+    /**
+     * Export the selected rows, or all rows if none are selected, to a file chosen by the user,
+     * streaming them in the background, see {@link RowExport}.
+     */
+    void export() {
+        Path path = RowExport.chooseFile(this);
+        if (path == null) {
+            return;
+        }
+        // snapshot the rows on the event dispatch thread
+        final List<E> rows = new ArrayList<E>(getSelectionModel().getSelected().isEmpty() ? getModel() : getSelectionModel().getSelected());
+        new RowExport<E>(this, path, null, rows.size(), () -> rows.iterator(), this::transferableString, null).start();
+    }
+
+    /**
+     * Return the export action for this list.
+     *
+     * @return the export action for this list
+     */
+    protected final IdentifiableAction getExportAction() {
+        return exportAction;
+    }
+
     /**
      * Return a transferable string representation of the specified element.
      *
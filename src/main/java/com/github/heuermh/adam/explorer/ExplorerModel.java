@@ -0,0 +1,759 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.awt.Toolkit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import java.util.concurrent.ExecutionException;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.swing.SwingWorker;
+
+import org.apache.avro.Schema;
+
+import org.apache.spark.api.java.JavaRDD;
+
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.functions;
+
+import org.bdgenomics.adam.ds.GenomicDataset;
+
+import org.bdgenomics.adam.models.ReferenceRegion;
+
+/**
+ * Explorer model.
+ *
+ * @param <E> element type
+ * @param <D> dataset type
+ * @author  Michael Heuer
+ */
+abstract class ExplorerModel<E, D extends GenomicDataset<E, ?, ?>> {
+    private final D dataset;
+    private final RowList<E> elements;
+    private final PartitionFetcher<E> fetcher;
+    private final ColumnProjection<E> projection;
+    private final JobGroup jobGroup;
+    private final Set<String> fetches = Collections.synchronizedSet(new HashSet<String>());
+    private volatile int generation;
+    private volatile GenomicDataset<E, ?, ?> view;
+    private volatile ReferenceRegion viewRegion;
+    private volatile DatasetPager<E> datasetPager;
+    private volatile Pager<E> pager;
+    private ReferenceRegion region;
+    private List<ColumnFilter> filters = Collections.emptyList();
+    private String sortColumn;
+    private boolean sortAscending;
+    private long datasetCount = PartitionIndex.UNKNOWN;
+    private boolean sampled;
+    private boolean complete;
+    private final Set<Long> loading = new HashSet<Long>();
+
+    /** Number of rows fetched per page. */
+    static final int PAGE_SIZE = 100;
+
+
+    /**
+     * Create a new explorer model with the specified dataset.
+     *
+     * @param dataset dataset, must not be null
+     */
+    protected ExplorerModel(final D dataset) {
+        this(dataset, null);
+    }
+
+    /**
+     * Create a new explorer model with the specified dataset, fetching only the specified
+     * columns of each row.
+     *
+     * @param dataset dataset, must not be null
+     * @param schema Avro schema of the element type, must not be null
+     * @param columns columns to fetch, must not be null
+     */
+    protected ExplorerModel(final D dataset, final Schema schema, final String... columns) {
+        this(dataset, new ColumnProjection<E>(schema, columns));
+    }
+
+    /**
+     * Create a new explorer model with the specified dataset, fetching only the columns
+     * of each row in the specified column projection.
+     *
+     * @param dataset dataset, must not be null
+     * @param projection column projection, if any
+     */
+    protected ExplorerModel(final D dataset, final ColumnProjection<E> projection) {
+        this.dataset = dataset;
+        this.projection = projection;
+        elements = new RowList<E>((projection == null) ? null : projection.getSchema(), PageCache.getInstance(dataset.jrdd().context().getConf()));
+        fetcher = new PartitionFetcher<E>(rdd(dataset));
+        jobGroup = new JobGroup(dataset.jrdd().context());
+        view = dataset;
+        datasetPager = new DatasetPager<E>(fetcher);
+        pager = datasetPager;
+    }
+
+
+    /**
+     * Replace the elements in this model with the first <code>take</code> rows of the dataset.
+     *
+     * @param take number of rows to take
+     */
+    final void take(final int take) {
+        fetch(0L, take, viewKey(), batches -> page(0L, take, batches), null);
+    }
+
+    /**
+     * Append the next <code>count</code> rows of the dataset to the elements in this model.
+     *
+     * @param count number of rows to append
+     */
+    final void next(final int count) {
+        final long row = elements.getExtent();
+        fetch(row, count, null, batches -> page(row, count, batches), null);
+    }
+
+    /**
+     * Append the next page of rows of the dataset to the elements in this model, if there may
+     * be more rows in the dataset, the elements are not a sample, and the window of the elements
+     * ends at the last row fetched.  Called as the last row is shown.
+     */
+    final void more() {
+        if (!complete && !sampled && elements.getEnd() == elements.getExtent()) {
+            next(PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Load the page of rows containing the element at the specified index, if it is not loaded.
+     * Called as elements that are not loaded are shown.  Rows fetched are counted as page cache misses,
+     * once per fetch rather than each time the element is shown.
+     *
+     * @param index index of an element in this model
+     */
+    final void load(final int index) {
+        if (sampled || elements.isLoaded(index)) {
+            return;
+        }
+        final long first = (elements.rowAt(index) / PAGE_SIZE) * PAGE_SIZE;
+        if (loading.contains(first)) {
+            return;
+        }
+        elements.missed(PAGE_SIZE);
+        fetch(first, PAGE_SIZE, null, batches -> page(first, PAGE_SIZE, batches), null);
+    }
+
+    /**
+     * Make sure the specified row is in the elements in this model, moving the window of the
+     * elements to it, see {@link RowList#setOffset(long)}, and fetching a page of rows around it
+     * if necessary.  If the specified row does not exist, the elements in this model are not changed.
+     *
+     * @param row row, must be at least zero
+     * @param loaded callback to run on the event dispatch thread once the row is in the elements
+     *    in this model, if any
+     */
+    final void goTo(final long row, final Runnable loaded) {
+        if (elements.inWindow(row)) {
+            if (loaded != null) {
+                loaded.run();
+            }
+            return;
+        }
+        boolean known = row < elements.getExtent();
+        if (!known && (sampled || complete)) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        if (row < elements.getOffset() || row - elements.getOffset() >= RowList.MAX_SIZE) {
+            elements.setOffset(Math.max(0L, row - RowList.MAX_SIZE / 2));
+        }
+        if (known) {
+            if (loaded != null) {
+                loaded.run();
+            }
+            return;
+        }
+        final long first = Math.max(elements.getOffset(), row - PAGE_SIZE / 2);
+        fetch(first, PAGE_SIZE, null, batches -> page(first, PAGE_SIZE, batches), loaded);
+    }
+
+    /**
+     * Replace the elements in this model with a sample of up to <code>count</code> rows of
+     * the dataset, taken from partitions spaced evenly across the dataset.
+     *
+     * @param count number of rows to sample
+     */
+    final void sample(final int count) {
+        sample(count, null);
+    }
+
+    /**
+     * Replace the elements in this model with a sample of up to <code>count</code> rows of
+     * the dataset, taken at random with the specified seed from partitions selected at random,
+     * or from the start of partitions spaced evenly across the dataset if the seed is null.
+     *
+     * @param count number of rows to sample
+     * @param seed seed, if any
+     */
+    final void sample(final int count, final Long seed) {
+        final Random random = (seed == null) ? null : new Random(seed.longValue());
+        fetch(0L, -1, new Object(), batches -> datasetPager.sample(count, random), () -> sampled = true);
+    }
+
+    /**
+     * Restrict the rows in this model to those overlapping the specified region, and replace
+     * the elements in this model with the first page of those rows.
+     *
+     * @param region region, or <code>null</code> to remove the restriction
+     */
+    final void setRegion(final ReferenceRegion region) {
+        this.region = region;
+        query();
+    }
+
+    /**
+     * Return the region rows in this model are restricted to, if any.
+     *
+     * @return the region rows in this model are restricted to, if any
+     */
+    final ReferenceRegion getRegion() {
+        return region;
+    }
+
+    /**
+     * Restrict the rows in this model to those matching all of the specified column filters,
+     * and replace the elements in this model with the first page of those rows.
+     *
+     * @param filters column filters, must not be null
+     */
+    final void setFilters(final List<ColumnFilter> filters) {
+        this.filters = new ArrayList<ColumnFilter>(filters);
+        query();
+    }
+
+    /**
+     * Return the column filters rows in this model are restricted to.
+     *
+     * @return the column filters rows in this model are restricted to
+     */
+    final List<ColumnFilter> getFilters() {
+        return Collections.unmodifiableList(filters);
+    }
+
+    /**
+     * Order the rows in this model by the specified column, across the whole dataset view,
+     * and replace the elements in this model with the first page of rows in that order.
+     * Sorting requires a column projection, see {@link #isSortable()}.
+     *
+     * @param column column to sort by, or <code>null</code> to remove the order
+     * @param ascending true to sort in ascending order
+     */
+    final void setSort(final String column, final boolean ascending) {
+        if (column != null && !isSortable()) {
+            throw new IllegalStateException("sorting requires a column projection");
+        }
+        this.sortColumn = column;
+        this.sortAscending = ascending;
+        query();
+    }
+
+    /**
+     * Return the column rows in this model are ordered by, if any.
+     *
+     * @return the column rows in this model are ordered by, if any
+     */
+    final String getSortColumn() {
+        return sortColumn;
+    }
+
+    /**
+     * Return true if rows in this model may be ordered by a column across the whole dataset view.
+     *
+     * @return true if rows in this model may be ordered by a column across the whole dataset view
+     */
+    final boolean isSortable() {
+        return projection != null;
+    }
+
+    /**
+     * Replace the view of the dataset for this model with one restricted to the current
+     * column filters and region and ordered by the current sort column, if any, and replace
+     * the elements in this model with the first page of rows in that view.
+     */
+    private void query() {
+        final ReferenceRegion region = this.region;
+        final List<ColumnFilter> filters = this.filters;
+        final String sortColumn = this.sortColumn;
+        final boolean sortAscending = this.sortAscending;
+        fetch(0L, PAGE_SIZE, viewKey(), batches -> {
+                if (region == null && filters.isEmpty()) {
+                    view = dataset;
+                    datasetPager = new DatasetPager<E>(fetcher);
+                }
+                else {
+                    // column filters first, so that region filters may still use partition pruning
+                    GenomicDataset<E, ?, ?> filtered = ColumnFilter.filter(dataset, filters);
+                    if (region != null) {
+                        filtered = RegionFilter.filter(filtered, region);
+                    }
+                    view = filtered;
+                    datasetPager = new DatasetPager<E>(new PartitionFetcher<E>(rdd(filtered, region, projection)));
+                }
+                viewRegion = region;
+                pager = datasetPager;
+                if (sortColumn != null && projection != null) {
+                    Dataset<Row> rows = projection.select(view);
+                    if (rows != null) {
+                        pager = new SortedPager<E>(rows, projection, sortColumn, sortAscending);
+                    }
+                }
+                return page(0L, PAGE_SIZE, batches);
+            }, null);
+    }
+
+    /**
+     * Return the identity of the current view of the dataset for this model, equal for views
+     * with the same rows in the same order, so that pages of rows fetched for a view are found
+     * again in the page cache when returning to it.
+     */
+    private Object viewKey() {
+        return Arrays.asList(dataset, (projection == null) ? null : Arrays.asList(projection.getColumns()),
+                             filters, region, sortColumn, sortAscending);
+    }
+
+    /**
+     * Fetch the specified range of characters of the specified string column of the first row
+     * of the dataset matching all of the specified column filters, for example a window of bases
+     * of a very long sequence.  Only that range is shipped to the driver.  Blocks until the range
+     * has been fetched; do not call on the event dispatch thread.
+     *
+     * @param key column filters identifying the row, must not be null or empty
+     * @param column string column, must not be null
+     * @param start start index, inclusive, must be at least zero
+     * @param length number of characters to fetch
+     * @return the specified range of characters of the specified string column, or <code>null</code>
+     *    if no row matches the specified column filters
+     * @throws IllegalArgumentException if <code>key</code> is null or empty
+     */
+    final String substring(final List<ColumnFilter> key, final String column, final long start, final int length) {
+        if (key == null || key.isEmpty()) {
+            throw new IllegalArgumentException("key must not be null or empty, at least one column filter is needed to identify the row");
+        }
+        String id = jobGroup.begin("Fetch " + column, JobGroup.Pool.INTERACTIVE);
+        try {
+            Column predicate = key.get(0).toColumn();
+            for (int i = 1; i < key.size(); i++) {
+                predicate = predicate.and(key.get(i).toColumn());
+            }
+            List<Row> rows = dataset.dataset().toDF()
+                .filter(predicate)
+                .select(functions.substring(functions.col(column), (int) start + 1, length))
+                .limit(1)
+                .collectAsList();
+            return rows.isEmpty() ? null : rows.get(0).getString(0);
+        }
+        finally {
+            jobGroup.end(id);
+        }
+    }
+
+    /**
+     * Return an RDD over the specified dataset with the columns fetched by this model.
+     */
+    private JavaRDD<E> rdd(final GenomicDataset<E, ?, ?> dataset) {
+        return rdd(dataset, null, projection);
+    }
+
+    /**
+     * Return an RDD over the specified view of the dataset, restricted to the specified region, if any,
+     * with the columns in the specified projection.  RDDs over the same view have the same partitions.
+     */
+    private JavaRDD<E> rdd(final GenomicDataset<E, ?, ?> view, final ReferenceRegion region, final ColumnProjection<E> projection) {
+        JavaRDD<E> rdd = (projection == null) ? view.jrdd() : projection.rdd(view);
+        return (region == null) ? rdd : RegionFilter.rdd(rdd, view, region);
+    }
+
+    /**
+     * Return a pager over the current view of the dataset for exporting rows in full, with the
+     * same row numbers as the pager for the elements in this model but with none of the columns
+     * truncated, see {@link ColumnProjection#untruncated()}.
+     */
+    private Pager<E> exportPager() {
+        Pager<E> pager = this.pager;
+        if (projection == null || !projection.isTruncated()) {
+            return pager;
+        }
+        ColumnProjection<E> untruncated = projection.untruncated();
+        if (pager instanceof SortedPager) {
+            return ((SortedPager<E>) pager).project(untruncated.select(view), untruncated, sortColumn);
+        }
+        // the partition index is shared, so rows are located without counting partitions again
+        return new DatasetPager<E>(new PartitionFetcher<E>(rdd(view, viewRegion, untruncated), datasetPager.getIndex()));
+    }
+
+    /**
+     * Cancel all Spark jobs for this model, for example when its window is closed.
+     * No further rows are fetched after this model is cancelled, and rows spilled to disk are deleted.
+     */
+    final void cancel() {
+        generation++;
+        jobGroup.close();
+        elements.dispose();
+    }
+
+    /**
+     * Fetch up to <code>count</code> rows starting at the specified row, passing batches of rows
+     * to the specified consumer as they arrive, or <code>null</code> if the specified row does not exist.
+     */
+    private List<E> page(final long row, final int count, final Consumer<List<E>> batches) {
+        Pager<E> pager = this.pager;
+        // page loads may run concurrently, keep seek and next together
+        synchronized (pager) {
+            return pager.seek(row) ? pager.next(count, batches) : null;
+        }
+    }
+
+    /**
+     * Set the row count of the dataset for this model, for example once it has been counted.
+     * If the view of the dataset is not restricted, the elements in this model are extended
+     * to all rows of the dataset, to be loaded as they are shown.
+     *
+     * @param count row count of the dataset
+     */
+    final void setDatasetCount(final long count) {
+        datasetCount = count;
+        updateExtent();
+    }
+
+    /**
+     * Extend the elements in this model to all rows of the view of the dataset, if that row
+     * count is known.  Sorted views are not extended, since loading rows deep in the sorted
+     * order would fetch all of the rows before them; they show only the rows already fetched.
+     */
+    private void updateExtent() {
+        if (sampled || pager != datasetPager) {
+            return;
+        }
+        long total = (region == null && filters.isEmpty()) ? datasetCount : PartitionIndex.UNKNOWN;
+        if (total == PartitionIndex.UNKNOWN) {
+            total = datasetPager.getIndex().total();
+        }
+        if (total != PartitionIndex.UNKNOWN) {
+            elements.setExtent(total);
+            complete = true;
+        }
+    }
+
+    /**
+     * Fetch rows in the background and place them in the elements in this model starting at
+     * the specified row, replacing all of the elements in this model if <code>replace</code> is not null.
+     * Batches of rows passed to the consumer given to <code>rows</code> are published to the event
+     * dispatch thread and placed in the elements in this model as they arrive, rather than all at
+     * once when the fetch completes.  Fewer rows than <code>count</code> mark the end of the view
+     * of the dataset.
+     *
+     * @param row row number of the first fetched row
+     * @param count number of rows to fetch, or less than zero if the fetched rows are not consecutive
+     * @param replace identity of the view of the dataset to replace all of the elements in this model
+     *    with, or <code>null</code> to place the fetched rows in the elements in this model
+     * @param rows fetches rows, passing batches of rows to the specified consumer as they arrive,
+     *    returning all of the fetched rows, or <code>null</code> if there are none to fetch
+     * @param loaded callback to run on the event dispatch thread once the rows have been loaded, if any
+     */
+    private void fetch(final long row,
+                       final int count,
+                       final Object replace,
+                       final Function<Consumer<List<E>>, List<E>> rows,
+                       final Runnable loaded) {
+
+        // a fetch that replaces the elements in this model supersedes those in flight
+        if (replace != null) {
+            generation++;
+            loading.clear();
+            synchronized (fetches) {
+                for (String id : fetches) {
+                    jobGroup.cancel(id);
+                }
+            }
+        }
+        else if (!loading.add(row)) {
+            return;
+        }
+        final int initialGeneration = generation;
+        new SwingWorker<List<E>, List<E>>() {
+            /** Generation of this fetch, advanced when it replaces the elements in this model. */
+            private int fetchGeneration = initialGeneration;
+
+            /** True once the elements in this model have been cleared for a replacing fetch. */
+            private boolean cleared;
+
+            /** Number of fetched rows added to the elements in this model so far. */
+            private int applied;
+
+            /** True once the fetch has completed; batches delivered late are already applied. */
+            private boolean finished;
+
+            @Override
+            public List<E> doInBackground() {
+                if (fetchGeneration != generation) {
+                    return null;
+                }
+                String id = jobGroup.begin("Fetch rows", JobGroup.Pool.INTERACTIVE);
+                fetches.add(id);
+                try {
+                    return rows.apply(batches -> publish(batches));
+                }
+                finally {
+                    fetches.remove(id);
+                    jobGroup.end(id);
+                }
+            }
+
+            @Override
+            public void done() {
+                if (fetchGeneration != generation) {
+                    return;
+                }
+                finished = true;
+                if (replace == null) {
+                    loading.remove(row);
+                }
+                try {
+                    List<E> result = get();
+                    if (result == null) {
+                        if (row < elements.getExtent() && replace == null) {
+                            // the view of the dataset ends before the rows in this model
+                            elements.setExtent(row);
+                            complete = true;
+                        }
+                        else {
+                            Toolkit.getDefaultToolkit().beep();
+                        }
+                        return;
+                    }
+
+                    add(result.subList(Math.min(applied, result.size()), result.size()));
+                    if (loaded != null) {
+                        loaded.run();
+                    }
+                    if (count >= 0 && result.size() < count) {
+                        elements.setExtent(row + result.size());
+                        complete = true;
+                    }
+                    else {
+                        updateExtent();
+                    }
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    // ignore
+                }
+            }
+
+            @Override
+            protected void process(final List<List<E>> chunks) {
+                // process may run after done, once all of the rows have been added
+                if (fetchGeneration != generation || finished) {
+                    return;
+                }
+                for (List<E> batch : chunks) {
+                    add(batch);
+                }
+            }
+
+            /**
+             * Place the specified rows in the elements in this model, holding the write lock only
+             * for the batch, and clearing the elements first for a replacing fetch.
+             */
+            private void add(final List<E> batch) {
+                elements.getReadWriteLock().writeLock().lock();
+                try {
+                    if (replace != null && !cleared) {
+                        elements.clear();
+                        elements.setView(replace);
+                        loading.clear();
+                        sampled = false;
+                        complete = false;
+                        cleared = true;
+
+                        // fetches placing rows in the elements being replaced are now stale
+                        generation++;
+                        fetchGeneration = generation;
+                    }
+                    elements.put(row + applied, batch);
+                    applied += batch.size();
+                }
+                finally {
+                    elements.getReadWriteLock().writeLock().unlock();
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Return true if there may be more rows in the dataset after those already fetched.
+     *
+     * @return true if there may be more rows in the dataset after those already fetched
+     */
+    final boolean hasNext() {
+        return pager.hasNext();
+    }
+
+    /**
+     * Return true if the elements in this model are a sample of rows rather than a window
+     * of the view of the dataset.
+     *
+     * @return true if the elements in this model are a sample of rows
+     */
+    final boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * Return the number of rows in the view of the dataset for this model, if known.
+     *
+     * @return the number of rows in the view of the dataset for this model, or
+     *    <code>PartitionIndex.UNKNOWN</code> if not known
+     */
+    final long getRowCount() {
+        return (complete && !sampled) ? elements.getExtent() : PartitionIndex.UNKNOWN;
+    }
+
+    /**
+     * Return an iterator over all rows of the view of the dataset for this model in order, with
+     * none of their columns truncated, fetched a partition at a time as the iterator advances,
+     * for example to export them.  The iterator blocks until Spark job(s) complete; do not advance
+     * it on the event dispatch thread.
+     *
+     * @return an iterator over all rows of the view of the dataset for this model in order
+     */
+    final Iterator<E> iterator() {
+        return exportPager().iterator();
+    }
+
+    /**
+     * Return true if the rows in the elements in this model have string columns truncated,
+     * e.g. to preview long sequences, see {@link ColumnProjection#truncate(String, int)}.
+     *
+     * @return true if the rows in the elements in this model have string columns truncated
+     */
+    final boolean isTruncated() {
+        return projection != null && projection.isTruncated();
+    }
+
+    /**
+     * Return an iterator over the rows of the view of the dataset for this model with the specified
+     * row numbers, with none of their columns truncated, fetched a run of consecutive rows at a time
+     * as the iterator advances.  The iterator blocks until Spark job(s) complete; do not advance it
+     * on the event dispatch thread.
+     *
+     * @param rows row numbers, in ascending order, must not be null
+     * @return an iterator over the rows of the view of the dataset for this model with the specified row numbers
+     */
+    final Iterator<E> iterator(final long[] rows) {
+        final Pager<E> pager = exportPager();
+        return new Iterator<E>() {
+            private int next = 0;
+            private Iterator<E> run = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!run.hasNext() && next < rows.length) {
+                    int count = 1;
+                    while (next + count < rows.length && count < PAGE_SIZE && rows[next + count] == rows[next] + count) {
+                        count++;
+                    }
+                    List<E> page;
+                    synchronized (pager) {
+                        page = pager.seek(rows[next]) ? pager.next(count) : null;
+                    }
+                    next += count;
+                    if (page != null) {
+                        run = page.iterator();
+                    }
+                }
+                return run.hasNext();
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return run.next();
+            }
+        };
+    }
+
+    /**
+     * Return the dataset for this model.
+     *
+     * @return the dataset for this model
+     */
+    D getDataset() {
+        return dataset;
+    }
+
+    /**
+     * Return the view of the dataset for this model, restricted to the current column filters
+     * and region, if any.
+     *
+     * @return the view of the dataset for this model
+     */
+    @SuppressWarnings("unchecked")
+    final D getView() {
+        // column and region filters preserve the dataset type
+        return (D) view;
+    }
+
+    /**
+     * Return the partition fetcher over the whole dataset for this model.
+     *
+     * @return the partition fetcher over the whole dataset for this model
+     */
+    final PartitionFetcher<E> getFetcher() {
+        return fetcher;
+    }
+
+    /**
+     * Return the Spark job group for this model.
+     *
+     * @return the Spark job group for this model
+     */
+    final JobGroup getJobGroup() {
+        return jobGroup;
+    }
+
+    /**
+     * Return the elements for this model.
+     *
+     * @return the elements for this model
+     */
+    final RowList<E> getElements() {
+        return elements;
+    }
+}
@@ -19,22 +19,73 @@ import java.awt.Toolkit;
 
 import java.awt.datatransfer.StringSelection;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+import java.awt.BorderLayout;
+
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
+import java.util.function.Supplier;
+
+import javax.swing.AbstractAction;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+
 import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.SortedList;
 
+import ca.odell.glazedlists.gui.AbstractTableComparatorChooser;
 import ca.odell.glazedlists.gui.TableFormat;
 
-import org.dishevelled.eventlist.view.ElementsTable;
+import ca.odell.glazedlists.swing.GlazedListsSwing;
+import ca.odell.glazedlists.swing.TableComparatorChooser;
+
+import org.dishevelled.eventlist.view.AbstractEventListView;
 
 import org.dishevelled.iconbundle.tango.TangoProject;
 
+import org.dishevelled.identify.ContextMenuListener;
+import org.dishevelled.identify.IdentifiableAction;
+import org.dishevelled.identify.StripeTableCellRenderer;
+
 /**
  * Explorer table.
  *
+ * <p>
+ * Tables backed by an explorer model are virtual, showing all rows known to exist in the view
+ * of the dataset while fetching and decoding only those near the viewport, see {@link RowList}.
+ * They are not sortable by clicking on column headers, which would decode every row; sort the
+ * view of the dataset on the cluster instead, see {@link SortBar}.  Their remove all action is
+ * disabled, since it would leave the view of the dataset empty until the next query.  Other tables
+ * are sortable.
+ * </p>
+ *
  * @author  Michael Heuer
  */
-abstract class ExplorerTable<E> extends ElementsTable<E> {
+abstract class ExplorerTable<E> extends AbstractEventListView<E> {
+    private final JTable table;
+    private final ExplorerModel<E, ?> explorerModel;
+    private final JTextField rowField;
+    private final IdentifiableAction goToRowAction;
+    private final JTextField seedField;
+    private final IdentifiableAction sampleAction;
+    private final IdentifiableAction exportAction;
+
+    /** Maximum number of selected rows of a virtual table copied to the clipboard. */
+    static final int MAX_COPY_ROWS = 10000;
+
 
     /**
      * Create a new explorer table.
@@ -44,13 +95,300 @@ abstract class ExplorerTable<E> extends ElementsTable<E> {
      * @param tableFormat table format, must not be null
      */
     ExplorerTable(final String labelText, final EventList<E> model, final TableFormat<E> tableFormat) {
-        super(labelText, model, tableFormat);
+        this(labelText, model, null, tableFormat);
+    }
+
+    /**
+     * Create a new explorer table backed by the specified explorer model.
+     *
+     * @param labelText label text
+     * @param explorerModel explorer model, must not be null
+     * @param tableFormat table format, must not be null
+     */
+    ExplorerTable(final String labelText, final ExplorerModel<E, ?> explorerModel, final TableFormat<E> tableFormat) {
+        this(labelText, explorerModel.getElements(), explorerModel, tableFormat);
+    }
+
+    private ExplorerTable(final String labelText, final EventList<E> model, final ExplorerModel<E, ?> explorerModel, final TableFormat<E> tableFormat) {
+        super((explorerModel == null) ? new SortedList<E>(model, null) : model);
+        if (tableFormat == null) {
+            throw new IllegalArgumentException("tableFormat must not be null");
+        }
+        this.explorerModel = explorerModel;
+
+        if (explorerModel == null) {
+            table = new JTable(GlazedListsSwing.eventTableModelWithThreadProxyList(getModel(), tableFormat));
+            TableComparatorChooser.install(table, (SortedList<E>) getModel(), AbstractTableComparatorChooser.MULTIPLE_COLUMN_MOUSE);
+        }
+        else {
+            table = new JTable(new RowTableModel<E>(explorerModel, tableFormat));
+            table.addMouseListener(new MouseAdapter() {
+                    @Override
+                    public void mouseClicked(final MouseEvent event) {
+                        int index = table.rowAtPoint(event.getPoint());
+                        if (event.getClickCount() == 2 && SwingUtilities.isLeftMouseButton(event) && index >= 0) {
+                            E element = getModel().get(index);
+                            if (element != null) {
+                                open(element);
+                            }
+                        }
+                    }
+                });
+        }
+        StripeTableCellRenderer.install(table);
+        table.setSelectionModel(getListSelectionModelAdapter());
+        table.addMouseListener(new ContextMenuListener(getContextMenu()));
+        getLabel().setText(labelText);
+
+        rowField = new JTextField(8);
+        goToRowAction = new IdentifiableAction("Go to row", TangoProject.GO_JUMP) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    goToRow();
+                }
+            };
+
+        seedField = new JTextField(6);
+        seedField.setToolTipText("Seed for a random sample; leave empty to sample evenly across partitions");
+        sampleAction = new IdentifiableAction("Sample rows", TangoProject.VIEW_REFRESH) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    sample();
+                }
+            };
+
+        exportAction = new IdentifiableAction("Export rows", TangoProject.DOCUMENT_SAVE_AS) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    export();
+                }
+            };
+        getToolBar().add(exportAction);
+        getContextMenu().addSeparator();
+        getContextMenu().add(exportAction);
 
         getPasteAction().setEnabled(false);
         getToolBar().displayIcons();
         getToolBar().setIconSize(TangoProject.EXTRA_SMALL);
+
+        if (explorerModel != null) {
+            // removing all rows would leave the view of the dataset empty until the next query;
+            // the event list view enables the action again whenever the rows change
+            final AbstractAction removeAllAction = getRemoveAllAction();
+            removeAllAction.setEnabled(false);
+            removeAllAction.addPropertyChangeListener(event -> {
+                    if ("enabled".equals(event.getPropertyName()) && Boolean.TRUE.equals(event.getNewValue())) {
+                        removeAllAction.setEnabled(false);
+                    }
+                });
+
+            rowField.setAction(goToRowAction);
+            getToolBar().addSeparator();
+            getToolBar().add(new JLabel("Row:"));
+            getToolBar().add(rowField);
+            getToolBar().add(goToRowAction);
+            seedField.setAction(sampleAction);
+            getToolBar().addSeparator();
+            getToolBar().add(new JLabel("Seed:"));
+            getToolBar().add(seedField);
+            getToolBar().add(sampleAction);
+        }
+
+        setLayout(new BorderLayout());
+        add("North", createToolBarPanel());
+        add("Center", createTablePanel());
+    }
+
+
+    private JPanel createTablePanel() {
+        JPanel panel = new JPanel();
+        panel.setOpaque(false);
+        panel.setLayout(new BorderLayout());
+        panel.add("Center", new JScrollPane(table));
+        return panel;
+    }
+
+
+    /**
+     * Replace the rows in this table with a window of rows around the row number
+     * (starting from one) in the row field.
+     */
+    void goToRow() {
+        final long row;
+        try {
+            row = Long.parseLong(rowField.getText().trim().replace(",", "")) - 1L;
+        }
+        catch (NumberFormatException e) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        if (row < 0L) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        explorerModel.goTo(row, new Runnable() {
+                @Override
+                public void run() {
+                    SwingUtilities.invokeLater(new Runnable() {
+                            @Override
+                            public void run() {
+                                selectRow(row);
+                            }
+                        });
+                }
+            });
+    }
+
+    /**
+     * Replace the rows in this table with a sample of rows spread across partitions, selected
+     * at random if the seed field is not empty.
+     */
+    void sample() {
+        String seed = seedField.getText().trim();
+        if (seed.isEmpty()) {
+            explorerModel.sample(ExplorerModel.PAGE_SIZE);
+            return;
+        }
+        try {
+            explorerModel.sample(ExplorerModel.PAGE_SIZE, Long.valueOf(seed));
+        }
+        catch (NumberFormatException e) {
+            Toolkit.getDefaultToolkit().beep();
+        }
+    }
+
+    /**
+     * Export the selected rows, or all rows in the view of the dataset, to a file chosen by the user,
+     * streaming them in the background, see {@link RowExport}.
+     */
+    void export() {
+        Path path = RowExport.chooseFile(this);
+        if (path == null) {
+            return;
+        }
+        boolean selected = false;
+        if (!getSelectionModel().getSelected().isEmpty()) {
+            Object[] options = { "Selected rows", "All rows" };
+            int option = JOptionPane.showOptionDialog(this, "Export selected rows or all rows?", "Export rows",
+                                                      JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+            if (option == JOptionPane.CLOSED_OPTION) {
+                return;
+            }
+            selected = (option == 0);
+        }
+        List<String> header = new ArrayList<String>(table.getModel().getColumnCount());
+        for (int i = 0; i < table.getModel().getColumnCount(); i++) {
+            header.add(table.getModel().getColumnName(i));
+        }
+
+        long total;
+        Supplier<Iterator<E>> rows;
+        if (explorerModel != null && selected && explorerModel.isSampled() && explorerModel.isTruncated()) {
+            JOptionPane.showMessageDialog(this, "Rows in a sample are previews, export all rows instead", "Export rows", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (explorerModel == null || (selected && explorerModel.isSampled())) {
+            // rows are already in memory, snapshot them on the event dispatch thread
+            final List<E> snapshot = new ArrayList<E>(selected ? table.getSelectedRowCount() : getModel().size());
+            if (!selected) {
+                snapshot.addAll(getModel());
+            }
+            else if (explorerModel == null) {
+                snapshot.addAll(getSelectionModel().getSelected());
+            }
+            else {
+                for (int index : table.getSelectedRows()) {
+                    snapshot.add(explorerModel.getElements().getRecord(index));
+                }
+            }
+            total = snapshot.size();
+            rows = () -> snapshot.iterator();
+        }
+        else if (selected) {
+            // fetch the selected rows from the view of the dataset in runs of consecutive rows
+            int[] indices = table.getSelectedRows();
+            final long[] selectedRows = new long[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                selectedRows[i] = explorerModel.getElements().rowAt(indices[i]);
+            }
+            Arrays.sort(selectedRows);
+            total = selectedRows.length;
+            rows = () -> explorerModel.iterator(selectedRows);
+        }
+        else {
+            total = explorerModel.getRowCount();
+            rows = () -> explorerModel.iterator();
+        }
+        new RowExport<E>(this, path, header, total, rows, this::exportString,
+                         (explorerModel == null) ? null : explorerModel.getJobGroup()).start();
+    }
+
+    private void selectRow(final long row) {
+        int index = explorerModel.getElements().indexOfRow(row);
+        if (index < 0 || index >= explorerModel.getElements().size()) {
+            return;
+        }
+        table.getSelectionModel().setSelectionInterval(index, index);
+        table.scrollRectToVisible(table.getCellRect(index, 0, true));
+    }
+
+    /**
+     * Return the table for this explorer table.
+     *
+     * @return the table for this explorer table
+     */
+    protected final JTable getTable() {
+        return table;
+    }
+
+    /**
+     * Return the explorer model backing this table, if any.
+     *
+     * @return the explorer model backing this table, if any
+     */
+    protected final ExplorerModel<E, ?> getExplorerModel() {
+        return explorerModel;
+    }
+
+    /**
+     * Show the packed nucleotide sequence of each row in the specified column, decoded only for
+     * visible cells, see {@link RowList#getSequence(int)}.  Has no effect on tables not backed by
+     * an explorer model.
+     *
+     * @param column sequence column
+     */
+    protected final void setSequenceColumn(final int column) {
+        if (explorerModel != null) {
+            ((RowTableModel<?>) table.getModel()).setSequenceColumn(column);
+        }
     }
 
+    /**
+     * Return the go to row action for this table.
+     *
+     * @return the go to row action for this table
+     */
+    protected final IdentifiableAction getGoToRowAction() {
+        return goToRowAction;
+    }
+
+    /**
+     * Return the sample action for this table.
+     *
+     * @return the sample action for this table
+     */
+    protected final IdentifiableAction getSampleAction() {
+        return sampleAction;
+    }
+
+    /**
+     * Return the export action for this table.
+     *
+     * @return the export action for this table
+     */
+    protected final IdentifiableAction getExportAction() {
+        return exportAction;
+    }
 
     /**
      * Return a transferable string representation of the specified element.
@@ -59,21 +397,82 @@ abstract class ExplorerTable<E> extends ElementsTable<E> {
      * @return a transferable string representation of the specified element
      */
     protected abstract String transferableString(E element);
-    
+
+    /**
+     * Return a string representation of the specified element for exporting, by default its
+     * transferable string.  Override to export columns that are only previewed when copied.
+     *
+     * @param element element, with none of its columns truncated
+     * @return a string representation of the specified element for exporting
+     */
+    protected String exportString(final E element) {
+        return transferableString(element);
+    }
+
+    /**
+     * Open the specified element, for example in a detail view, on a double-click on its row.
+     * Only called for tables backed by an explorer model.
+     *
+     * @param element element to open
+     */
+    protected void open(final E element) {
+        // empty
+    }
+
+    @Override
+    public void add() {
+        // empty
+    }
+
+    @Override
+    public void paste() {
+        // empty
+    }
+
     @Override
     protected final void cut(final List<E> toCut) {
-        copy(toCut);
-        getModel().removeAll(toCut);
+        if (copyRows(toCut)) {
+            remove();
+        }
     }
 
     @Override
     protected final void copy(final List<E> toCopy) {
-        StringBuilder sb = new StringBuilder(toCopy.size() * 1024);
-        for (E e : toCopy) {
-            sb.append(transferableString(e));
-            sb.append("\n");
+        copyRows(toCopy);
+    }
+
+    /**
+     * Copy the specified rows to the clipboard, or offer to export them instead if there are more
+     * than {@link #MAX_COPY_ROWS} in a virtual table, since they are copied on the event dispatch thread.
+     *
+     * @return true if the rows were copied
+     */
+    private boolean copyRows(final List<E> toCopy) {
+        if (explorerModel != null && table.getSelectedRowCount() > MAX_COPY_ROWS) {
+            String message = String.format("Copying is limited to %,d rows, export the %,d selected rows instead?", MAX_COPY_ROWS, table.getSelectedRowCount());
+            if (JOptionPane.showConfirmDialog(this, message, "Copy rows", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+                export();
+            }
+            return false;
+        }
+        List<E> rows = toCopy;
+        if (explorerModel != null) {
+            // elements of virtual tables leave their sequence out, copy the selected rows in full
+            rows = new ArrayList<E>(toCopy.size());
+            for (int index : table.getSelectedRows()) {
+                rows.add(explorerModel.getElements().getRecord(index));
+            }
+        }
+        StringBuilder sb = new StringBuilder(rows.size() * 1024);
+        for (E e : rows) {
+            // rows in virtual tables may not be loaded
+            if (e != null) {
+                sb.append(transferableString(e));
+                sb.append("\n");
+            }
         }
         StringSelection selection = new StringSelection(sb.toString());
         Toolkit.getDefaultToolkit().getSystemClipboard().setContents(selection, selection);
+        return true;
     }
 }
@@ -0,0 +1,216 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import static org.apache.spark.sql.functions.array;
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.explode;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.row_number;
+import static org.apache.spark.sql.functions.struct;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Row;
+
+import org.apache.spark.sql.expressions.Window;
+
+import org.bdgenomics.adam.ds.GenomicDataset;
+
+/**
+ * Facet counts.
+ *
+ * <p>
+ * The number of rows of a dataset with each distinct value of a few facet columns, e.g.
+ * <code>referenceName</code> or <code>sampleId</code>, computed for all of the facet columns
+ * at once in one Spark job: each row is exploded into one (facet, value) pair per facet column,
+ * and the pairs are counted with a single group by, so the dataset is scanned once and only the
+ * counts are shipped to the driver.  Only the {@link #MAX_VALUES} most frequent values of each
+ * facet are kept.  Facet counts are cached per dataset and facet columns, see {@link #get}.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class FacetCounts {
+    private final List<String> columns;
+    private final List<List<Value>> values;
+    private final boolean[] truncated;
+
+    /** Maximum number of values kept per facet, the most frequent. */
+    static final int MAX_VALUES = 100;
+
+    /** Facet counts computed, by dataset and then facet columns. */
+    private static final Map<GenomicDataset<?, ?, ?>, Map<List<String>, FacetCounts>> CACHE = new WeakHashMap<GenomicDataset<?, ?, ?>, Map<List<String>, FacetCounts>>();
+
+
+    /**
+     * Create new facet counts.
+     *
+     * @param columns facet columns
+     * @param values values of each facet, most frequent first
+     * @param truncated true for facets with more values than are kept
+     */
+    private FacetCounts(final List<String> columns, final List<List<Value>> values, final boolean[] truncated) {
+        this.columns = columns;
+        this.values = values;
+        this.truncated = truncated;
+    }
+
+
+    /**
+     * Return the facet columns.
+     *
+     * @return the facet columns
+     */
+    List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Return the values of the specified facet, most frequent first.
+     *
+     * @param facet facet index
+     * @return the values of the specified facet, most frequent first
+     */
+    List<Value> getValues(final int facet) {
+        return values.get(facet);
+    }
+
+    /**
+     * Return true if the specified facet has more values than are kept.
+     *
+     * @param facet facet index
+     * @return true if the specified facet has more values than are kept
+     */
+    boolean isTruncated(final int facet) {
+        return truncated[facet];
+    }
+
+    /**
+     * Return the facet counts for the specified dataset and facet columns, if already computed.
+     *
+     * @param dataset dataset, must not be null
+     * @param columns facet columns, must not be null
+     * @return the facet counts for the specified dataset and facet columns, or <code>null</code>
+     *    if not yet computed
+     */
+    static FacetCounts get(final GenomicDataset<?, ?, ?> dataset, final List<String> columns) {
+        synchronized (CACHE) {
+            Map<List<String>, FacetCounts> byColumns = CACHE.get(dataset);
+            return (byColumns == null) ? null : byColumns.get(columns);
+        }
+    }
+
+    /**
+     * Compute the facet counts for the specified dataset and facet columns, and cache them.
+     * Blocks until the Spark job completes; do not call on the event dispatch thread.
+     *
+     * @param dataset dataset, must not be null
+     * @param columns facet columns, each with a type that may be cast to string, must not be null or empty
+     * @return the facet counts for the specified dataset and facet columns
+     */
+    static FacetCounts compute(final GenomicDataset<?, ?, ?> dataset, final List<String> columns) {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("columns must not be empty");
+        }
+        Column[] pairs = new Column[columns.size()];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = struct(lit(i).as("facet"), col(columns.get(i)).cast("string").as("value"));
+        }
+        List<Row> rows = dataset.dataset().toDF()
+            .select(explode(array(pairs)).as("pair"))
+            .groupBy(col("pair.facet").as("facet"), col("pair.value").as("value"))
+            .count()
+            .withColumn("rank", row_number().over(Window.partitionBy("facet").orderBy(col("count").desc(), col("value"))))
+            .filter(col("rank").leq(MAX_VALUES + 1))
+            .collectAsList();
+
+        List<List<Value>> values = new ArrayList<List<Value>>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            values.add(new ArrayList<Value>());
+        }
+        for (Row row : rows) {
+            values.get(row.getInt(0)).add(new Value(row.isNullAt(1) ? null : row.getString(1), row.getLong(2)));
+        }
+        boolean[] truncated = new boolean[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            List<Value> v = values.get(i);
+            v.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+            if (v.size() > MAX_VALUES) {
+                truncated[i] = true;
+                values.set(i, new ArrayList<Value>(v.subList(0, MAX_VALUES)));
+            }
+        }
+
+        List<String> key = Collections.unmodifiableList(new ArrayList<String>(columns));
+        FacetCounts facetCounts = new FacetCounts(key, values, truncated);
+        synchronized (CACHE) {
+            CACHE.computeIfAbsent(dataset, d -> new HashMap<List<String>, FacetCounts>()).put(key, facetCounts);
+        }
+        return facetCounts;
+    }
+
+
+    /**
+     * Facet value and its count.
+     */
+    static final class Value {
+        private final String value;
+        private final long count;
+
+
+        /**
+         * Create a new facet value.
+         *
+         * @param value value, cast to string, or <code>null</code> for rows without a value
+         * @param count number of rows with this value
+         */
+        Value(final String value, final long count) {
+            this.value = value;
+            this.count = count;
+        }
+
+
+        /**
+         * Return this value cast to string, or <code>null</code> for rows without a value.
+         *
+         * @return this value cast to string, or <code>null</code> for rows without a value
+         */
+        String getValue() {
+            return value;
+        }
+
+        /**
+         * Return the number of rows with this value.
+         *
+         * @return the number of rows with this value
+         */
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%,d)", (value == null) ? "none" : value, count);
+        }
+    }
+}
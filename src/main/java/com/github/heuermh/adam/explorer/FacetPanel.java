@@ -0,0 +1,299 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.awt.Component;
+import java.awt.FlowLayout;
+import java.awt.Font;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.BoxLayout;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import javax.swing.border.EmptyBorder;
+
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.StructType;
+
+import org.bdgenomics.adam.ds.GenomicDataset;
+
+import org.dishevelled.iconbundle.tango.TangoProject;
+
+import org.dishevelled.identify.IdButton;
+import org.dishevelled.identify.IdentifiableAction;
+
+/**
+ * Facet panel.
+ *
+ * <p>
+ * Shows the number of rows in the dataset of an explorer model with each value of a few facet
+ * columns, e.g. <code>referenceName</code> or <code>sampleId</code>, see {@link FacetCounts}.  Facet
+ * counts are computed in the background for the whole dataset, ignoring the column filters and
+ * region of the model, so that they stay put while filtering, and are cached per dataset so that
+ * opening another view of the same dataset does not run Spark jobs again.  Clicking a facet value
+ * restricts the rows in the model to that value with a column filter, replacing any other value of
+ * the same facet, and clicking it again removes the filter.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+class FacetPanel extends JPanel {
+    private final ExplorerModel<?, ?> model;
+    private final GenomicDataset<?, ?, ?> dataset;
+    private final List<String> columns;
+    private final List<String> labels;
+    private final List<DataType> types;
+    private final Runnable filtersChanged;
+    private final JPanel facets;
+    private final JLabel label;
+    private final IdentifiableAction computeAction;
+    private final IdentifiableAction cancelAction;
+    private SwingWorker<FacetCounts, Void> worker;
+    private volatile String task;
+
+
+    /**
+     * Create a new facet panel for the specified model.  Only facet columns with string, numeric,
+     * or boolean types in the Spark SQL schema of the dataset are counted.
+     *
+     * @param model model, must not be null
+     * @param propertyNames facet property names, must not be null
+     * @param facetLabels facet labels, must not be null
+     * @param filtersChanged called after the filters for the model are changed by this panel, must not be null
+     */
+    FacetPanel(final ExplorerModel<?, ?> model, final String[] propertyNames, final String[] facetLabels, final Runnable filtersChanged) {
+        super();
+        setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+        setOpaque(false);
+        setBorder(new EmptyBorder(0, 0, 0, 12));
+        this.model = model;
+        this.dataset = model.getDataset();
+        this.filtersChanged = filtersChanged;
+
+        columns = new ArrayList<String>();
+        labels = new ArrayList<String>();
+        types = new ArrayList<DataType>();
+        StructType schema = dataset.dataset().schema();
+        for (int i = 0; i < propertyNames.length; i++) {
+            DataType type = ColumnProjection.resolve(schema, propertyNames[i]);
+            if (ColumnProjection.isScalar(type)) {
+                columns.add(propertyNames[i]);
+                labels.add(facetLabels[i]);
+                types.add(type);
+            }
+        }
+
+        facets = new JPanel();
+        facets.setLayout(new BoxLayout(facets, BoxLayout.Y_AXIS));
+        facets.setOpaque(false);
+        facets.setAlignmentX(Component.LEFT_ALIGNMENT);
+        label = new JLabel("");
+
+        computeAction = new IdentifiableAction("Count facets", TangoProject.VIEW_REFRESH) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    compute();
+                }
+            };
+        cancelAction = new IdentifiableAction("Cancel facets", TangoProject.PROCESS_STOP) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    cancel();
+                }
+            };
+        cancelAction.setEnabled(false);
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        controls.setOpaque(false);
+        controls.setAlignmentX(Component.LEFT_ALIGNMENT);
+        controls.add(createButton(computeAction));
+        controls.add(createButton(cancelAction));
+        controls.add(label);
+
+        add(controls);
+        add(facets);
+
+        if (columns.isEmpty()) {
+            computeAction.setEnabled(false);
+            return;
+        }
+        FacetCounts cached = FacetCounts.get(dataset, columns);
+        if (cached != null) {
+            show(cached);
+        }
+        else {
+            compute();
+        }
+    }
+
+
+    private static IdButton createButton(final IdentifiableAction action) {
+        IdButton button = new IdButton(action, TangoProject.EXTRA_SMALL);
+        button.displayIcon();
+        button.setBorderPainted(false);
+        button.setToolTipText(action.getName());
+        return button;
+    }
+
+    /**
+     * Count facet values for the dataset of the model in the background, replacing any cached counts.
+     */
+    void compute() {
+        final JobGroup jobGroup = model.getJobGroup();
+        label.setText("Counting\u2026");
+        computeAction.setEnabled(false);
+        cancelAction.setEnabled(true);
+        worker = new SwingWorker<FacetCounts, Void>() {
+            @Override
+            public FacetCounts doInBackground() {
+                task = jobGroup.begin("Count facets", JobGroup.Pool.BULK);
+                try {
+                    return FacetCounts.compute(dataset, columns);
+                }
+                finally {
+                    jobGroup.end(task);
+                }
+            }
+
+            @Override
+            public void done() {
+                computeAction.setEnabled(true);
+                cancelAction.setEnabled(false);
+                if (isCancelled()) {
+                    label.setText("Cancelled");
+                    return;
+                }
+                try {
+                    show(get());
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    label.setText("Could not count facets");
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    /**
+     * Cancel counting facet values, if running.
+     */
+    void cancel() {
+        if (worker != null) {
+            worker.cancel(false);
+            String id = task;
+            if (id != null) {
+                model.getJobGroup().cancel(id);
+            }
+        }
+    }
+
+    private void show(final FacetCounts facetCounts) {
+        label.setText("");
+        facets.removeAll();
+        for (int i = 0; i < columns.size(); i++) {
+            JLabel title = new JLabel(facetCounts.isTruncated(i) ? labels.get(i) + " (top " + FacetCounts.MAX_VALUES + ")" : labels.get(i));
+            title.setFont(title.getFont().deriveFont(Font.BOLD));
+            title.setBorder(new EmptyBorder(8, 0, 2, 0));
+            title.setAlignmentX(Component.LEFT_ALIGNMENT);
+            facets.add(title);
+            facets.add(createList(i, facetCounts.getValues(i)));
+        }
+        revalidate();
+        repaint();
+    }
+
+    private JList<FacetCounts.Value> createList(final int facet, final List<FacetCounts.Value> values) {
+        final JList<FacetCounts.Value> list = new JList<FacetCounts.Value>(values.toArray(new FacetCounts.Value[0]));
+        list.setOpaque(false);
+        list.setAlignmentX(Component.LEFT_ALIGNMENT);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setToolTipText("Click a value to filter by it, click it again to remove the filter");
+        list.setCellRenderer(new DefaultListCellRenderer() {
+                @Override
+                public Component getListCellRendererComponent(final JList<?> l, final Object value, final int index, final boolean selected, final boolean focused) {
+                    FacetCounts.Value v = (FacetCounts.Value) value;
+                    boolean active = model.getFilters().contains(toFilter(facet, v));
+                    super.getListCellRendererComponent(l, value, index, active, false);
+                    setOpaque(active);
+                    setEnabled(v.getValue() != null);
+                    return this;
+                }
+            });
+        list.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(final MouseEvent event) {
+                    int index = list.locationToIndex(event.getPoint());
+                    if (index >= 0 && SwingUtilities.isLeftMouseButton(event) && list.getCellBounds(index, index).contains(event.getPoint())) {
+                        toggle(facet, values.get(index), values);
+                    }
+                    list.clearSelection();
+                    repaint();
+                }
+            });
+        return list;
+    }
+
+    /**
+     * Return a column filter restricting rows to the specified facet value, or <code>null</code>
+     * if it cannot be filtered on.
+     */
+    private ColumnFilter toFilter(final int facet, final FacetCounts.Value value) {
+        if (value.getValue() == null) {
+            return null;
+        }
+        try {
+            return new ColumnFilter(columns.get(facet), ColumnFilter.Operator.EQUAL, FilterBar.parse(value.getValue(), types.get(facet)));
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Restrict the rows in the model to the specified facet value, replacing any other value
+     * of the same facet, or remove the filter if already restricted to it.
+     */
+    private void toggle(final int facet, final FacetCounts.Value value, final List<FacetCounts.Value> values) {
+        ColumnFilter filter = toFilter(facet, value);
+        if (filter == null) {
+            return;
+        }
+        List<ColumnFilter> filters = new ArrayList<ColumnFilter>(model.getFilters());
+        boolean active = filters.contains(filter);
+        for (FacetCounts.Value v : values) {
+            filters.remove(toFilter(facet, v));
+        }
+        if (!active) {
+            filters.add(filter);
+        }
+        model.setFilters(filters);
+        filtersChanged.run();
+    }
+}
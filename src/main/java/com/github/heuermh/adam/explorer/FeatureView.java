@@ -15,15 +15,16 @@
  */
 package com.github.heuermh.adam.explorer;
 
-import java.util.ArrayList;
-import java.util.List;
+import static org.apache.spark.sql.functions.coalesce;
+import static org.apache.spark.sql.functions.col;
 
-import java.util.concurrent.ExecutionException;
+import java.util.List;
 
 import java.util.stream.Collectors;
 
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
-import javax.swing.SwingWorker;
 
 import javax.swing.border.EmptyBorder;
 
@@ -60,6 +61,12 @@ final class FeatureView extends LabelFieldPanel {
     private final FeatureModel model;
     private final FeatureTable table;
 
+    /** Facet property names. */
+    private static final String[] FACET_PROPERTY_NAMES = { "referenceName", "featureType", "source", "strand", "sampleId" };
+
+    /** Facet labels. */
+    private static final String[] FACET_LABELS = { "Reference", "Feature type", "Source", "Strand", "Sample" };
+
     /**
      * Create a new feature view with the specified dataset.
      *
@@ -73,6 +80,13 @@ final class FeatureView extends LabelFieldPanel {
         model.take(10);
     }
 
+    /**
+     * Cancel any Spark jobs running for this view.
+     */
+    void cancel() {
+        model.cancel();
+    }
+
     private void layoutComponents() {
         JTabbedPane tabbedPane = new JTabbedPane();
         tabbedPane.add("Features", layoutFeatureView());
@@ -85,19 +99,30 @@ final class FeatureView extends LabelFieldPanel {
         LabelFieldPanel panel = new LabelFieldPanel();
         panel.setOpaque(false);
         panel.setBorder(new EmptyBorder(12, 12, 12, 12));
-        panel.addField("Feature count:", new DatasetCountLabel(model.getDataset()));
+        panel.addField("Feature count:", new DatasetCountLabel(model));
+        panel.addField("Page cache:", new PageCacheLabel(PageCache.getInstance()));
         panel.addField("Features currently viewing:", new CountLabel<Feature>(model.getFeatures()));
+        panel.addField("Region:", new RegionField(model));
+        FilterBar filterBar = new FilterBar(model, FeatureTable.PROPERTY_NAMES, FeatureTable.COLUMN_LABELS);
+        panel.addField("Filter:", filterBar);
+        panel.addField("Sort:", new SortBar(model, FeatureTable.PROPERTY_NAMES, FeatureTable.COLUMN_LABELS));
+        panel.addField("Track:", new TrackPanel(model, coalesce(col("name"), col("featureId"), col("featureType")), col("strand").equalTo("REVERSE")));
         panel.addSpacing(12);
-        panel.addFinalField(table);
+        JScrollPane facets = new JScrollPane(new FacetPanel(model, FACET_PROPERTY_NAMES, FACET_LABELS, filterBar::update));
+        facets.setBorder(null);
+        facets.setOpaque(false);
+        facets.getViewport().setOpaque(false);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, facets, table);
+        splitPane.setBorder(null);
+        splitPane.setOpaque(false);
+        panel.addFinalField(splitPane);
         return panel;
     }
 
     /**
      * Feature model.
      */
-    static class FeatureModel {
-        private final FeatureDataset dataset;
-        private final EventList<Feature> features;
+    static class FeatureModel extends ExplorerModel<Feature, FeatureDataset> {
         private final EventList<Reference> references;
         private final EventList<Sample> samples;
 
@@ -108,8 +133,7 @@ final class FeatureView extends LabelFieldPanel {
          * @param dataset dataset, must not be null
          */
         FeatureModel(final FeatureDataset dataset) {
-            this.dataset = dataset;
-            features = GlazedLists.eventList(new ArrayList<Feature>());
+            super(dataset, Feature.getClassSchema(), FeatureTable.PROPERTY_NAMES);
 
             List<SequenceRecord> s = JavaConversions.seqAsJavaList(dataset.references().records());;
             references = GlazedLists.eventList(s.stream().map(v -> v.toADAMReference()).collect(Collectors.toList()));
@@ -117,40 +141,8 @@ final class FeatureView extends LabelFieldPanel {
             samples = GlazedLists.eventList(JavaConversions.seqAsJavaList(dataset.samples()));
         }
 
-        void take(final int take) {
-            new SwingWorker<List<Feature>, Void>() {
-                @Override
-                public List<Feature> doInBackground() {
-                    return dataset.jrdd().take(take);
-                }
-
-                @Override
-                public void done() {
-                    try {
-                        List<Feature> result = get();
-
-                        features.getReadWriteLock().writeLock().lock();
-                        try {
-                            features.clear();
-                            features.addAll(result);
-                        }
-                        finally {
-                            features.getReadWriteLock().writeLock().unlock();
-                        }
-                    }
-                    catch (InterruptedException | ExecutionException e) {
-                        // ignore
-                    }
-                }
-            }.execute();
-        }
-
-        FeatureDataset getDataset() {
-            return dataset;
-        }
-
         EventList<Feature> getFeatures() {
-            return features;
+            return getElements();
         }
 
         EventList<Reference> getReferences() {
@@ -169,7 +161,7 @@ final class FeatureView extends LabelFieldPanel {
         private final FeatureModel model;
         private static final String[] PROPERTY_NAMES = { "referenceName", "start", "end", "strand", "name", "featureId", "featureType", "score", "sampleId" };
         private static final String[] COLUMN_LABELS = { "Reference Name", "Start", "End", "Strand", "Name", "Identifier", "Type", "Score", "Sample" };
-        private static final TableFormat<Feature> TABLE_FORMAT = GlazedLists.tableFormat(Feature.class, PROPERTY_NAMES, COLUMN_LABELS);
+        private static final TableFormat<Feature> TABLE_FORMAT = AccessorTableFormat.create(Feature.class, PROPERTY_NAMES, COLUMN_LABELS);
 
 
         /**
@@ -178,8 +170,13 @@ final class FeatureView extends LabelFieldPanel {
          * @param model model, must not be null
          */
         FeatureTable(final FeatureModel model) {
-            super("Features:", model.getFeatures(), TABLE_FORMAT);
+            super("Features:", model, TABLE_FORMAT);
             this.model = model;
+
+            getToolBar().add(new DatasetExportAction<FeatureDataset>(this, model,
+                new DatasetExportAction.Format<FeatureDataset>("ADAM Parquet", "adam", (d, path, single) -> d.saveAsParquet(path)),
+                new DatasetExportAction.Format<FeatureDataset>("GFF3", "gff3", (d, path, single) -> d.saveAsGff3(path, single, false)),
+                new DatasetExportAction.Format<FeatureDataset>("BED", "bed", (d, path, single) -> d.saveAsBed(path, single, false))));
         }
 
 
@@ -193,12 +190,7 @@ final class FeatureView extends LabelFieldPanel {
 
         @Override
         public void add() {
-            if (model.getFeatures().isEmpty()) {
-                model.take(10);
-            }
-            else {
-                model.take(model.getFeatures().size() * 2);
-            }
+            model.next(ExplorerModel.PAGE_SIZE);
         }
     }
 }
@@ -0,0 +1,213 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.awt.FlowLayout;
+import java.awt.Toolkit;
+
+import java.awt.event.ActionEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+
+import org.apache.spark.sql.types.BooleanType;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DoubleType;
+import org.apache.spark.sql.types.FloatType;
+import org.apache.spark.sql.types.IntegerType;
+import org.apache.spark.sql.types.LongType;
+import org.apache.spark.sql.types.StringType;
+import org.apache.spark.sql.types.StructType;
+
+import org.dishevelled.iconbundle.tango.TangoProject;
+
+import org.dishevelled.identify.IdButton;
+import org.dishevelled.identify.IdentifiableAction;
+
+/**
+ * Filter bar, restricts the rows in an explorer model to those matching column filters
+ * on the displayed columns.
+ *
+ * @author  Michael Heuer
+ */
+class FilterBar extends JPanel {
+    private final ExplorerModel<?, ?> model;
+    private final Map<String, String> columns;
+    private final Map<String, DataType> types;
+    private final JComboBox<String> column;
+    private final JComboBox<ColumnFilter.Operator> operator;
+    private final JTextField value;
+    private final JLabel filters;
+    private final IdentifiableAction addFilterAction;
+    private final IdentifiableAction clearFiltersAction;
+
+
+    /**
+     * Create a new filter bar for the specified model.  Only displayed columns with
+     * string, numeric, or boolean types in the Spark SQL schema of the dataset may be filtered.
+     *
+     * @param model model, must not be null
+     * @param propertyNames displayed property names, must not be null
+     * @param columnLabels displayed column labels, must not be null
+     */
+    FilterBar(final ExplorerModel<?, ?> model, final String[] propertyNames, final String[] columnLabels) {
+        super(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        this.model = model;
+
+        columns = new LinkedHashMap<String, String>();
+        types = new LinkedHashMap<String, DataType>();
+        StructType schema = model.getDataset().dataset().schema();
+        for (int i = 0; i < propertyNames.length; i++) {
+            DataType type = ColumnProjection.resolve(schema, propertyNames[i]);
+            if (ColumnProjection.isScalar(type)) {
+                columns.put(columnLabels[i], propertyNames[i]);
+                types.put(propertyNames[i], type);
+            }
+        }
+
+        column = new JComboBox<String>(columns.keySet().toArray(new String[0]));
+        operator = new JComboBox<ColumnFilter.Operator>(ColumnFilter.Operator.values());
+        value = new JTextField(16);
+        filters = new JLabel("");
+
+        addFilterAction = new IdentifiableAction("Add filter", TangoProject.LIST_ADD) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    addFilter();
+                }
+            };
+        clearFiltersAction = new IdentifiableAction("Clear filters", TangoProject.EDIT_CLEAR) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    clearFilters();
+                }
+            };
+        clearFiltersAction.setEnabled(false);
+        value.setAction(addFilterAction);
+
+        add(column);
+        add(operator);
+        add(value);
+        add(createButton(addFilterAction));
+        add(createButton(clearFiltersAction));
+        add(filters);
+    }
+
+
+    /**
+     * Add a column filter from the selected column, operator, and value to the filters for the model.
+     */
+    void addFilter() {
+        String property = columns.get((String) column.getSelectedItem());
+        ColumnFilter.Operator op = (ColumnFilter.Operator) operator.getSelectedItem();
+        if (property == null || op == null) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        DataType type = types.get(property);
+        boolean stringOperator = op == ColumnFilter.Operator.STARTS_WITH || op == ColumnFilter.Operator.CONTAINS;
+        if (stringOperator && !(type instanceof StringType)) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        Object v;
+        try {
+            v = parse(value.getText().trim(), type);
+        }
+        catch (IllegalArgumentException e) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        List<ColumnFilter> f = new ArrayList<ColumnFilter>(model.getFilters());
+        f.add(new ColumnFilter(property, op, v));
+        model.setFilters(f);
+        value.setText("");
+        update();
+    }
+
+    /**
+     * Clear the filters for the model.
+     */
+    void clearFilters() {
+        model.setFilters(new ArrayList<ColumnFilter>());
+        update();
+    }
+
+    /**
+     * Update the filters shown, e.g. after the filters for the model are changed elsewhere.
+     */
+    void update() {
+        StringBuilder sb = new StringBuilder();
+        for (ColumnFilter f : model.getFilters()) {
+            if (sb.length() > 0) {
+                sb.append(" and ");
+            }
+            sb.append(f);
+        }
+        filters.setText(sb.toString());
+        clearFiltersAction.setEnabled(!model.getFilters().isEmpty());
+    }
+
+    private static IdButton createButton(final IdentifiableAction action) {
+        IdButton button = new IdButton(action, TangoProject.EXTRA_SMALL);
+        button.displayIcon();
+        button.setBorderPainted(false);
+        button.setToolTipText(action.getName());
+        return button;
+    }
+
+    /**
+     * Parse the specified value to the Java type for the specified Spark SQL data type.
+     *
+     * @param value value to parse, must not be null
+     * @param type Spark SQL data type of the column filtered
+     * @return the specified value parsed
+     * @throws NumberFormatException if the value cannot be parsed to a numeric type
+     * @throws IllegalArgumentException if the value cannot be parsed to a boolean type, from
+     *    <code>true</code> or <code>false</code>, ignoring case
+     */
+    static Object parse(final String value, final DataType type) {
+        if (type instanceof LongType) {
+            return Long.valueOf(value.replace(",", ""));
+        }
+        if (type instanceof IntegerType) {
+            return Integer.valueOf(value.replace(",", ""));
+        }
+        if (type instanceof DoubleType) {
+            return Double.valueOf(value);
+        }
+        if (type instanceof FloatType) {
+            return Float.valueOf(value);
+        }
+        if (type instanceof BooleanType) {
+            if ("true".equalsIgnoreCase(value)) {
+                return Boolean.TRUE;
+            }
+            if ("false".equalsIgnoreCase(value)) {
+                return Boolean.FALSE;
+            }
+            throw new IllegalArgumentException("could not parse " + value + " as a boolean, expected true or false");
+        }
+        return value;
+    }
+}
@@ -15,15 +15,13 @@
  */
 package com.github.heuermh.adam.explorer;
 
-import java.util.ArrayList;
 import java.util.List;
 
-import java.util.concurrent.ExecutionException;
-
 import java.util.stream.Collectors;
 
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
-import javax.swing.SwingWorker;
 
 import javax.swing.border.EmptyBorder;
 
@@ -59,6 +57,12 @@ final class FragmentView extends LabelFieldPanel {
     private final FragmentModel model;
     private final FragmentTable table;
 
+    /** Facet property names. */
+    private static final String[] FACET_PROPERTY_NAMES = { "readGroupId" };
+
+    /** Facet labels. */
+    private static final String[] FACET_LABELS = { "Read group" };
+
     /**
      * Create a new fragment view with the specified dataset.
      *
@@ -72,6 +76,13 @@ final class FragmentView extends LabelFieldPanel {
         model.take(10);
     }
 
+    /**
+     * Cancel any Spark jobs running for this view.
+     */
+    void cancel() {
+        model.cancel();
+    }
+
     private void layoutComponents() {
         JTabbedPane tabbedPane = new JTabbedPane();
         tabbedPane.add("Fragments", layoutFragmentView());
@@ -83,20 +94,29 @@ final class FragmentView extends LabelFieldPanel {
         LabelFieldPanel panel = new LabelFieldPanel();
         panel.setOpaque(false);
         panel.setBorder(new EmptyBorder(12, 12, 12, 12));
-        panel.addField("Fragment count:", new DatasetCountLabel(model.getDataset()));
+        panel.addField("Fragment count:", new DatasetCountLabel(model));
+        panel.addField("Page cache:", new PageCacheLabel(PageCache.getInstance()));
         panel.addField("Fragments currently viewing:", new CountLabel<Fragment>(model.getFragments()));
+        FilterBar filterBar = new FilterBar(model, FragmentTable.PROPERTY_NAMES, FragmentTable.COLUMN_LABELS);
+        panel.addField("Filter:", filterBar);
+        panel.addField("Sort:", new SortBar(model, FragmentTable.PROPERTY_NAMES, FragmentTable.COLUMN_LABELS));
         panel.addSpacing(12);
-        panel.addFinalField(table);
+        JScrollPane facets = new JScrollPane(new FacetPanel(model, FACET_PROPERTY_NAMES, FACET_LABELS, filterBar::update));
+        facets.setBorder(null);
+        facets.setOpaque(false);
+        facets.getViewport().setOpaque(false);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, facets, table);
+        splitPane.setBorder(null);
+        splitPane.setOpaque(false);
+        panel.addFinalField(splitPane);
         return panel;
     }
 
     /**
      * Fragment model.
      */
-    static class FragmentModel {
-        private final FragmentDataset dataset;
+    static class FragmentModel extends ExplorerModel<Fragment, FragmentDataset> {
         private final EventList<Reference> references;
-        private final EventList<Fragment> fragments;
 
         /**
          * Create a new fragment model with the specified dataset.
@@ -104,47 +124,14 @@ final class FragmentView extends LabelFieldPanel {
          * @param dataset dataset, must not be null
          */
         FragmentModel(final FragmentDataset dataset) {
-            this.dataset = dataset;
-            fragments = GlazedLists.eventList(new ArrayList<Fragment>());
+            super(dataset, Fragment.getClassSchema(), FragmentTable.PROPERTY_NAMES);
 
             List<SequenceRecord> s = JavaConversions.seqAsJavaList(dataset.references().records());;
             references = GlazedLists.eventList(s.stream().map(v -> v.toADAMReference()).collect(Collectors.toList()));
         }
 
-        void take(final int take) {
-            new SwingWorker<List<Fragment>, Void>() {
-                @Override
-                public List<Fragment> doInBackground() {
-                    return dataset.jrdd().take(take);
-                }
-
-                @Override
-                public void done() {
-                    try {
-                        List<Fragment> result = get();
-
-                        fragments.getReadWriteLock().writeLock().lock();
-                        try {
-                            fragments.clear();
-                            fragments.addAll(result);
-                        }
-                        finally {
-                            fragments.getReadWriteLock().writeLock().unlock();
-                        }
-                    }
-                    catch (InterruptedException | ExecutionException e) {
-                        // ignore
-                    }
-                }
-            }.execute();
-        }
-
-        FragmentDataset getDataset() {
-            return dataset;
-        }
-
         EventList<Fragment> getFragments() {
-            return fragments;
+            return getElements();
         }
 
         EventList<Reference> getReferences() {
@@ -159,7 +146,7 @@ final class FragmentView extends LabelFieldPanel {
         private final FragmentModel model;
         private static final String[] PROPERTY_NAMES = { "name", "readGroupId", "insertSize", "alignments" };
         private static final String[] COLUMN_LABELS = { "Name", "Read Group", "Insert Size", "Alignments" };
-        private static final TableFormat<Fragment> TABLE_FORMAT = GlazedLists.tableFormat(Fragment.class, PROPERTY_NAMES, COLUMN_LABELS);
+        private static final TableFormat<Fragment> TABLE_FORMAT = AccessorTableFormat.create(Fragment.class, PROPERTY_NAMES, COLUMN_LABELS);
 
         /**
          * Create a new fragment table with the specified model.
@@ -167,7 +154,7 @@ final class FragmentView extends LabelFieldPanel {
          * @param model model, must not be null
          */
         FragmentTable(final FragmentModel model) {
-            super("Fragments:", model.getFragments(), TABLE_FORMAT);
+            super("Fragments:", model, TABLE_FORMAT);
             this.model = model;
         }
 
@@ -182,12 +169,7 @@ final class FragmentView extends LabelFieldPanel {
 
         @Override
         public void add() {
-            if (model.getFragments().isEmpty()) {
-                model.take(10);
-            }
-            else {
-                model.take(model.getFragments().size() * 2);
-            }
+            model.next(ExplorerModel.PAGE_SIZE);
         }
     }
 }
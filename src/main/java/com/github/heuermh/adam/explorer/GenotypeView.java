@@ -15,15 +15,13 @@
  */
 package com.github.heuermh.adam.explorer;
 
-import java.util.ArrayList;
 import java.util.List;
 
-import java.util.concurrent.ExecutionException;
-
 import java.util.stream.Collectors;
 
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
-import javax.swing.SwingWorker;
 
 import javax.swing.border.EmptyBorder;
 
@@ -34,6 +32,8 @@ import ca.odell.glazedlists.gui.TableFormat;
 
 import com.google.common.base.Joiner;
 
+import htsjdk.samtools.ValidationStringency;
+
 import htsjdk.variant.vcf.VCFHeaderLine;
 
 import org.bdgenomics.adam.ds.variant.GenotypeDataset;
@@ -62,6 +62,12 @@ final class GenotypeView extends LabelFieldPanel {
     private final GenotypeModel model;
     private final GenotypeTable table;
 
+    /** Facet property names. */
+    private static final String[] FACET_PROPERTY_NAMES = { "referenceName", "sampleId" };
+
+    /** Facet labels. */
+    private static final String[] FACET_LABELS = { "Reference", "Sample" };
+
     /**
      * Create a new genotype view with the specified dataset.
      *
@@ -75,6 +81,13 @@ final class GenotypeView extends LabelFieldPanel {
         model.take(10);
     }
 
+    /**
+     * Cancel any Spark jobs running for this view.
+     */
+    void cancel() {
+        model.cancel();
+    }
+
     private void layoutComponents() {
         JTabbedPane tabbedPane = new JTabbedPane();
         tabbedPane.add("Genotypes", layoutGenotypeView());
@@ -88,22 +101,32 @@ final class GenotypeView extends LabelFieldPanel {
         LabelFieldPanel panel = new LabelFieldPanel();
         panel.setOpaque(false);
         panel.setBorder(new EmptyBorder(12, 12, 12, 12));
-        panel.addField("Genotype count:", new DatasetCountLabel(model.getDataset()));
+        panel.addField("Genotype count:", new DatasetCountLabel(model));
+        panel.addField("Page cache:", new PageCacheLabel(PageCache.getInstance()));
         panel.addField("Genotypes currently viewing:", new CountLabel<Genotype>(model.getGenotypes()));
+        panel.addField("Region:", new RegionField(model));
+        FilterBar filterBar = new FilterBar(model, GenotypeTable.PROPERTY_NAMES, GenotypeTable.COLUMN_LABELS);
+        panel.addField("Filter:", filterBar);
+        panel.addField("Sort:", new SortBar(model, GenotypeTable.PROPERTY_NAMES, GenotypeTable.COLUMN_LABELS));
         panel.addSpacing(12);
-        panel.addFinalField(table);
+        JScrollPane facets = new JScrollPane(new FacetPanel(model, FACET_PROPERTY_NAMES, FACET_LABELS, filterBar::update));
+        facets.setBorder(null);
+        facets.setOpaque(false);
+        facets.getViewport().setOpaque(false);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, facets, table);
+        splitPane.setBorder(null);
+        splitPane.setOpaque(false);
+        panel.addFinalField(splitPane);
         return panel;
     }
 
     /**
      * Genotype model.
      */
-    static class GenotypeModel {
-        private final GenotypeDataset dataset;
+    static class GenotypeModel extends ExplorerModel<Genotype, GenotypeDataset> {
         private final EventList<Reference> references;
         private final EventList<Sample> samples;
         private final EventList<VCFHeaderLine> headerLines;
-        private final EventList<Genotype> genotypes;
 
         /**
          * Create a new genotype model with the specified dataset.
@@ -111,8 +134,7 @@ final class GenotypeView extends LabelFieldPanel {
          * @param dataset dataset, must not be null
          */
         GenotypeModel(final GenotypeDataset dataset) {
-            this.dataset = dataset;
-            genotypes = GlazedLists.eventList(new ArrayList<Genotype>());
+            super(dataset, Genotype.getClassSchema(), GenotypeTable.PROPERTY_NAMES);
 
             List<SequenceRecord> s = JavaConversions.seqAsJavaList(dataset.references().records());
             references = GlazedLists.eventList(s.stream().map(v -> v.toADAMReference()).collect(Collectors.toList()));
@@ -121,40 +143,8 @@ final class GenotypeView extends LabelFieldPanel {
             headerLines = GlazedLists.eventList(JavaConversions.seqAsJavaList(dataset.headerLines()));
         }
 
-        void take(final int take) {
-            new SwingWorker<List<Genotype>, Void>() {
-                @Override
-                public List<Genotype> doInBackground() {
-                    return dataset.jrdd().take(take);
-                }
-
-                @Override
-                public void done() {
-                    try {
-                        List<Genotype> result = get();
-
-                        genotypes.getReadWriteLock().writeLock().lock();
-                        try {
-                            genotypes.clear();
-                            genotypes.addAll(result);
-                        }
-                        finally {
-                            genotypes.getReadWriteLock().writeLock().unlock();
-                        }
-                    }
-                    catch (InterruptedException | ExecutionException e) {
-                        // ignore
-                    }
-                }
-            }.execute();
-        }
-
-        GenotypeDataset getDataset() {
-            return dataset;
-        }
-
         EventList<Genotype> getGenotypes() {
-            return genotypes;
+            return getElements();
         }
 
         EventList<Reference> getReferences() {
@@ -177,7 +167,7 @@ final class GenotypeView extends LabelFieldPanel {
         private final GenotypeModel model;
         private static final String[] PROPERTY_NAMES = { "referenceName", "start", "end", "variant.referenceAllele", "variant.alternateAllele", "alleles", "sampleId" };
         private static final String[] COLUMN_LABELS = { "Reference Name", "Start", "End", "Ref", "Alt", "Alleles", "Sample" };
-        private static final TableFormat<Genotype> TABLE_FORMAT = GlazedLists.tableFormat(Genotype.class, PROPERTY_NAMES, COLUMN_LABELS);
+        private static final TableFormat<Genotype> TABLE_FORMAT = AccessorTableFormat.create(Genotype.class, PROPERTY_NAMES, COLUMN_LABELS);
 
 
         /**
@@ -186,8 +176,13 @@ final class GenotypeView extends LabelFieldPanel {
          * @param model model, must not be null
          */
         GenotypeTable(final GenotypeModel model) {
-            super("Genotypes:", model.getGenotypes(), TABLE_FORMAT);
+            super("Genotypes:", model, TABLE_FORMAT);
             this.model = model;
+
+            getToolBar().add(new DatasetExportAction<GenotypeDataset>(this, model,
+                new DatasetExportAction.Format<GenotypeDataset>("ADAM Parquet", "adam", (d, path, single) -> d.saveAsParquet(path)),
+                new DatasetExportAction.Format<GenotypeDataset>("VCF", "vcf",
+                    (d, path, single) -> d.toVariantContexts().saveAsVcf(path, single, false, false, ValidationStringency.LENIENT))));
         }
 
 
@@ -210,12 +205,7 @@ final class GenotypeView extends LabelFieldPanel {
 
         @Override
         public void add() {
-            if (model.getGenotypes().isEmpty()) {
-                model.take(10);
-            }
-            else {
-                model.take(model.getGenotypes().size() * 2);
-            }
+            model.next(ExplorerModel.PAGE_SIZE);
         }
     }
 }
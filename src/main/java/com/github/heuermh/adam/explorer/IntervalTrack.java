@@ -0,0 +1,379 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import org.apache.spark.sql.Column;
+
+import org.bdgenomics.adam.ds.GenomicDataset;
+
+import org.bdgenomics.adam.models.ReferenceRegion;
+
+import org.bdgenomics.formats.avro.Strand;
+
+/**
+ * Interval track.
+ *
+ * <p>
+ * Draws the genomic intervals of the dataset of an explorer model, restricted to its current
+ * column filters, along one reference.  Intervals are fetched from the dataset by region a tile
+ * at a time in the background, see {@link Tile}, and kept in the tile cache shared by all tracks,
+ * see {@link TileCache}, so that painting only draws tiles already in memory and panning and
+ * zooming stay interactive.  Tiles are sized to the zoom level, so zooming within a range of
+ * zoom levels reuses the same tiles.  Scroll to zoom, drag to pan, and double-click an interval
+ * to restrict the rows in the model to it.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class IntervalTrack extends JComponent {
+    private final ExplorerModel<?, ?> model;
+    private final Column label;
+    private final Column reverse;
+    private final TileCache cache;
+    private final Set<Tile.Key> loading = new HashSet<Tile.Key>();
+    private final Set<Tile.Key> failed = new HashSet<Tile.Key>();
+    private String referenceName;
+    private double start;
+    private double span;
+    private double basesPerPixel;
+    private volatile Object visibleView;
+    private volatile int visibleTileSize;
+    private volatile long visibleFirst;
+    private volatile long visibleLast;
+
+    /** Smallest width of a tile on screen, in pixels; smaller tiles are replaced by larger ones. */
+    static final int TILE_PIXELS = 256;
+
+    /** Fewest bases per pixel, when zoomed in all the way. */
+    private static final double MIN_BASES_PER_PIXEL = 0.05d;
+
+    /** Most bases per pixel, when zoomed out all the way. */
+    private static final double MAX_BASES_PER_PIXEL = Tile.TILE_SIZES[Tile.TILE_SIZES.length - 1] / (double) TILE_PIXELS;
+
+    /** Zoom factor per mouse wheel notch. */
+    private static final double ZOOM_FACTOR = 1.25d;
+
+    /** Height of an interval, in pixels. */
+    private static final int LANE_HEIGHT = 6;
+
+    /** Space between lanes, in pixels. */
+    private static final int LANE_GAP = 2;
+
+    /** Color of intervals on the forward or no strand. */
+    private static final Color FORWARD = new Color(52, 101, 164);
+
+    /** Color of intervals on the reverse strand. */
+    private static final Color REVERSE = new Color(117, 80, 123);
+
+    /** Color of tiles not yet loaded. */
+    private static final Color LOADING = new Color(238, 238, 236);
+
+    /** Color of dense tiles, with more intervals than are drawn. */
+    private static final Color DENSE = new Color(252, 233, 79);
+
+
+    /**
+     * Create a new interval track for the dataset of the specified model.
+     *
+     * @param model explorer model, must not be null
+     * @param label label column, e.g. <code>col("readName")</code>, must not be null
+     * @param reverse reverse strand column, boolean, must not be null
+     */
+    IntervalTrack(final ExplorerModel<?, ?> model, final Column label, final Column reverse) {
+        this.model = model;
+        this.label = label;
+        this.reverse = reverse;
+        this.cache = TileCache.getInstance(model.getDataset().jrdd().context().getConf());
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(600, 160));
+        setToolTipText("");
+
+        MouseAdapter mouseAdapter = new MouseAdapter() {
+                private int x;
+
+                @Override
+                public void mousePressed(final MouseEvent event) {
+                    x = event.getX();
+                }
+
+                @Override
+                public void mouseDragged(final MouseEvent event) {
+                    pan((x - event.getX()) * basesPerPixel);
+                    x = event.getX();
+                }
+
+                @Override
+                public void mouseWheelMoved(final MouseWheelEvent event) {
+                    zoom(Math.pow(ZOOM_FACTOR, event.getPreciseWheelRotation()), event.getX());
+                }
+
+                @Override
+                public void mouseClicked(final MouseEvent event) {
+                    if (event.getClickCount() == 2 && SwingUtilities.isLeftMouseButton(event)) {
+                        Interval interval = intervalAt(event.getX(), event.getY());
+                        if (interval != null) {
+                            model.setRegion(interval.getRegion());
+                        }
+                    }
+                }
+            };
+        addMouseListener(mouseAdapter);
+        addMouseMotionListener(mouseAdapter);
+        addMouseWheelListener(mouseAdapter);
+    }
+
+
+    /**
+     * Show the specified region.
+     *
+     * @param region region, must not be null
+     */
+    void show(final ReferenceRegion region) {
+        referenceName = region.referenceName();
+        start = region.start();
+        span = Math.max(1L, region.length());
+        // fit to the span once the width is known
+        basesPerPixel = 0.0d;
+        repaint();
+    }
+
+    private void fit() {
+        if (basesPerPixel <= 0.0d) {
+            basesPerPixel = Math.max(MIN_BASES_PER_PIXEL, Math.min(MAX_BASES_PER_PIXEL, span / Math.max(1, getWidth())));
+        }
+    }
+
+    private void pan(final double bases) {
+        if (referenceName != null) {
+            fit();
+            start = Math.max(0.0d, start + bases);
+            repaint();
+        }
+    }
+
+    private void zoom(final double factor, final int x) {
+        if (referenceName != null) {
+            fit();
+            double position = start + x * basesPerPixel;
+            basesPerPixel = Math.max(MIN_BASES_PER_PIXEL, Math.min(MAX_BASES_PER_PIXEL, basesPerPixel * factor));
+            start = Math.max(0.0d, position - x * basesPerPixel);
+            repaint();
+        }
+    }
+
+    /**
+     * Return the size of tiles at the current zoom level, the smallest at least {@link #TILE_PIXELS} wide.
+     */
+    private int tileSize() {
+        for (int tileSize : Tile.TILE_SIZES) {
+            if (tileSize / basesPerPixel >= TILE_PIXELS) {
+                return tileSize;
+            }
+        }
+        return Tile.TILE_SIZES[Tile.TILE_SIZES.length - 1];
+    }
+
+    /**
+     * Return the identity of the dataset view drawn by this track.
+     */
+    private Object view() {
+        return Arrays.asList(model.getDataset(), model.getFilters());
+    }
+
+    /**
+     * Fetch the tile with the specified key in the background, unless it is already loading,
+     * and repaint once it has been fetched.
+     */
+    private void load(final Tile.Key key, final int tileSize, final long index) {
+        if (failed.contains(key) || !loading.add(key)) {
+            return;
+        }
+        final String referenceName = this.referenceName;
+        final GenomicDataset<?, ?, ?> view = ColumnFilter.filter(model.getDataset(), model.getFilters());
+        final JobGroup jobGroup = model.getJobGroup();
+        new SwingWorker<Tile, Void>() {
+            @Override
+            public Tile doInBackground() {
+                // skip tiles panned or zoomed away from while waiting
+                if (!key.getView().equals(visibleView) || tileSize != visibleTileSize || index < visibleFirst || index > visibleLast) {
+                    return null;
+                }
+                Tile tile = cache.get(key);
+                if (tile != null) {
+                    return tile;
+                }
+                String task = jobGroup.begin("Fetch tile", JobGroup.Pool.INTERACTIVE);
+                try {
+                    tile = Tile.fetch(view, Tile.region(referenceName, tileSize, index), label, reverse);
+                    cache.put(key, tile);
+                    return tile;
+                }
+                finally {
+                    jobGroup.end(task);
+                }
+            }
+
+            @Override
+            public void done() {
+                loading.remove(key);
+                try {
+                    get();
+                }
+                catch (InterruptedException e) {
+                    // ignore
+                }
+                catch (ExecutionException e) {
+                    failed.add(key);
+                }
+                repaint();
+            }
+        }.execute();
+    }
+
+    @Override
+    public String getToolTipText(final MouseEvent event) {
+        Interval interval = intervalAt(event.getX(), event.getY());
+        if (interval == null) {
+            return null;
+        }
+        ReferenceRegion region = interval.getRegion();
+        String text = String.format("%s:%,d-%,d", region.referenceName(), region.start() + 1L, region.end());
+        return (interval.getLabel() == null) ? text : interval.getLabel() + " " + text;
+    }
+
+    /**
+     * Return the interval at the specified point, if any.
+     */
+    private Interval intervalAt(final int x, final int y) {
+        if (referenceName == null) {
+            return null;
+        }
+        fit();
+        int tileSize = tileSize();
+        double position = start + x * basesPerPixel;
+        Tile tile = cache.peek(new Tile.Key(view(), referenceName, tileSize, (long) (position / tileSize)));
+        if (tile == null) {
+            return null;
+        }
+        int lane = y / (LANE_HEIGHT + LANE_GAP);
+        double slop = 2.0d * basesPerPixel;
+        for (int i = 0; i < tile.size(); i++) {
+            if (tile.getLane(i) == lane && tile.getStart(i) <= position + slop && tile.getEnd(i) >= position - slop) {
+                return new Interval(ReferenceRegion.apply(referenceName, tile.getStart(i), tile.getEnd(i), Strand.INDEPENDENT), tile.getLabel(i));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void paintComponent(final Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        if (referenceName == null) {
+            return;
+        }
+        fit();
+        int tileSize = tileSize();
+        Object view = view();
+        long first = (long) (start / tileSize);
+        long last = (long) ((start + getWidth() * basesPerPixel) / tileSize);
+        visibleView = view;
+        visibleTileSize = tileSize;
+        visibleFirst = first;
+        visibleLast = last;
+
+        for (long index = first; index <= last; index++) {
+            Tile.Key key = new Tile.Key(view, referenceName, tileSize, index);
+            Tile tile = cache.peek(key);
+            int tileX = (int) Math.floor((index * tileSize - start) / basesPerPixel);
+            int tileWidth = (int) Math.ceil(tileSize / basesPerPixel);
+            if (tile == null) {
+                g.setColor(LOADING);
+                g.fillRect(tileX, 0, tileWidth, getHeight());
+                load(key, tileSize, index);
+                continue;
+            }
+            if (tile.isDense()) {
+                g.setColor(DENSE);
+                g.fillRect(tileX, getHeight() - LANE_GAP, tileWidth, LANE_GAP);
+            }
+            long tileStart = index * tileSize;
+            for (int i = 0; i < tile.size(); i++) {
+                // intervals starting in a tile to the left are drawn by that tile, if it is showing
+                if (tile.getStart(i) < tileStart && index != first) {
+                    continue;
+                }
+                int y = tile.getLane(i) * (LANE_HEIGHT + LANE_GAP);
+                if (y + LANE_HEIGHT > getHeight() - LANE_GAP) {
+                    continue;
+                }
+                int x0 = (int) Math.floor((tile.getStart(i) - start) / basesPerPixel);
+                int x1 = (int) Math.ceil((tile.getEnd(i) - start) / basesPerPixel);
+                g.setColor(tile.isReverse(i) ? REVERSE : FORWARD);
+                g.fillRect(x0, y, Math.max(1, x1 - x0), LANE_HEIGHT);
+            }
+        }
+    }
+
+
+    /**
+     * Interval under the mouse.
+     */
+    private static final class Interval {
+        private final ReferenceRegion region;
+        private final String label;
+
+
+        /**
+         * Create a new interval.
+         *
+         * @param region region
+         * @param label label, if any
+         */
+        Interval(final ReferenceRegion region, final String label) {
+            this.region = region;
+            this.label = label;
+        }
+
+
+        ReferenceRegion getRegion() {
+            return region;
+        }
+
+        String getLabel() {
+            return label;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import java.util.concurrent.CancellationException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.spark.SparkContext;
+
+/**
+ * Spark job group for an explorer window.
+ *
+ * <p>
+ * Each background task in an explorer window runs its Spark jobs under its own job group id,
+ * so that a single task can be cancelled when it is replaced by a newer one, and all tasks can
+ * be cancelled when the window is closed.  Cancelling a task cancels its running Spark jobs and
+ * prevents it from submitting further jobs.
+ * </p>
+ *
+ * <p>
+ * Tasks are also assigned to a Spark scheduler pool, so that when the Spark scheduler mode is
+ * <code>FAIR</code>, latency sensitive page fetches are not queued behind row counts or other
+ * bulk jobs.  Pool names are configurable, see {@link Pool}.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class JobGroup {
+    private final SparkContext sc;
+    private final String name;
+    private final AtomicLong tasks = new AtomicLong();
+    private final Set<String> active = new HashSet<String>();
+    private boolean closed;
+
+    /** Job group ids of cancelled tasks that have not yet ended. */
+    private static final Set<String> CANCELLED = Collections.synchronizedSet(new HashSet<String>());
+
+    /** Job group sequence. */
+    private static final AtomicLong GROUPS = new AtomicLong();
+
+    /** Spark local property for the job group id. */
+    private static final String JOB_GROUP_ID = "spark.jobGroup.id";
+
+    /** Spark local property for the scheduler pool. */
+    private static final String SCHEDULER_POOL = "spark.scheduler.pool";
+
+
+    /**
+     * Create a new job group for the specified Spark context.
+     *
+     * @param sc Spark context, must not be null
+     */
+    JobGroup(final SparkContext sc) {
+        this.sc = sc;
+        this.name = "adam-explorer-" + GROUPS.incrementAndGet();
+    }
+
+
+    /**
+     * Begin a task in this job group on the current thread.  Spark jobs submitted from the
+     * current thread until the task ends run under the returned job group id, in the specified
+     * scheduler pool.
+     *
+     * @param description task description
+     * @param pool scheduler pool, must not be null
+     * @return the job group id for the task
+     * @throws CancellationException if this job group has been closed
+     */
+    synchronized String begin(final String description, final Pool pool) {
+        if (closed) {
+            throw new CancellationException(name + " closed");
+        }
+        String id = name + "-" + tasks.incrementAndGet();
+        active.add(id);
+        sc.setJobGroup(id, description, false);
+        sc.setLocalProperty(SCHEDULER_POOL, pool.getName(sc));
+        return id;
+    }
+
+    /**
+     * End the specified task on the current thread.
+     *
+     * @param id job group id for the task
+     */
+    synchronized void end(final String id) {
+        active.remove(id);
+        CANCELLED.remove(id);
+        sc.clearJobGroup();
+        sc.setLocalProperty(SCHEDULER_POOL, null);
+    }
+
+    /**
+     * Cancel the specified task, if it has not already ended.
+     *
+     * @param id job group id for the task
+     */
+    synchronized void cancel(final String id) {
+        if (active.contains(id)) {
+            CANCELLED.add(id);
+            sc.cancelJobGroup(id);
+        }
+    }
+
+    /**
+     * Cancel all tasks in this job group and prevent new tasks from beginning.
+     */
+    synchronized void close() {
+        closed = true;
+        List<String> ids = new ArrayList<String>(active);
+        for (String id : ids) {
+            cancel(id);
+        }
+    }
+
+    /**
+     * Throw a cancellation exception if the task on the current thread has been cancelled.
+     * Called before submitting each Spark job, since cancelling a job group only cancels the
+     * jobs that are running at the time.
+     *
+     * @param sc Spark context, must not be null
+     * @throws CancellationException if the task on the current thread has been cancelled
+     */
+    static void checkCancelled(final SparkContext sc) {
+        String id = sc.getLocalProperty(JOB_GROUP_ID);
+        if (id != null && CANCELLED.contains(id)) {
+            throw new CancellationException(id + " cancelled");
+        }
+    }
+
+
+    /**
+     * Spark scheduler pool.
+     */
+    enum Pool {
+        /** Pool for latency sensitive jobs, such as page fetches. */
+        INTERACTIVE("spark.adam.explorer.pool.interactive", "adam-explorer-interactive"),
+
+        /** Pool for bulk jobs, such as row counts. */
+        BULK("spark.adam.explorer.pool.bulk", "adam-explorer-bulk");
+
+        /** Spark configuration key for the name of this pool. */
+        private final String key;
+
+        /** Default name of this pool. */
+        private final String defaultName;
+
+
+        /**
+         * Create a new scheduler pool.
+         *
+         * @param key Spark configuration key for the name of this pool
+         * @param defaultName default name of this pool
+         */
+        Pool(final String key, final String defaultName) {
+            this.key = key;
+            this.defaultName = defaultName;
+        }
+
+
+        /**
+         * Return the name of this pool, configured for the specified Spark context.
+         *
+         * @param sc Spark context, must not be null
+         * @return the name of this pool, configured for the specified Spark context
+         */
+        String getName(final SparkContext sc) {
+            return sc.getConf().get(key, defaultName);
+        }
+    }
+}
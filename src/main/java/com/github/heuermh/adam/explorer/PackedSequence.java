@@ -0,0 +1,240 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.nio.ByteBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Packed nucleotide sequence.
+ *
+ * <p>
+ * A nucleotide sequence packed two bits per base, with runs of other symbols, e.g.
+ * <code>N</code> or IUPAC ambiguity codes, and runs of lowercase, e.g. soft-masked, bases kept
+ * in exception lists.  Characters are decoded on demand, so that only the part of a sequence
+ * that is shown, see {@link #subSequence(int, int)}, is ever decoded to text.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class PackedSequence implements CharSequence {
+    private final int length;
+    private final byte[] bases;
+    private final int offset;
+    private final int[] exceptions;
+    private final int[] lowerCase;
+
+    /** Packed bases in code order. */
+    private static final char[] BASES = { 'A', 'C', 'G', 'T' };
+
+    /** Number of ints per exception run, start, end, and symbol. */
+    private static final int EXCEPTION_RUN = 3;
+
+    /** Number of ints per lowercase run, start and end. */
+    private static final int LOWER_CASE_RUN = 2;
+
+
+    /**
+     * Create a new packed sequence.
+     *
+     * @param length length
+     * @param bases packed bases, four per byte
+     * @param offset offset of the packed bases
+     * @param exceptions exception runs, start, end, and symbol, ordered by start
+     * @param lowerCase lowercase runs, start and end, ordered by start
+     */
+    private PackedSequence(final int length, final byte[] bases, final int offset, final int[] exceptions, final int[] lowerCase) {
+        this.length = length;
+        this.bases = bases;
+        this.offset = offset;
+        this.exceptions = exceptions;
+        this.lowerCase = lowerCase;
+    }
+
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds, length " + length);
+        }
+        int run = run(exceptions, EXCEPTION_RUN, index);
+        char c = (run < 0) ? BASES[(bases[offset + (index >> 2)] >> ((index & 3) << 1)) & 3] : (char) exceptions[run + 2];
+        return (run(lowerCase, LOWER_CASE_RUN, index) < 0) ? c : Character.toLowerCase(c);
+    }
+
+    /**
+     * Return the specified range of this sequence, decoded to text.
+     *
+     * @param start start index, inclusive
+     * @param end end index, exclusive
+     * @return the specified range of this sequence, decoded to text
+     */
+    @Override
+    public String subSequence(final int start, final int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("range [" + start + ", " + end + ") out of bounds, length " + length);
+        }
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = charAt(i);
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length);
+    }
+
+    /**
+     * Return the index of the run in the specified runs containing the specified index, or <code>-1</code>.
+     */
+    private static int run(final int[] runs, final int stride, final int index) {
+        int low = 0;
+        int high = runs.length / stride - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int run = mid * stride;
+            if (index < runs[run]) {
+                high = mid - 1;
+            }
+            else if (index >= runs[run + 1]) {
+                low = mid + 1;
+            }
+            else {
+                return run;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return this sequence as bytes, to be read back with {@link #fromBytes(byte[], int, int)}.
+     *
+     * @return this sequence as bytes
+     */
+    byte[] toBytes() {
+        int packed = (length + 3) / 4;
+        ByteBuffer buffer = ByteBuffer.allocate(12 + 4 * (exceptions.length + lowerCase.length) + packed);
+        buffer.putInt(length).putInt(exceptions.length).putInt(lowerCase.length);
+        for (int value : exceptions) {
+            buffer.putInt(value);
+        }
+        for (int value : lowerCase) {
+            buffer.putInt(value);
+        }
+        buffer.put(bases, offset, packed);
+        return buffer.array();
+    }
+
+    /**
+     * Read a packed sequence from the specified bytes, written by {@link #toBytes()}.  The packed
+     * bases are not copied.
+     *
+     * @param bytes bytes
+     * @param offset offset
+     * @param length number of bytes
+     * @return a packed sequence read from the specified bytes
+     */
+    static PackedSequence fromBytes(final byte[] bytes, final int offset, final int length) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+        int sequenceLength = buffer.getInt();
+        int[] exceptions = new int[buffer.getInt()];
+        int[] lowerCase = new int[buffer.getInt()];
+        for (int i = 0; i < exceptions.length; i++) {
+            exceptions[i] = buffer.getInt();
+        }
+        for (int i = 0; i < lowerCase.length; i++) {
+            lowerCase[i] = buffer.getInt();
+        }
+        return new PackedSequence(sequenceLength, bytes, buffer.position(), exceptions, lowerCase);
+    }
+
+    /**
+     * Pack the specified nucleotide sequence, or return <code>null</code> if it would not pack
+     * smaller than half its length, e.g. if it is a protein sequence.
+     *
+     * @param sequence sequence to pack, must not be null
+     * @return the specified nucleotide sequence packed, or <code>null</code>
+     */
+    static PackedSequence pack(final CharSequence sequence) {
+        int length = sequence.length();
+        byte[] bases = new byte[(length + 3) / 4];
+        int[] exceptions = new int[12];
+        int e = 0;
+        int[] lowerCase = new int[8];
+        int l = 0;
+        for (int i = 0; i < length; i++) {
+            char c = sequence.charAt(i);
+            char upper = Character.toUpperCase(c);
+            int code = code(upper);
+            if (code < 0) {
+                if (e > 0 && exceptions[e - 2] == i && exceptions[e - 1] == upper) {
+                    exceptions[e - 2]++;
+                }
+                else {
+                    if (e + EXCEPTION_RUN > exceptions.length) {
+                        exceptions = Arrays.copyOf(exceptions, exceptions.length * 2);
+                    }
+                    exceptions[e++] = i;
+                    exceptions[e++] = i + 1;
+                    exceptions[e++] = upper;
+                }
+            }
+            else {
+                bases[i >> 2] |= code << ((i & 3) << 1);
+            }
+            if (c != upper) {
+                if (l > 0 && lowerCase[l - 1] == i) {
+                    lowerCase[l - 1]++;
+                }
+                else {
+                    if (l + LOWER_CASE_RUN > lowerCase.length) {
+                        lowerCase = Arrays.copyOf(lowerCase, lowerCase.length * 2);
+                    }
+                    lowerCase[l++] = i;
+                    lowerCase[l++] = i + 1;
+                }
+            }
+            // give up early on sequences that will not pack, e.g. protein sequences
+            if (4L * (e + l) > length / 2 + 64) {
+                return null;
+            }
+        }
+        return new PackedSequence(length, bases, 0, Arrays.copyOf(exceptions, e), Arrays.copyOf(lowerCase, l));
+    }
+
+    private static int code(final char base) {
+        switch (base) {
+        case 'A':
+            return 0;
+        case 'C':
+            return 1;
+        case 'G':
+            return 2;
+        case 'T':
+            return 3;
+        default:
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.lang.ref.WeakReference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.apache.spark.SparkConf;
+
+/**
+ * Page cache.
+ *
+ * <p>
+ * A least recently used cache of pages of encoded rows, shared by all explorer models in the
+ * driver, so that several explorer windows can not together exhaust its heap.  Pages are keyed
+ * by the identity of the dataset view they belong to and their range of rows, and the cache is
+ * bounded by the encoded size of the pages it holds.  Evicted pages are handed back to their
+ * owner, e.g. to be spilled to disk.  The cache records evictions, and hits and misses as reported
+ * by the owners of pages, see {@link #hit()} and {@link #miss(long)}, rather than every lookup, so
+ * that looking up pages as rows are painted does not skew the hit rate.
+ * </p>
+ *
+ * <p>
+ * The cache also holds the dictionaries for low-cardinality string columns, see {@link ColumnDictionary},
+ * shared by all pages encoded with them, so that pages of one explorer model may be decoded by another.
+ * </p>
+ *
+ * <p>
+ * The capacity of the cache is configured with the Spark configuration key
+ * <code>spark.adam.explorer.cache.size</code>, e.g. <code>--conf spark.adam.explorer.cache.size=256m</code>,
+ * by the first explorer model created.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class PageCache {
+    private final long capacity;
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private final Map<String, ColumnDictionary> dictionaries = new HashMap<String, ColumnDictionary>();
+    private final Map<Object, WeakReference<Object>> views = new WeakHashMap<Object, WeakReference<Object>>();
+
+    /** Shared page cache, if created. */
+    private static PageCache instance;
+
+    /** Spark configuration key for the capacity of the shared page cache. */
+    static final String CAPACITY = "spark.adam.explorer.cache.size";
+
+    /** Default capacity of the shared page cache. */
+    static final String DEFAULT_CAPACITY = "64m";
+
+
+    /**
+     * Create a new page cache with the specified capacity.
+     *
+     * @param capacity capacity, in bytes
+     */
+    PageCache(final long capacity) {
+        if (capacity < 0L) {
+            throw new IllegalArgumentException("capacity must be at least zero, was " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+
+    /**
+     * Return the page with the specified key, if any.  Does not record a hit or miss.
+     *
+     * @param key key
+     * @return the page with the specified key, or <code>null</code> if it is not in this cache
+     */
+    synchronized Object get(final Key key) {
+        Entry entry = entries.get(key);
+        return (entry == null) ? null : entry.page;
+    }
+
+    /**
+     * Record a hit, a row shown from a page in this cache without fetching it.
+     */
+    synchronized void hit() {
+        hits++;
+    }
+
+    /**
+     * Record the specified number of misses, rows fetched because they were not in this cache.
+     *
+     * @param count number of misses
+     */
+    synchronized void miss(final long count) {
+        misses += count;
+    }
+
+    /**
+     * Put the specified page in this cache, replacing any page with the same key, and evict least
+     * recently used pages until this cache is within its capacity.  Call again when a page
+     * changes size.  The specified page may be evicted immediately if it is larger than the capacity.
+     * The page is owned by the specified owner until another owner puts a page with the same key.
+     *
+     * @param key key
+     * @param page page, must not be null
+     * @param bytes estimated size of the page, in bytes
+     * @param owner owner of the page, must not be null
+     * @param evicted callback for the page when it is evicted, if any
+     */
+    void put(final Key key, final Object page, final long bytes, final Object owner, final Consumer<Object> evicted) {
+        List<Entry> evict = null;
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(page, bytes, owner, evicted));
+            if (previous != null) {
+                size -= previous.bytes;
+            }
+            size += bytes;
+
+            for (Iterator<Entry> i = entries.values().iterator(); size > capacity && i.hasNext(); ) {
+                Entry eldest = i.next();
+                i.remove();
+                size -= eldest.bytes;
+                evictions++;
+                if (evict == null) {
+                    evict = new ArrayList<Entry>();
+                }
+                evict.add(eldest);
+            }
+        }
+        // call back outside the lock, owners may be in other explorer windows
+        if (evict != null) {
+            for (Entry entry : evict) {
+                if (entry.evicted != null) {
+                    entry.evicted.accept(entry.page);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the pages with keys matching the specified predicate from this cache, without
+     * handing them back to their owners.
+     *
+     * @param predicate predicate, must not be null
+     */
+    synchronized void removeIf(final Predicate<Key> predicate) {
+        for (Iterator<Map.Entry<Key, Entry>> i = entries.entrySet().iterator(); i.hasNext(); ) {
+            Map.Entry<Key, Entry> entry = i.next();
+            if (predicate.test(entry.getKey())) {
+                size -= entry.getValue().bytes;
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove the pages owned by the specified owner from this cache, without handing them
+     * back to it.  Pages with the same keys put by other owners are kept.
+     *
+     * @param owner owner, must not be null
+     */
+    synchronized void removeAll(final Object owner) {
+        for (Iterator<Entry> i = entries.values().iterator(); i.hasNext(); ) {
+            Entry entry = i.next();
+            if (entry.owner == owner) {
+                size -= entry.bytes;
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Return the canonical instance of the specified identity of a dataset view, the first instance
+     * equal to it still in use, so that page cache keys compare views by identity on every lookup
+     * rather than by equals.  Intern the identity of a dataset view once, as it is set.
+     *
+     * @param view identity of a dataset view, must not be null
+     * @return the canonical instance of the specified identity of a dataset view
+     */
+    synchronized Object intern(final Object view) {
+        WeakReference<Object> reference = views.get(view);
+        Object canonical = (reference == null) ? null : reference.get();
+        if (canonical == null) {
+            views.put(view, new WeakReference<Object>(view));
+            canonical = view;
+        }
+        return canonical;
+    }
+
+    /**
+     * Return the dictionary for the specified column, creating it if necessary.
+     *
+     * @param column column name, must not be null
+     * @return the dictionary for the specified column
+     */
+    synchronized ColumnDictionary getDictionary(final String column) {
+        ColumnDictionary dictionary = dictionaries.get(column);
+        if (dictionary == null) {
+            dictionary = new ColumnDictionary();
+            dictionaries.put(column, dictionary);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Return the capacity of this cache, in bytes.
+     *
+     * @return the capacity of this cache, in bytes
+     */
+    long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Return the estimated size of the pages in this cache, in bytes.
+     *
+     * @return the estimated size of the pages in this cache, in bytes
+     */
+    synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Return the number of hits.
+     *
+     * @return the number of hits
+     */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Return the number of misses.
+     *
+     * @return the number of misses
+     */
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Return the number of evictions.
+     *
+     * @return the number of evictions
+     */
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Return the ratio of hits to lookups, or zero if there have been no lookups.
+     *
+     * @return the ratio of hits to lookups, or zero if there have been no lookups
+     */
+    synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return (lookups == 0L) ? 0.0d : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%.0f%% hits (%d of %d), %d evictions, %.1f of %.1f MB",
+                             100.0d * getHitRate(), hits, hits + misses, evictions, size / 1048576.0d, capacity / 1048576.0d);
+    }
+
+    /**
+     * Return the page cache shared by all explorer models, creating it with the capacity
+     * configured in the specified Spark configuration if necessary.
+     *
+     * @param conf Spark configuration, must not be null
+     * @return the page cache shared by all explorer models
+     */
+    static synchronized PageCache getInstance(final SparkConf conf) {
+        if (instance == null) {
+            instance = new PageCache(conf.getSizeAsBytes(CAPACITY, DEFAULT_CAPACITY));
+        }
+        return instance;
+    }
+
+    /**
+     * Return the page cache shared by all explorer models, if it has been created.
+     *
+     * @return the page cache shared by all explorer models, or <code>null</code>
+     */
+    static synchronized PageCache getInstance() {
+        return instance;
+    }
+
+
+    /**
+     * Page cache entry.
+     */
+    private static final class Entry {
+        private final Object page;
+        private final long bytes;
+        private final Object owner;
+        private final Consumer<Object> evicted;
+
+
+        /**
+         * Create a new page cache entry.
+         *
+         * @param page page
+         * @param bytes estimated size of the page, in bytes
+         * @param owner owner of the page
+         * @param evicted callback for the page when it is evicted, if any
+         */
+        Entry(final Object page, final long bytes, final Object owner, final Consumer<Object> evicted) {
+            this.page = page;
+            this.bytes = bytes;
+            this.owner = owner;
+            this.evicted = evicted;
+        }
+    }
+
+
+    /**
+     * Page cache key.
+     */
+    static final class Key {
+        private final Object view;
+        private final long first;
+        private final int rows;
+
+
+        /**
+         * Create a new page cache key.
+         *
+         * @param view identity of the dataset view, interned with {@link PageCache#intern(Object)}, must not be null
+         * @param first row number of the first row in the page
+         * @param rows number of rows in the page
+         */
+        Key(final Object view, final long first, final int rows) {
+            this.view = view;
+            this.first = first;
+            this.rows = rows;
+        }
+
+
+        /**
+         * Return the identity of the dataset view for this key.
+         *
+         * @return the identity of the dataset view for this key
+         */
+        Object getView() {
+            return view;
+        }
+
+        /**
+         * Return the row number of the first row in the page for this key.
+         *
+         * @return the row number of the first row in the page for this key
+         */
+        long getFirst() {
+            return first;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return first == key.first && rows == key.rows && view == key.view;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(view);
+            result = 31 * result + Long.hashCode(first);
+            return 31 * result + rows;
+        }
+    }
+}
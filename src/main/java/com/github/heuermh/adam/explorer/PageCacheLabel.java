@@ -0,0 +1,60 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import javax.swing.JLabel;
+import javax.swing.Timer;
+
+/**
+ * Page cache label.
+ *
+ * <p>
+ * Shows the hit rate, evictions, and size of the page cache shared by all explorer models,
+ * refreshed every second while the label is showing.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+class PageCacheLabel extends JLabel {
+    private final Timer timer;
+
+    /** Refresh interval, in milliseconds. */
+    private static final int REFRESH_INTERVAL = 1000;
+
+
+    /**
+     * Create a new page cache label for the specified page cache.
+     *
+     * @param cache page cache, must not be null
+     */
+    PageCacheLabel(final PageCache cache) {
+        super(cache.toString());
+        timer = new Timer(REFRESH_INTERVAL, event -> setText(cache.toString()));
+    }
+
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+}
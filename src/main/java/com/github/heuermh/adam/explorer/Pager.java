@@ -0,0 +1,78 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.util.Iterator;
+import java.util.List;
+
+import java.util.function.Consumer;
+
+/**
+ * Pager, keeps a cursor over the rows of a dataset view and fetches pages of rows after it.
+ *
+ * @param <T> element type
+ * @author  Michael Heuer
+ */
+interface Pager<T> {
+
+    /**
+     * Return true if there may be more rows after the cursor.
+     *
+     * @return true if there may be more rows after the cursor
+     */
+    boolean hasNext();
+
+    /**
+     * Move the cursor to the specified row.  This method may block until Spark job(s)
+     * complete, and should not be called on the event dispatch thread.
+     *
+     * @param row row, must be at least zero
+     * @return true if the specified row may exist
+     */
+    boolean seek(long row);
+
+    /**
+     * Fetch up to the specified number of rows after the cursor and advance the cursor past them.
+     * This method blocks until Spark job(s) complete, and should not be called on the event
+     * dispatch thread.
+     *
+     * @param count number of rows to fetch
+     * @return up to the specified number of rows after the cursor
+     */
+    List<T> next(int count);
+
+    /**
+     * Fetch up to the specified number of rows after the cursor and advance the cursor past them,
+     * passing batches of rows to the specified consumer in order as they arrive.  The consumer may
+     * be called from a Spark scheduler thread and should return quickly.  This method blocks until
+     * Spark job(s) complete, and should not be called on the event dispatch thread.
+     *
+     * @param count number of rows to fetch
+     * @param batches consumer of batches of rows, if any
+     * @return up to the specified number of rows after the cursor
+     */
+    List<T> next(int count, Consumer<List<T>> batches);
+
+    /**
+     * Return an iterator over all the rows in the dataset view in order, independent of the
+     * cursor.  Rows are fetched to the driver a partition at a time as the iterator advances,
+     * so that only one partition is held in memory.  The iterator blocks until Spark job(s)
+     * complete, and should not be advanced on the event dispatch thread.
+     *
+     * @return an iterator over all the rows in the dataset view in order
+     */
+    Iterator<T> iterator();
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+
+import org.apache.hadoop.fs.Path;
+
+import org.apache.parquet.hadoop.ParquetFileReader;
+
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+
+import org.apache.spark.sql.Dataset;
+
+import org.apache.spark.sql.catalyst.plans.logical.DeserializeToObject;
+import org.apache.spark.sql.catalyst.plans.logical.LogicalPlan;
+import org.apache.spark.sql.catalyst.plans.logical.Project;
+import org.apache.spark.sql.catalyst.plans.logical.SerializeFromObject;
+
+import org.apache.spark.sql.execution.datasources.HadoopFsRelation;
+import org.apache.spark.sql.execution.datasources.LogicalRelation;
+
+import org.apache.spark.sql.execution.datasources.parquet.ParquetFileFormat;
+
+import org.bdgenomics.adam.ds.GenomicDataset;
+
+/**
+ * Parquet row count.
+ *
+ * <p>
+ * Datasets loaded from Parquet and not since filtered or otherwise transformed have their
+ * exact row count in the row group metadata of their Parquet file footers, which can be
+ * read on the driver without running a Spark job.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class ParquetRowCount {
+
+    /** Maximum number of Parquet file footers read concurrently. */
+    private static final int THREADS = 16;
+
+
+    /**
+     * Private no-arg constructor.
+     */
+    private ParquetRowCount() {
+        // empty
+    }
+
+
+    /**
+     * Return the row count of the specified dataset from its Parquet file footers, or
+     * <code>PartitionIndex.UNKNOWN</code> if the specified dataset is not a plain scan of
+     * Parquet files or if the footers could not be read.  This method blocks while reading
+     * footers, and should not be called on the event dispatch thread.
+     *
+     * @param dataset dataset, must not be null
+     * @return the row count of the specified dataset from its Parquet file footers, or
+     *    <code>PartitionIndex.UNKNOWN</code>
+     */
+    static long count(final GenomicDataset<?, ?, ?> dataset) {
+        try {
+            Dataset<?> ds = dataset.dataset();
+            if (!isParquetScan(ds.queryExecution().optimizedPlan())) {
+                return PartitionIndex.UNKNOWN;
+            }
+            return count(ds.inputFiles(), ds.sparkSession().sparkContext().hadoopConfiguration());
+        }
+        catch (RuntimeException e) {
+            return PartitionIndex.UNKNOWN;
+        }
+    }
+
+    /**
+     * Return true if the specified plan reads every row of Parquet files without filtering.
+     */
+    private static boolean isParquetScan(final LogicalPlan plan) {
+        LogicalPlan p = plan;
+        while (p instanceof Project || p instanceof SerializeFromObject || p instanceof DeserializeToObject) {
+            p = p.children().head();
+        }
+        if (p instanceof LogicalRelation) {
+            LogicalRelation logicalRelation = (LogicalRelation) p;
+            if (logicalRelation.relation() instanceof HadoopFsRelation) {
+                return ((HadoopFsRelation) logicalRelation.relation()).fileFormat() instanceof ParquetFileFormat;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return true if the specified file is a Parquet summary file (<code>_metadata</code> or
+     * <code>_common_metadata</code>), which Spark lists but does not read rows from.
+     */
+    private static boolean isSummaryFile(final String file) {
+        String name = new Path(file).getName();
+        return name.startsWith("_") || name.startsWith(".");
+    }
+
+    private static long count(final String[] files, final Configuration conf) {
+        if (files.length == 0) {
+            return PartitionIndex.UNKNOWN;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(files.length, THREADS));
+        try {
+            List<Future<Long>> futures = new ArrayList<Future<Long>>(files.length);
+            for (final String file : files) {
+                if (isSummaryFile(file)) {
+                    continue;
+                }
+                futures.add(executor.submit(new Callable<Long>() {
+                        @Override
+                        public Long call() throws IOException {
+                            try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(new Path(file), conf))) {
+                                return reader.getRecordCount();
+                            }
+                        }
+                    }));
+            }
+            long count = 0L;
+            for (Future<Long> future : futures) {
+                count += future.get();
+            }
+            return count;
+        }
+        catch (InterruptedException | ExecutionException e) {
+            return PartitionIndex.UNKNOWN;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
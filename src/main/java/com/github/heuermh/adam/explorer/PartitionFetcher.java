@@ -0,0 +1,441 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.io.Serializable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import java.util.function.Consumer;
+
+import org.apache.spark.TaskContext;
+
+import org.apache.spark.api.java.JavaRDD;
+
+import scala.collection.Iterator;
+import scala.collection.JavaConversions;
+
+import scala.reflect.ClassTag;
+import scala.reflect.ClassTag$;
+
+import scala.runtime.AbstractFunction2;
+import scala.runtime.BoxedUnit;
+
+/**
+ * Partition fetcher.
+ *
+ * <p>
+ * Runs Spark jobs on selected partitions of an RDD only, via <code>SparkContext.runJob</code>
+ * over a partition subset, and records the row count of every partition read to exhaustion
+ * in a partition index.
+ * </p>
+ *
+ * @param <T> element type
+ * @author  Michael Heuer
+ */
+final class PartitionFetcher<T> {
+    private final JavaRDD<T> rdd;
+    private final PartitionIndex index;
+
+
+    /**
+     * Create a new partition fetcher for the specified RDD.
+     *
+     * @param rdd RDD, must not be null
+     */
+    PartitionFetcher(final JavaRDD<T> rdd) {
+        this(rdd, new PartitionIndex(rdd.getNumPartitions()));
+    }
+
+    /**
+     * Create a new partition fetcher for the specified RDD, sharing the specified partition
+     * row count index with another RDD with the same rows in the same partitions.
+     *
+     * @param rdd RDD, must not be null
+     * @param index partition row count index, must not be null
+     */
+    PartitionFetcher(final JavaRDD<T> rdd, final PartitionIndex index) {
+        if (index.partitions() != rdd.getNumPartitions()) {
+            throw new IllegalArgumentException("index partitions must match RDD partitions");
+        }
+        this.rdd = rdd;
+        this.index = index;
+    }
+
+
+    /**
+     * Return the RDD for this partition fetcher.
+     *
+     * @return the RDD for this partition fetcher
+     */
+    JavaRDD<T> getRdd() {
+        return rdd;
+    }
+
+    /**
+     * Return the partition row count index for this partition fetcher.
+     *
+     * @return the partition row count index for this partition fetcher
+     */
+    PartitionIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Fetch slices of the specified partitions in a single job.  This method blocks until
+     * the Spark job completes, and should not be called on the event dispatch thread.
+     *
+     * @param partitions partition indices to fetch
+     * @param skips number of rows to skip in each partition
+     * @param limit maximum number of rows to fetch from each partition
+     * @return slices of the specified partitions, in the same order
+     * @throws java.util.concurrent.CancellationException if the task on the current thread has been cancelled
+     */
+    List<Slice<T>> fetch(final int[] partitions, final long[] skips, final int limit) {
+        final List<Slice<T>> slices = new ArrayList<Slice<T>>(partitions.length);
+        fetch(partitions, skips, limit, slice -> slices.add(slice));
+        return slices;
+    }
+
+    /**
+     * Fetch slices of the specified partitions in a single job, passing each slice to the
+     * specified consumer in partition order as soon as it and the slices before it have
+     * arrived, rather than when the whole job completes.  The consumer is called from a
+     * Spark scheduler thread and should return quickly.  This method blocks until the Spark
+     * job completes, and should not be called on the event dispatch thread.
+     *
+     * @param partitions partition indices to fetch
+     * @param skips number of rows to skip in each partition
+     * @param limit maximum number of rows to fetch from each partition
+     * @param consumer consumer of slices, must not be null
+     * @throws java.util.concurrent.CancellationException if the task on the current thread has been cancelled
+     */
+    void fetch(final int[] partitions, final long[] skips, final int limit, final Consumer<Slice<T>> consumer) {
+        JobGroup.checkCancelled(rdd.context());
+        rdd.context().runJob(rdd.rdd(), new SliceFunction<T>(partitions, skips, limit), toSeq(partitions), new InOrder(partitions.length, consumer), PartitionFetcher.<Slice<T>>classTag(Slice.class));
+    }
+
+    /**
+     * Fetch a random sample of rows from each of the specified partitions in a single job,
+     * chosen by seeded reservoir sampling over at most the first <code>prefix</code> rows of
+     * each partition, so that no task reads more than <code>prefix</code> rows.  Sampled rows
+     * are kept in partition order, and sampled slices are never exhausted, so that no row
+     * counts are recorded.  This method blocks until the Spark job completes, and should not
+     * be called on the event dispatch thread.
+     *
+     * @param partitions partition indices to sample
+     * @param seeds seed for sampling each partition
+     * @param limit maximum number of rows to sample from each partition
+     * @param prefix maximum number of rows to read from each partition
+     * @return slices of the specified partitions, in the same order
+     * @throws java.util.concurrent.CancellationException if the task on the current thread has been cancelled
+     */
+    List<Slice<T>> sample(final int[] partitions, final long[] seeds, final int limit, final long prefix) {
+        final List<Slice<T>> slices = new ArrayList<Slice<T>>(partitions.length);
+        JobGroup.checkCancelled(rdd.context());
+        rdd.context().runJob(rdd.rdd(), new SampleFunction<T>(partitions, seeds, limit, prefix), toSeq(partitions), new InOrder(partitions.length, slice -> slices.add(slice)), PartitionFetcher.<Slice<T>>classTag(Slice.class));
+        return slices;
+    }
+
+    /**
+     * Count the rows in the specified partitions in a single job, recording the row counts in
+     * the partition index.  This method blocks until the Spark job completes, and should not be
+     * called on the event dispatch thread.
+     *
+     * @param partitions partition indices to count
+     * @return the total row count of the specified partitions
+     * @throws java.util.concurrent.CancellationException if the task on the current thread has been cancelled
+     */
+    long count(final int[] partitions) {
+        if (partitions.length == 0) {
+            return 0L;
+        }
+        JobGroup.checkCancelled(rdd.context());
+        long[][] result = (long[][]) rdd.context().runJob(rdd.rdd(), new CountFunction<T>(), toSeq(partitions), PartitionFetcher.<long[]>classTag(long[].class));
+
+        long total = 0L;
+        for (long[] count : result) {
+            index.setSize((int) count[0], count[1]);
+            total += count[1];
+        }
+        return total;
+    }
+
+    /**
+     * Count the rows in all partitions with unknown row counts in a single job and return
+     * the total row count.  This method blocks until the Spark job completes, and should not be
+     * called on the event dispatch thread.
+     *
+     * @return the total row count
+     */
+    long count() {
+        count(index.unknown(index.partitions()));
+        return index.total();
+    }
+
+    private static scala.collection.Seq<Object> toSeq(final int[] partitions) {
+        List<Object> list = new ArrayList<Object>(partitions.length);
+        for (int partition : partitions) {
+            list.add(Integer.valueOf(partition));
+        }
+        return JavaConversions.asScalaBuffer(list);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static <U> ClassTag<U> classTag(final Class<?> c) {
+        return (ClassTag<U>) (ClassTag) ClassTag$.MODULE$.apply(c);
+    }
+
+
+    /**
+     * Slice of a partition.
+     *
+     * @param <T> element type
+     */
+    static final class Slice<T> implements Serializable {
+        private final int partition;
+        private final long skipped;
+        private final ArrayList<T> rows;
+        private final boolean exhausted;
+
+
+        /**
+         * Create a new slice.
+         *
+         * @param partition partition index
+         * @param skipped number of rows skipped before the rows in this slice
+         * @param rows rows in this slice
+         * @param exhausted true if the partition has no rows after those in this slice
+         */
+        Slice(final int partition, final long skipped, final ArrayList<T> rows, final boolean exhausted) {
+            this.partition = partition;
+            this.skipped = skipped;
+            this.rows = rows;
+            this.exhausted = exhausted;
+        }
+
+
+        /**
+         * Return the partition index for this slice.
+         *
+         * @return the partition index for this slice
+         */
+        int getPartition() {
+            return partition;
+        }
+
+        /**
+         * Return the number of rows skipped before the rows in this slice.
+         *
+         * @return the number of rows skipped before the rows in this slice
+         */
+        long getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Return the rows in this slice.
+         *
+         * @return the rows in this slice
+         */
+        List<T> getRows() {
+            return rows;
+        }
+
+        /**
+         * Return true if the partition has no rows after those in this slice.
+         *
+         * @return true if the partition has no rows after those in this slice
+         */
+        boolean isExhausted() {
+            return exhausted;
+        }
+    }
+
+
+    /**
+     * Result handler that records partition row counts and passes slices to a consumer in order.
+     */
+    private final class InOrder extends AbstractFunction2<Object, Slice<T>, BoxedUnit> {
+        private final Slice<T>[] slices;
+        private final Consumer<Slice<T>> consumer;
+        private int next;
+
+
+        /**
+         * Create a new in order result handler.
+         *
+         * @param size number of slices
+         * @param consumer consumer of slices
+         */
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        InOrder(final int size, final Consumer<Slice<T>> consumer) {
+            this.slices = (Slice<T>[]) new Slice[size];
+            this.consumer = consumer;
+        }
+
+
+        @Override
+        public synchronized BoxedUnit apply(final Object i, final Slice<T> slice) {
+            if (slice.isExhausted()) {
+                index.setSize(slice.getPartition(), slice.getSkipped() + slice.getRows().size());
+            }
+            slices[((Integer) i).intValue()] = slice;
+            while (next < slices.length && slices[next] != null) {
+                consumer.accept(slices[next]);
+                slices[next] = null;
+                next++;
+            }
+            return BoxedUnit.UNIT;
+        }
+    }
+
+
+    /**
+     * Slice function.
+     */
+    private static final class SliceFunction<T> extends AbstractFunction2<TaskContext, Iterator<T>, Slice<T>> implements Serializable {
+        private final int[] partitions;
+        private final long[] skips;
+        private final int limit;
+
+
+        /**
+         * Create a new slice function.
+         *
+         * @param partitions partition indices
+         * @param skips number of rows to skip in each partition
+         * @param limit maximum number of rows per partition
+         */
+        SliceFunction(final int[] partitions, final long[] skips, final int limit) {
+            this.partitions = partitions;
+            this.skips = skips;
+            this.limit = limit;
+        }
+
+
+        @Override
+        public Slice<T> apply(final TaskContext context, final Iterator<T> iterator) {
+            int partition = context.partitionId();
+            long skip = 0L;
+            for (int i = 0; i < partitions.length; i++) {
+                if (partitions[i] == partition) {
+                    skip = skips[i];
+                }
+            }
+            long skipped = 0L;
+            while (skipped < skip && iterator.hasNext()) {
+                iterator.next();
+                skipped++;
+            }
+            ArrayList<T> rows = new ArrayList<T>(Math.min(limit, 1024));
+            while (rows.size() < limit && iterator.hasNext()) {
+                rows.add(iterator.next());
+            }
+            return new Slice<T>(partition, skipped, rows, !iterator.hasNext());
+        }
+    }
+
+
+    /**
+     * Sample function.
+     */
+    private static final class SampleFunction<T> extends AbstractFunction2<TaskContext, Iterator<T>, Slice<T>> implements Serializable {
+        private final int[] partitions;
+        private final long[] seeds;
+        private final int limit;
+        private final long prefix;
+
+
+        /**
+         * Create a new sample function.
+         *
+         * @param partitions partition indices
+         * @param seeds seed for sampling each partition
+         * @param limit maximum number of rows to sample per partition
+         * @param prefix maximum number of rows to read per partition
+         */
+        SampleFunction(final int[] partitions, final long[] seeds, final int limit, final long prefix) {
+            this.partitions = partitions;
+            this.seeds = seeds;
+            this.limit = limit;
+            this.prefix = prefix;
+        }
+
+
+        @Override
+        public Slice<T> apply(final TaskContext context, final Iterator<T> iterator) {
+            int partition = context.partitionId();
+            long seed = 0L;
+            for (int i = 0; i < partitions.length; i++) {
+                if (partitions[i] == partition) {
+                    seed = seeds[i];
+                }
+            }
+            Random random = new Random(seed);
+            List<T> reservoir = new ArrayList<T>(Math.min(limit, 1024));
+            long[] positions = new long[limit];
+            long read = 0L;
+            while (read < prefix && iterator.hasNext()) {
+                T row = iterator.next();
+                if (reservoir.size() < limit) {
+                    positions[reservoir.size()] = read;
+                    reservoir.add(row);
+                }
+                else {
+                    long j = (long) (random.nextDouble() * (read + 1));
+                    if (j < limit) {
+                        positions[(int) j] = read;
+                        reservoir.set((int) j, row);
+                    }
+                }
+                read++;
+            }
+
+            // restore partition order
+            Integer[] order = new Integer[reservoir.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = Integer.valueOf(i);
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(positions[a.intValue()], positions[b.intValue()]));
+            ArrayList<T> rows = new ArrayList<T>(order.length);
+            for (Integer i : order) {
+                rows.add(reservoir.get(i.intValue()));
+            }
+            return new Slice<T>(partition, 0L, rows, false);
+        }
+    }
+
+
+    /**
+     * Count function, returns a two element array of partition index and row count.
+     */
+    private static final class CountFunction<T> extends AbstractFunction2<TaskContext, Iterator<T>, long[]> implements Serializable {
+
+        @Override
+        public long[] apply(final TaskContext context, final Iterator<T> iterator) {
+            long count = 0L;
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+            return new long[] { context.partitionId(), count };
+        }
+    }
+}
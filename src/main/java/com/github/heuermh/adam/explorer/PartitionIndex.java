@@ -0,0 +1,200 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.util.Arrays;
+
+/**
+ * Partition row count index.
+ *
+ * <p>
+ * Row counts are filled in lazily, as partitions are read to exhaustion by page fetches
+ * or counted by a count pass.  Once the row counts of all partitions before a row are known,
+ * that row can be located by partition index and offset without scanning.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class PartitionIndex {
+    private final long[] sizes;
+
+    /** Size of a partition with an unknown row count. */
+    static final long UNKNOWN = -1L;
+
+
+    /**
+     * Create a new partition index with the specified number of partitions.
+     *
+     * @param partitions number of partitions, must be at least zero
+     */
+    PartitionIndex(final int partitions) {
+        sizes = new long[partitions];
+        Arrays.fill(sizes, UNKNOWN);
+    }
+
+
+    /**
+     * Return the number of partitions in this index.
+     *
+     * @return the number of partitions in this index
+     */
+    int partitions() {
+        return sizes.length;
+    }
+
+    /**
+     * Return the row count of the specified partition, or <code>UNKNOWN</code> if not yet known.
+     *
+     * @param partition partition index
+     * @return the row count of the specified partition, or <code>UNKNOWN</code> if not yet known
+     */
+    synchronized long size(final int partition) {
+        return sizes[partition];
+    }
+
+    /**
+     * Set the row count of the specified partition.
+     *
+     * @param partition partition index
+     * @param size row count, must be at least zero
+     */
+    synchronized void setSize(final int partition, final long size) {
+        if (size < 0L) {
+            throw new IllegalArgumentException("size must be at least zero, was " + size);
+        }
+        sizes[partition] = size;
+    }
+
+    /**
+     * Return true if the row counts of all partitions are known.
+     *
+     * @return true if the row counts of all partitions are known
+     */
+    synchronized boolean isComplete() {
+        for (long size : sizes) {
+            if (size == UNKNOWN) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the total row count, or <code>UNKNOWN</code> if the row counts of some partitions are not yet known.
+     *
+     * @return the total row count, or <code>UNKNOWN</code> if the row counts of some partitions are not yet known
+     */
+    synchronized long total() {
+        long total = 0L;
+        for (long size : sizes) {
+            if (size == UNKNOWN) {
+                return UNKNOWN;
+            }
+            total += size;
+        }
+        return total;
+    }
+
+    /**
+     * Return the indices of up to <code>limit</code> partitions with unknown row counts, in order.
+     *
+     * @param limit maximum number of partition indices to return
+     * @return the indices of up to <code>limit</code> partitions with unknown row counts, in order
+     */
+    synchronized int[] unknown(final int limit) {
+        int[] unknown = new int[Math.min(limit, sizes.length)];
+        int n = 0;
+        for (int i = 0; i < sizes.length && n < unknown.length; i++) {
+            if (sizes[i] == UNKNOWN) {
+                unknown[n++] = i;
+            }
+        }
+        return Arrays.copyOf(unknown, n);
+    }
+
+    /**
+     * Return the indices of up to <code>limit</code> partitions with unknown row counts, spread
+     * evenly across all partitions with unknown row counts, in order.
+     *
+     * @param limit maximum number of partition indices to return
+     * @return the indices of up to <code>limit</code> partitions with unknown row counts, spread
+     *    evenly across all partitions with unknown row counts
+     */
+    synchronized int[] sample(final int limit) {
+        int[] unknown = unknown(sizes.length);
+        if (unknown.length <= limit) {
+            return unknown;
+        }
+        int[] sample = new int[limit];
+        for (int i = 0; i < limit; i++) {
+            sample[i] = unknown[(int) (((long) i * unknown.length) / limit)];
+        }
+        return sample;
+    }
+
+    /**
+     * Estimate the total row count from the row counts known so far, treating the partitions
+     * with known row counts as a sample of all partitions.
+     *
+     * @return a two element array of estimated total row count and the half width of its
+     *    95% confidence interval, or <code>null</code> if no row counts are known
+     */
+    synchronized double[] estimate() {
+        int known = 0;
+        double sum = 0.0d;
+        double sumOfSquares = 0.0d;
+        for (long size : sizes) {
+            if (size != UNKNOWN) {
+                known++;
+                sum += size;
+                sumOfSquares += (double) size * size;
+            }
+        }
+        if (known == 0) {
+            return null;
+        }
+        int unknown = sizes.length - known;
+        double mean = sum / known;
+        double variance = (known > 1) ? Math.max(0.0d, (sumOfSquares - known * mean * mean) / (known - 1)) : mean * mean;
+
+        // total of unknown partitions estimated as unknown * mean, with finite population correction
+        double standardError = unknown * Math.sqrt(variance / known * ((double) unknown / sizes.length));
+        return new double[] { sum + unknown * mean, 1.96d * standardError };
+    }
+
+    /**
+     * Locate the specified row by partition index and offset into that partition using cumulative
+     * partition row counts.  Rows past the end are located at partition index <code>partitions()</code>
+     * and offset zero.
+     *
+     * @param row row, must be at least zero
+     * @return a two element array of partition index and offset, or <code>null</code> if the
+     *    row counts of partitions before the specified row are not yet known
+     */
+    synchronized long[] locate(final long row) {
+        long remaining = row;
+        for (int i = 0; i < sizes.length; i++) {
+            if (sizes[i] == UNKNOWN) {
+                return null;
+            }
+            if (remaining < sizes[i]) {
+                return new long[] { i, remaining };
+            }
+            remaining -= sizes[i];
+        }
+        return new long[] { sizes.length, 0L };
+    }
+}
@@ -18,7 +18,6 @@ package com.github.heuermh.adam.explorer;
 import javax.swing.border.EmptyBorder;
 
 import ca.odell.glazedlists.EventList;
-import ca.odell.glazedlists.GlazedLists;
 
 import ca.odell.glazedlists.gui.TableFormat;
 
@@ -57,7 +56,7 @@ final class ProcessingStepView extends LabelFieldPanel {
     static class ProcessingStepTable extends ExplorerTable<ProcessingStep> {
         private static final String[] PROPERTY_NAMES = { "id", "previousId", "programName", "version", "commandLine", "description" };
         private static final String[] COLUMN_LABELS = { "Step", "Previous Step", "Program Name", "Version", "Command Line", "Description" };
-        private static final TableFormat<ProcessingStep> TABLE_FORMAT = GlazedLists.tableFormat(ProcessingStep.class, PROPERTY_NAMES, COLUMN_LABELS);
+        private static final TableFormat<ProcessingStep> TABLE_FORMAT = AccessorTableFormat.create(ProcessingStep.class, PROPERTY_NAMES, COLUMN_LABELS);
 
         /**
          * Create a new processing step table with the specified processing steps.
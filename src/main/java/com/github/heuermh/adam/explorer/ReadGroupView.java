@@ -18,7 +18,6 @@ package com.github.heuermh.adam.explorer;
 import javax.swing.border.EmptyBorder;
 
 import ca.odell.glazedlists.EventList;
-import ca.odell.glazedlists.GlazedLists;
 
 import ca.odell.glazedlists.gui.TableFormat;
 
@@ -57,7 +56,7 @@ final class ReadGroupView extends LabelFieldPanel {
     static class ReadGroupTable extends ExplorerTable<ReadGroup> {
         private static final String[] PROPERTY_NAMES = { "id", "sampleId", "description", "sequencingCenter", "runDateEpoch", "flowOrder", "keySequence", "library", "predictedMedianInsertSize", "platform", "platformModel", "platformUnit" };
         private static final String[] COLUMN_LABELS = { "Identifier", "Sample", "Description", "Sequencing Center", "Run Date", "Flow Order", "Key Sequence", "Library", "Insert Size", "Platform", "Platform Model", "Platform Unit" };
-        private static final TableFormat<ReadGroup> TABLE_FORMAT = GlazedLists.tableFormat(ReadGroup.class, PROPERTY_NAMES, COLUMN_LABELS);
+        private static final TableFormat<ReadGroup> TABLE_FORMAT = AccessorTableFormat.create(ReadGroup.class, PROPERTY_NAMES, COLUMN_LABELS);
 
         /**
          * Create a new read group table with the specified read groups.
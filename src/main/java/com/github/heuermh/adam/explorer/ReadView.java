@@ -16,14 +16,14 @@
 package com.github.heuermh.adam.explorer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import java.util.concurrent.ExecutionException;
-
 import java.util.stream.Collectors;
 
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
-import javax.swing.SwingWorker;
 
 import javax.swing.border.EmptyBorder;
 
@@ -63,6 +63,12 @@ final class ReadView extends LabelFieldPanel {
     private final ReadModel model;
     private final ReadTable table;
 
+    /** Facet property names. */
+    private static final String[] FACET_PROPERTY_NAMES = { "alphabet", "sampleId" };
+
+    /** Facet labels. */
+    private static final String[] FACET_LABELS = { "Alphabet", "Sample" };
+
     /**
      * Create a new read view with the specified dataset.
      *
@@ -76,6 +82,13 @@ final class ReadView extends LabelFieldPanel {
         model.take(10);
     }
 
+    /**
+     * Cancel any Spark jobs running for this view.
+     */
+    void cancel() {
+        model.cancel();
+    }
+
     private void layoutComponents() {
         JTabbedPane tabbedPane = new JTabbedPane();
         tabbedPane.add("Reads", layoutReadView());
@@ -88,19 +101,28 @@ final class ReadView extends LabelFieldPanel {
         LabelFieldPanel panel = new LabelFieldPanel();
         panel.setOpaque(false);
         panel.setBorder(new EmptyBorder(12, 12, 12, 12));
-        panel.addField("Read count:", new DatasetCountLabel(model.getDataset()));
+        panel.addField("Read count:", new DatasetCountLabel(model));
+        panel.addField("Page cache:", new PageCacheLabel(PageCache.getInstance()));
         panel.addField("Reads currently viewing:", new CountLabel<Read>(model.getReads()));
+        FilterBar filterBar = new FilterBar(model, ReadTable.PROPERTY_NAMES, ReadTable.COLUMN_LABELS);
+        panel.addField("Filter:", filterBar);
+        panel.addField("Sort:", new SortBar(model, ReadTable.PROPERTY_NAMES, ReadTable.COLUMN_LABELS));
         panel.addSpacing(12);
-        panel.addFinalField(table);
+        JScrollPane facets = new JScrollPane(new FacetPanel(model, FACET_PROPERTY_NAMES, FACET_LABELS, filterBar::update));
+        facets.setBorder(null);
+        facets.setOpaque(false);
+        facets.getViewport().setOpaque(false);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, facets, table);
+        splitPane.setBorder(null);
+        splitPane.setOpaque(false);
+        panel.addFinalField(splitPane);
         return panel;
     }
 
     /**
      * Read model.
      */
-    static class ReadModel {
-        private final ReadDataset dataset;
-        private final EventList<Read> reads;
+    static class ReadModel extends ExplorerModel<Read, ReadDataset> {
         private final EventList<Reference> references;
         private final EventList<Sample> samples;
 
@@ -111,8 +133,8 @@ final class ReadView extends LabelFieldPanel {
          * @param dataset dataset, must not be null
          */
         ReadModel(final ReadDataset dataset) {
-            this.dataset = dataset;
-            reads = GlazedLists.eventList(new ArrayList<Read>());
+            super(dataset, new ColumnProjection<Read>(Read.getClassSchema(), ReadTable.PROPERTY_NAMES)
+                  .truncate("sequence", SequenceCellRenderer.PREVIEW_LENGTH + 1));
 
             List<SequenceRecord> s = JavaConversions.seqAsJavaList(dataset.references().records());;
             references = GlazedLists.eventList(s.stream().map(v -> v.toADAMReference()).collect(Collectors.toList()));
@@ -120,40 +142,8 @@ final class ReadView extends LabelFieldPanel {
             samples = GlazedLists.eventList(JavaConversions.seqAsJavaList(dataset.samples()));
         }
 
-        void take(final int take) {
-            new SwingWorker<List<Read>, Void>() {
-                @Override
-                public List<Read> doInBackground() {
-                    return dataset.jrdd().take(take);
-                }
-
-                @Override
-                public void done() {
-                    try {
-                        List<Read> result = get();
-
-                        reads.getReadWriteLock().writeLock().lock();
-                        try {
-                            reads.clear();
-                            reads.addAll(result);
-                        }
-                        finally {
-                            reads.getReadWriteLock().writeLock().unlock();
-                        }
-                    }
-                    catch (InterruptedException | ExecutionException e) {
-                        // ignore
-                    }
-                }
-            }.execute();
-        }
-
-        ReadDataset getDataset() {
-            return dataset;
-        }
-
         EventList<Read> getReads() {
-            return reads;
+            return getElements();
         }
 
         EventList<Reference> getReferences() {
@@ -172,7 +162,7 @@ final class ReadView extends LabelFieldPanel {
         private final ReadModel model;
         private static final String[] PROPERTY_NAMES = { "name", "description", "sampleId", "alphabet", "length", "sequence", "qualityScores" };
         private static final String[] COLUMN_LABELS = { "Name", "Description", "Sample", "Alphabet", "Length", "Sequence", "Quality Scores" };
-        private static final TableFormat<Read> TABLE_FORMAT = GlazedLists.tableFormat(Read.class, PROPERTY_NAMES, COLUMN_LABELS);
+        private static final TableFormat<Read> TABLE_FORMAT = AccessorTableFormat.create(Read.class, PROPERTY_NAMES, COLUMN_LABELS);
 
 
         /**
@@ -181,16 +171,27 @@ final class ReadView extends LabelFieldPanel {
          * @param model model, must not be null
          */
         ReadTable(final ReadModel model) {
-            super("Reads:", model.getReads(), TABLE_FORMAT);
+            super("Reads:", model, TABLE_FORMAT);
             this.model = model;
 
             StripeTableCellRenderer renderer = new StripeTableCellRenderer();
             getTable().setDefaultRenderer(Alphabet.class, renderer);
+            int sequenceColumn = Arrays.asList(PROPERTY_NAMES).indexOf("sequence");
+            setSequenceColumn(sequenceColumn);
+            getTable().getColumnModel().getColumn(sequenceColumn).setCellRenderer(new SequenceCellRenderer());
         }
 
 
         @Override
         protected String transferableString(final Read r) {
+            return Joiner
+                .on("\t")
+                .useForNull("")
+                .join(r.getName(), r.getDescription(), r.getSampleId(), r.getAlphabet(), r.getLength(), SequenceCellRenderer.preview(r.getSequence()), r.getQualityScores());
+        }
+
+        @Override
+        protected String exportString(final Read r) {
             return Joiner
                 .on("\t")
                 .useForNull("")
@@ -198,13 +199,21 @@ final class ReadView extends LabelFieldPanel {
         }
 
         @Override
-        public void add() {
-            if (model.getReads().isEmpty()) {
-                model.take(10);
+        protected void open(final Read r) {
+            if (r.getName() == null || r.getLength() == null) {
+                return;
             }
-            else {
-                model.take(model.getReads().size() * 2);
+            List<ColumnFilter> key = new ArrayList<ColumnFilter>();
+            key.add(new ColumnFilter("name", ColumnFilter.Operator.EQUAL, r.getName()));
+            if (r.getSampleId() != null) {
+                key.add(new ColumnFilter("sampleId", ColumnFilter.Operator.EQUAL, r.getSampleId()));
             }
+            SequenceViewer.show(r.getName(), r.getLength(), (start, length) -> model.substring(key, "sequence", start, length));
+        }
+
+        @Override
+        public void add() {
+            model.next(ExplorerModel.PAGE_SIZE);
         }
     }
 }
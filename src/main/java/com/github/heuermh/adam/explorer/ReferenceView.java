@@ -18,7 +18,6 @@ package com.github.heuermh.adam.explorer;
 import javax.swing.border.EmptyBorder;
 
 import ca.odell.glazedlists.EventList;
-import ca.odell.glazedlists.GlazedLists;
 
 import ca.odell.glazedlists.gui.TableFormat;
 
@@ -57,7 +56,7 @@ final class ReferenceView extends LabelFieldPanel {
     static class ReferenceTable extends ExplorerTable<Reference> {
         private static final String[] PROPERTY_NAMES = { "index", "name", "length", "assembly", "species", "md5", "sourceUri", "sourceAccessions"};
         private static final String[] COLUMN_LABELS = { "Index", "Name", "Length", "Assembly", "Species", "Checksum (md5)", "Source URI", "Source Accessions" };
-        private static final TableFormat<Reference> TABLE_FORMAT = GlazedLists.tableFormat(Reference.class, PROPERTY_NAMES, COLUMN_LABELS);
+        private static final TableFormat<Reference> TABLE_FORMAT = AccessorTableFormat.create(Reference.class, PROPERTY_NAMES, COLUMN_LABELS);
 
         /**
          * Create a new reference table with the specified references.
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.awt.Toolkit;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.JTextField;
+
+/**
+ * Region field, restricts the rows in an explorer model to those overlapping
+ * a locus in <code>chr:start-end</code> format.
+ *
+ * @author  Michael Heuer
+ */
+class RegionField extends JTextField {
+
+    /**
+     * Create a new region field for the specified model.
+     *
+     * @param model model, must not be null
+     */
+    RegionField(final ExplorerModel<?, ?> model) {
+        super(24);
+        setToolTipText("Locus, e.g. chr1:1,000,000-1,010,000; clear to show all rows");
+        addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    if (getText().trim().isEmpty()) {
+                        model.setRegion(null);
+                        return;
+                    }
+                    try {
+                        model.setRegion(RegionFilter.parse(getText()));
+                    }
+                    catch (IllegalArgumentException e) {
+                        Toolkit.getDefaultToolkit().beep();
+                    }
+                }
+            });
+    }
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import static org.apache.spark.sql.functions.col;
+
+import java.io.Serializable;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.spark.api.java.JavaRDD;
+
+import org.apache.spark.rdd.PartitionPruningRDD;
+
+import org.bdgenomics.adam.ds.DatasetBoundGenomicDataset;
+import org.bdgenomics.adam.ds.GenomicDataset;
+
+import org.bdgenomics.adam.models.ReferenceRegion;
+import org.bdgenomics.adam.models.SequenceRecord;
+
+import org.bdgenomics.formats.avro.Strand;
+
+import scala.Option;
+import scala.Tuple2;
+
+import scala.collection.JavaConversions;
+
+import scala.runtime.AbstractFunction1;
+
+/**
+ * Region filter.
+ *
+ * <p>
+ * Filters datasets to records overlapping a genomic region, using the cheapest
+ * strategy available for the dataset:
+ * <ul>
+ * <li>partitioned Parquet, via ADAM's binned partition pruning in <code>filterByOverlappingRegion</code></li>
+ * <li>other Parquet, via a Spark SQL predicate on <code>referenceName</code>, <code>start</code> and <code>end</code>,
+ *     which is pushed down to Parquet row group statistics</li>
+ * <li>sorted datasets with a partition map, via <code>filterByOverlappingRegion</code> on only those
+ *     partitions whose range can overlap the region</li>
+ * <li>otherwise, via <code>filterByOverlappingRegion</code></li>
+ * </ul>
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class RegionFilter {
+
+    /**
+     * Private no-arg constructor.
+     */
+    private RegionFilter() {
+        // empty
+    }
+
+
+    /**
+     * Parse the specified locus, in <code>name</code>, <code>name:position</code>, or
+     * <code>name:start-end</code> format with one-based, fully closed coordinates, into a
+     * reference region.
+     *
+     * @param locus locus to parse, must not be null
+     * @return the specified locus parsed into a reference region
+     * @throws IllegalArgumentException if the specified locus could not be parsed
+     */
+    static ReferenceRegion parse(final String locus) {
+        String value = locus.trim().replace(",", "");
+        int colon = value.lastIndexOf(':');
+        if (colon < 0) {
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException("locus must not be empty");
+            }
+            return ReferenceRegion.all(value, Strand.INDEPENDENT);
+        }
+        String name = value.substring(0, colon);
+        String range = value.substring(colon + 1);
+        int dash = range.indexOf('-');
+        try {
+            long start = Long.parseLong((dash < 0) ? range : range.substring(0, dash));
+            long end = (dash < 0) ? start : Long.parseLong(range.substring(dash + 1));
+            if (name.isEmpty() || start < 1L || end < start) {
+                throw new IllegalArgumentException("could not parse locus " + locus);
+            }
+            return ReferenceRegion.apply(name, start - 1L, end, Strand.INDEPENDENT);
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("could not parse locus " + locus, e);
+        }
+    }
+
+    /**
+     * Filter the specified dataset to records overlapping the specified region.
+     *
+     * @param <E> element type
+     * @param dataset dataset to filter, must not be null
+     * @param region region, must not be null
+     * @return the specified dataset filtered to records overlapping the specified region
+     */
+    static <E> GenomicDataset<E, ?, ?> filter(final GenomicDataset<E, ?, ?> dataset, final ReferenceRegion region) {
+        if (isPartitioned(dataset)) {
+            return dataset.filterByOverlappingRegion(region);
+        }
+        if (dataset.optPartitionMap().isEmpty() && isParquet(dataset)) {
+            return dataset.transformDataFrame(df -> df.filter(col("referenceName").equalTo(region.referenceName())
+                                                              .and(col("start").lt(region.end()))
+                                                              .and(col("end").gt(region.start()))));
+        }
+        return dataset.filterByOverlappingRegion(region);
+    }
+
+    /**
+     * Return the specified RDD over the specified filtered dataset, pruned to those partitions that
+     * can overlap the specified region if the dataset has a partition map.
+     *
+     * @param <E> element type
+     * @param rdd RDD over the specified filtered dataset, with the same partitions, must not be null
+     * @param filtered dataset filtered to the specified region, must not be null
+     * @param region region, must not be null
+     * @return the specified RDD over the specified filtered dataset, pruned to those partitions that
+     *    can overlap the specified region if the dataset has a partition map
+     */
+    static <E> JavaRDD<E> rdd(final JavaRDD<E> rdd, final GenomicDataset<?, ?, ?> filtered, final ReferenceRegion region) {
+        Option<Option<Tuple2<ReferenceRegion, ReferenceRegion>>[]> partitionMap = filtered.optPartitionMap();
+        if (partitionMap.isEmpty() || partitionMap.get().length != rdd.getNumPartitions()) {
+            return rdd;
+        }
+        boolean[] keep = prune(partitionMap.get(), filtered, region);
+        if (keep == null) {
+            return rdd;
+        }
+        return PartitionPruningRDD.create(rdd.rdd(), new KeepPartition(keep)).toJavaRDD();
+    }
+
+    /**
+     * Return true if the specified dataset was loaded from partitioned Parquet.  Datasets
+     * derived from Dataset transformations may report themselves as partitioned without
+     * having the <code>positionBin</code> column partitioned Parquet filters on.
+     */
+    private static boolean isPartitioned(final GenomicDataset<?, ?, ?> dataset) {
+        if (dataset instanceof DatasetBoundGenomicDataset) {
+            DatasetBoundGenomicDataset<?, ?, ?> datasetBound = (DatasetBoundGenomicDataset<?, ?, ?>) dataset;
+            return datasetBound.isPartitioned()
+                && datasetBound.optPartitionBinSize().isDefined()
+                && Arrays.asList(dataset.dataset().columns()).contains("positionBin");
+        }
+        return false;
+    }
+
+    private static boolean isParquet(final GenomicDataset<?, ?, ?> dataset) {
+        try {
+            return dataset.dataset().inputFiles().length > 0;
+        }
+        catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return which partitions in the specified partition map can overlap the specified region,
+     * or <code>null</code> if the order of reference names in the partition map is not known.
+     */
+    private static boolean[] prune(final Option<Tuple2<ReferenceRegion, ReferenceRegion>>[] partitionMap,
+                                   final GenomicDataset<?, ?, ?> dataset,
+                                   final ReferenceRegion region) {
+
+        // datasets may be sorted in sequence dictionary order or lexicographically
+        List<SequenceRecord> records = JavaConversions.seqAsJavaList(dataset.references().records());
+        Comparator<String> dictionaryOrder = (a, b) -> Long.compare(rank(records, a), rank(records, b));
+        Comparator<String> lexicographicOrder = Comparator.naturalOrder();
+
+        Comparator<String> order = null;
+        if (isMonotonic(partitionMap, dictionaryOrder, records)) {
+            order = dictionaryOrder;
+        }
+        else if (isMonotonic(partitionMap, lexicographicOrder, null)) {
+            order = lexicographicOrder;
+        }
+        else {
+            return null;
+        }
+
+        String name = region.referenceName();
+        if (order == dictionaryOrder && rank(records, name) < 0L) {
+            return new boolean[partitionMap.length];
+        }
+        boolean[] keep = new boolean[partitionMap.length];
+        for (int i = 0; i < partitionMap.length; i++) {
+            if (partitionMap[i].isDefined()) {
+                ReferenceRegion first = partitionMap[i].get()._1();
+                ReferenceRegion last = partitionMap[i].get()._2();
+                int afterFirst = order.compare(name, first.referenceName());
+                int beforeLast = order.compare(name, last.referenceName());
+                keep[i] = (afterFirst > 0 || (afterFirst == 0 && region.end() > first.start()))
+                    && (beforeLast < 0 || (beforeLast == 0 && region.start() < last.end()));
+            }
+        }
+        return keep;
+    }
+
+    private static boolean isMonotonic(final Option<Tuple2<ReferenceRegion, ReferenceRegion>>[] partitionMap,
+                                       final Comparator<String> order,
+                                       final List<SequenceRecord> records) {
+        String previous = null;
+        for (Option<Tuple2<ReferenceRegion, ReferenceRegion>> range : partitionMap) {
+            if (range.isDefined()) {
+                String first = range.get()._1().referenceName();
+                String last = range.get()._2().referenceName();
+                if (records != null && (rank(records, first) < 0L || rank(records, last) < 0L)) {
+                    return false;
+                }
+                if ((previous != null && order.compare(previous, first) > 0) || order.compare(first, last) > 0) {
+                    return false;
+                }
+                previous = last;
+            }
+        }
+        return true;
+    }
+
+    private static long rank(final List<SequenceRecord> records, final String name) {
+        for (int i = 0, size = records.size(); i < size; i++) {
+            SequenceRecord record = records.get(i);
+            if (record.name().equals(name)) {
+                return record.index().isDefined() ? ((Number) record.index().get()).longValue() : i;
+            }
+        }
+        return -1L;
+    }
+
+
+    /**
+     * Partition filter function for partition pruning RDDs.
+     */
+    private static final class KeepPartition extends AbstractFunction1<Object, Object> implements Serializable {
+        private final boolean[] keep;
+
+
+        /**
+         * Create a new keep partition function.
+         *
+         * @param keep which partitions to keep
+         */
+        KeepPartition(final boolean[] keep) {
+            this.keep = keep;
+        }
+
+
+        @Override
+        public Object apply(final Object partition) {
+            return Boolean.valueOf(keep[((Integer) partition).intValue()]);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.awt.Component;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Iterator;
+import java.util.List;
+
+import java.util.concurrent.ExecutionException;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+/**
+ * Row export.
+ *
+ * <p>
+ * Streams rows to a tab-separated file, or a comma-separated file if the file name ends in
+ * <code>.csv</code>, on a background thread, rather than building the whole text in memory on the
+ * event dispatch thread.  Each row is written as its transferable string representation through a
+ * buffered file channel, so that only one buffer of text is held in memory.  Progress is shown in
+ * a progress monitor; cancelling the export cancels its Spark jobs, if any, and deletes the partial file.
+ * </p>
+ *
+ * @param <E> element type
+ * @author  Michael Heuer
+ */
+final class RowExport<E> extends SwingWorker<Long, Long> {
+    private final Component parent;
+    private final Path path;
+    private final List<String> header;
+    private final Supplier<Iterator<E>> rows;
+    private final Function<E, String> format;
+    private final JobGroup jobGroup;
+    private final boolean csv;
+    private final ProgressMonitor progress;
+    private final Timer timer;
+    private volatile String task;
+
+    /** Size of the write buffer, in bytes. */
+    static final int BUFFER_SIZE = 1024 * 1024;
+
+    /** Number of rows written between progress updates. */
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    /** Interval at which the progress monitor is checked for cancellation, in milliseconds. */
+    private static final int CANCEL_INTERVAL = 250;
+
+
+    /**
+     * Create a new row export.
+     *
+     * @param parent parent component for the progress monitor and error messages
+     * @param path file to write, must not be null
+     * @param header column names for the header line, if any
+     * @param total number of rows to export, or <code>PartitionIndex.UNKNOWN</code> if not known
+     * @param rows supplier of an iterator over the rows to export, called on the background thread,
+     *    must not be null; <code>null</code> rows are skipped
+     * @param format transferable string representation of a row, tab-separated, must not be null
+     * @param jobGroup Spark job group for jobs submitted while iterating over the rows, if any
+     */
+    RowExport(final Component parent,
+              final Path path,
+              final List<String> header,
+              final long total,
+              final Supplier<Iterator<E>> rows,
+              final Function<E, String> format,
+              final JobGroup jobGroup) {
+        this.parent = parent;
+        this.path = path;
+        this.header = header;
+        this.rows = rows;
+        this.format = format;
+        this.jobGroup = jobGroup;
+        this.csv = path.getFileName().toString().toLowerCase().endsWith(".csv");
+
+        int maximum = (total < 0L) ? Integer.MAX_VALUE : (int) Math.min(total, Integer.MAX_VALUE);
+        progress = new ProgressMonitor(parent, "Exporting rows to " + path.getFileName(), "Starting export", 0, maximum);
+        timer = new Timer(CANCEL_INTERVAL, new ActionListener() {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    if (progress.isCanceled()) {
+                        stop();
+                    }
+                }
+            });
+    }
+
+
+    /**
+     * Start this export in the background.
+     */
+    void start() {
+        timer.start();
+        execute();
+    }
+
+    /**
+     * Stop this export, cancelling its Spark jobs, if any.
+     */
+    void stop() {
+        cancel(false);
+        String task = this.task;
+        if (jobGroup != null && task != null) {
+            jobGroup.cancel(task);
+        }
+    }
+
+    @Override
+    protected Long doInBackground() throws IOException {
+        if (jobGroup != null) {
+            task = jobGroup.begin("Export rows to " + path.getFileName(), JobGroup.Pool.BULK);
+        }
+        try {
+            return writeRows();
+        }
+        finally {
+            if (task != null) {
+                jobGroup.end(task);
+            }
+            // after the channel is closed
+            if (isCancelled()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Write the header, if any, and rows to the file and return the number of rows written.
+     */
+    private long writeRows() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            if (header != null) {
+                write(String.join("\t", header), channel, buffer);
+            }
+            long count = 0L;
+            Iterator<E> iterator = rows.get();
+            while (!isCancelled() && iterator.hasNext()) {
+                E row = iterator.next();
+                if (row != null) {
+                    write(format.apply(row), channel, buffer);
+                    if (++count % PROGRESS_INTERVAL == 0L) {
+                        publish(count);
+                    }
+                }
+            }
+            flush(channel, buffer);
+            return count;
+        }
+    }
+
+    @Override
+    protected void process(final List<Long> counts) {
+        long count = counts.get(counts.size() - 1);
+        progress.setNote(String.format("Exported %,d rows", count));
+        // the progress monitor closes itself at its maximum
+        progress.setProgress((int) Math.min(count, progress.getMaximum() - 1L));
+    }
+
+    @Override
+    protected void done() {
+        timer.stop();
+        progress.close();
+        if (isCancelled()) {
+            return;
+        }
+        try {
+            get();
+        }
+        catch (InterruptedException e) {
+            // ignore
+        }
+        catch (ExecutionException e) {
+            JOptionPane.showMessageDialog(parent, "Could not export rows to " + path + ":\n" + e.getCause().getMessage(),
+                                          "Export rows", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Write the specified tab-separated line to the specified buffer, flushing the buffer
+     * to the specified channel as it fills.
+     */
+    private void write(final String line, final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        byte[] bytes = ((csv ? csv(line) : line) + "\n").getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > buffer.remaining()) {
+            flush(channel, buffer);
+        }
+        if (bytes.length > buffer.capacity()) {
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+            return;
+        }
+        buffer.put(bytes);
+    }
+
+    private static void flush(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Convert the specified tab-separated line to a comma-separated line, quoting fields
+     * that contain commas, quotes, or line breaks.
+     *
+     * @param line tab-separated line
+     * @return the specified tab-separated line converted to a comma-separated line
+     */
+    static String csv(final String line) {
+        StringBuilder sb = new StringBuilder(line.length() + 16);
+        String[] fields = line.split("\t", -1);
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String field = fields[i];
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+                sb.append('"').append(field.replace("\"", "\"\"")).append('"');
+            }
+            else {
+                sb.append(field);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Show a file chooser for the file to export rows to.
+     *
+     * @param parent parent component for the file chooser
+     * @return the file to export rows to, or <code>null</code> if none was chosen
+     */
+    static Path chooseFile(final Component parent) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export rows");
+        FileNameExtensionFilter tsv = new FileNameExtensionFilter("Tab-separated values (*.tsv, *.txt)", "tsv", "txt");
+        fileChooser.addChoosableFileFilter(tsv);
+        fileChooser.addChoosableFileFilter(new FileNameExtensionFilter("Comma-separated values (*.csv)", "csv"));
+        fileChooser.setFileFilter(tsv);
+        if (fileChooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+        File file = fileChooser.getSelectedFile();
+        if (!file.getName().contains(".") && fileChooser.getFileFilter() instanceof FileNameExtensionFilter) {
+            file = new File(file.getPath() + "." + ((FileNameExtensionFilter) fileChooser.getFileFilter()).getExtensions()[0]);
+        }
+        if (file.exists() && JOptionPane.showConfirmDialog(parent, file.getName() + " already exists, replace it?",
+                                                           "Export rows", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return null;
+        }
+        return file.toPath();
+    }
+}
@@ -0,0 +1,932 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.nio.ByteBuffer;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ca.odell.glazedlists.AbstractEventList;
+
+import ca.odell.glazedlists.util.concurrent.LockFactory;
+
+import org.apache.avro.Schema;
+
+import org.apache.avro.generic.GenericContainer;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.ResolvingDecoder;
+
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+
+import org.apache.avro.util.Utf8;
+
+/**
+ * Row list.
+ *
+ * <p>
+ * A virtual event list over the rows of a dataset view.  The size of the list is the number of
+ * rows known to exist in the view, not the number of rows fetched.  Fetched rows are kept Avro
+ * binary encoded in pages of consecutive rows, and only the most recently used rows, e.g. those
+ * near the viewport of a table, are kept decoded.  Pages are kept in memory in a page cache shared
+ * by all row lists, see {@link PageCache}, keyed by the identity of the dataset view, so that
+ * returning to a view finds its pages again.  Pages evicted from the page cache are spilled to
+ * memory-mapped files, see {@link SpillStore}, and read back as their rows are shown again, so that
+ * heap use does not grow with the number of rows browsed.  Only pages of the current dataset view
+ * are spilled, and spilled pages are dropped when the view changes, so that the spill files do not
+ * grow with the number of views browsed either.  Rows that have not been fetched are
+ * <code>null</code> and may be fetched on demand.  If pages can not be spilled, evicted pages are
+ * dropped and their rows fetched again on demand.
+ * </p>
+ *
+ * <p>
+ * Low-cardinality string columns, e.g. <code>referenceName</code> or <code>sampleId</code>, are
+ * encoded as codes in a dictionary per column, see {@link ColumnDictionary}, and decoded rows share
+ * one instance of each of their values.  Nucleotide sequences in the <code>sequence</code> column are
+ * packed two bits per base, see {@link PackedSequence}.  Rows returned by {@link #get(int)} leave their
+ * <code>sequence</code> column <code>null</code>, so that long sequences are not kept as strings;
+ * see {@link #getSequence(int)} for the packed sequence of a row, and {@link #getRecord(int)} for a row
+ * with all of its columns.
+ * </p>
+ *
+ * <p>
+ * Rows are placed by row number in the dataset view.  Rows removed from the list are remembered
+ * by row number, so that rows fetched later are still placed correctly.  This list should only
+ * be modified on the event dispatch thread.
+ * </p>
+ *
+ * <p>
+ * A table can not scroll through more rows than fit in a height in pixels of type <code>int</code>,
+ * so this list is a window of at most {@link #MAX_SIZE} rows over the rows known to exist in the
+ * dataset view, starting at a row offset.  Rows past the window are reached by moving the window,
+ * see {@link #setOffset(long)}.
+ * </p>
+ *
+ * @param <E> Avro record type
+ * @author  Michael Heuer
+ */
+final class RowList<E> extends AbstractEventList<E> {
+    private Schema schema;
+    private RowDatumWriter<E> writer;
+    private RowDatumReader<E> reader;
+    private BinaryEncoder encoder;
+    private BinaryDecoder decoder;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+    private final PageCache cache;
+    private final Map<Long, E> decoded;
+    private final Map<Long, CharSequence> sequences;
+    private final Map<Object, Long> views = new HashMap<Object, Long>();
+    private Object view;
+    private long viewId;
+    private long[] removed = new long[0];
+    private long offset;
+    private long extent;
+    private int size;
+    private SpillStore spillStore;
+    private boolean spill = true;
+
+    /** Number of rows per page. */
+    static final int PAGE_ROWS = 100;
+
+    /** Estimated size of a page in addition to its encoded rows, in bytes. */
+    private static final long PAGE_OVERHEAD = 8L * PAGE_ROWS + 64L;
+
+    /** Mask for the page part of spill store keys, the dataset view is in the upper bits. */
+    private static final long PAGE_MASK = (1L << 40) - 1L;
+
+    /** Low-cardinality string columns encoded with a dictionary, at any depth. */
+    static final Set<String> DICTIONARY_COLUMNS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("referenceName", "mateReferenceName", "readGroupId", "readGroupSampleId", "sampleId", "featureType", "source")));
+
+    /** Nucleotide sequence column, packed two bits per base. */
+    static final String PACKED_COLUMN = "sequence";
+
+    /** Maximum number of rows in the window, so that a table 21 pixels per row high or less fits in an <code>int</code> height. */
+    static final int MAX_SIZE = 100000000;
+
+    /** Maximum number of decoded rows to keep. */
+    static final int MAX_DECODED = 500;
+
+
+    /**
+     * Create a new empty row list.
+     *
+     * @param schema Avro schema of the record type, or <code>null</code> to use the schema of the first row
+     * @param cache page cache, must not be null
+     */
+    RowList(final Schema schema, final PageCache cache) {
+        super();
+        this.schema = schema;
+        this.cache = cache;
+        readWriteLock = LockFactory.DEFAULT.createReadWriteLock();
+        decoded = new LinkedHashMap<Long, E>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Long, E> eldest) {
+                    return size() > MAX_DECODED;
+                }
+            };
+        sequences = new LinkedHashMap<Long, CharSequence>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Long, CharSequence> eldest) {
+                    return size() > MAX_DECODED;
+                }
+            };
+        setView(new Object());
+    }
+
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the row at the specified index, or <code>null</code> if that row has not been
+     * fetched or its page has been evicted.
+     *
+     * @param index index
+     * @return the row at the specified index, or <code>null</code>
+     */
+    @Override
+    public E get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds, size " + size);
+        }
+        return row(rowAt(index));
+    }
+
+    /**
+     * Return the nucleotide sequence of the row at the specified index, packed two bits per base
+     * unless it does not pack, e.g. if it is a protein sequence, or <code>null</code> if that row
+     * has no sequence, has not been fetched, or its page has been evicted.  Decode only the part
+     * of a long sequence that is shown, see {@link PackedSequence#subSequence(int, int)}.
+     *
+     * @param index index
+     * @return the nucleotide sequence of the row at the specified index, or <code>null</code>
+     */
+    CharSequence getSequence(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds, size " + size);
+        }
+        long row = rowAt(index);
+        if (!sequences.containsKey(row)) {
+            decoded.remove(row);
+        }
+        return (row(row) == null) ? null : sequences.get(row);
+    }
+
+    /**
+     * Return the row at the specified index with all of its columns decoded, including its
+     * <code>sequence</code> column, for example for copying, or <code>null</code> if that row has
+     * not been fetched or its page has been evicted.  Rows returned by this method are not kept.
+     *
+     * @param index index
+     * @return the row at the specified index with all of its columns decoded, or <code>null</code>
+     */
+    E getRecord(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds, size " + size);
+        }
+        long row = rowAt(index);
+        return decode(page(row / PAGE_ROWS), row, false);
+    }
+
+    /**
+     * Return true if the row at the specified index has been fetched and not evicted.
+     *
+     * @param index index
+     * @return true if the row at the specified index has been fetched and not evicted
+     */
+    boolean isLoaded(final int index) {
+        long row = rowAt(index);
+        if (decoded.containsKey(row)) {
+            return true;
+        }
+        Page page = page(row / PAGE_ROWS);
+        return page != null && page.offsets[(int) (row % PAGE_ROWS)] >= 0;
+    }
+
+    /**
+     * Return the row number in the dataset view of the row at the specified index.
+     *
+     * @param index index
+     * @return the row number in the dataset view of the row at the specified index
+     */
+    long rowAt(final int index) {
+        long row = offset + index;
+        for (long r : removed) {
+            if (r <= row) {
+                row++;
+            }
+            else {
+                break;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Return the index of the row with the specified row number in the dataset view, or
+     * <code>-1</code> if that row has been removed or is outside the window.
+     *
+     * @param row row number in the dataset view
+     * @return the index of the row with the specified row number, or <code>-1</code>
+     */
+    int indexOfRow(final long row) {
+        if (row < offset) {
+            return -1;
+        }
+        int i = Arrays.binarySearch(removed, row);
+        if (i >= 0) {
+            return -1;
+        }
+        long index = row - offset - (-i - 1);
+        return (index < size) ? (int) index : -1;
+    }
+
+    /**
+     * Return the number of rows known to exist in the dataset view, including removed rows
+     * and rows outside the window.
+     *
+     * @return the number of rows known to exist in the dataset view
+     */
+    long getExtent() {
+        return extent;
+    }
+
+    /**
+     * Return the row number in the dataset view of the first row in the window.
+     *
+     * @return the row number in the dataset view of the first row in the window
+     */
+    long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Return the row number in the dataset view past the last row in the window, including removed rows.
+     *
+     * @return the row number in the dataset view past the last row in the window
+     */
+    long getEnd() {
+        return offset + size + removed.length;
+    }
+
+    /**
+     * Return true if the specified row number in the dataset view is in the window, including removed rows.
+     *
+     * @param row row number in the dataset view
+     * @return true if the specified row number in the dataset view is in the window
+     */
+    boolean inWindow(final long row) {
+        return row >= offset && row < getEnd();
+    }
+
+    /**
+     * Move the window to start at the specified row number in the dataset view.  Rows removed
+     * from the list are restored.  Pages of rows already fetched stay in the page cache.
+     *
+     * @param offset row number in the dataset view of the first row in the window, must be at least zero
+     */
+    void setOffset(final long offset) {
+        if (offset < 0L) {
+            throw new IllegalArgumentException("offset must be at least zero, was " + offset);
+        }
+        if (offset == this.offset && removed.length == 0) {
+            return;
+        }
+        this.offset = offset;
+        removed = new long[0];
+        updates.beginEvent();
+        deleted(0, size);
+        size = windowSize();
+        inserted(0, size);
+        updates.commitEvent();
+    }
+
+    /**
+     * Return the number of rows in the window for the current offset, extent, and removed rows.
+     */
+    private int windowSize() {
+        return (int) Math.max(0L, Math.min(MAX_SIZE, extent - offset - removed.length));
+    }
+
+    /**
+     * Add insert changes for the <code>count</code> rows starting at the specified index to the current event.
+     */
+    private void inserted(final int index, final int count) {
+        // consecutive changes with the same value are merged into one block
+        for (int i = index, end = index + count; i < end; i++) {
+            updates.elementInserted(i, null);
+        }
+    }
+
+    /**
+     * Add delete changes for the <code>count</code> rows starting at the specified index to the current event.
+     */
+    private void deleted(final int index, final int count) {
+        for (int i = 0; i < count; i++) {
+            updates.elementDeleted(index, null);
+        }
+    }
+
+    /**
+     * Set the number of rows known to exist in the dataset view, including removed rows,
+     * adding rows that have not yet been fetched to the window or removing rows past the extent.
+     *
+     * @param extent number of rows in the dataset view, must be at least zero
+     */
+    void setExtent(final long extent) {
+        if (extent < 0L) {
+            throw new IllegalArgumentException("extent must be at least zero, was " + extent);
+        }
+        boolean shrink = extent < this.extent;
+        this.extent = extent;
+        int i = Arrays.binarySearch(removed, extent);
+        removed = Arrays.copyOf(removed, (i >= 0) ? i : -i - 1);
+        int newSize = windowSize();
+        if (newSize == size && !shrink) {
+            return;
+        }
+        updates.beginEvent();
+        if (newSize > size) {
+            inserted(size, newSize - size);
+        }
+        else if (shrink) {
+            deleted(newSize, size - newSize);
+            final Object v = view;
+            final long first = ((extent + PAGE_ROWS - 1) / PAGE_ROWS) * PAGE_ROWS;
+            cache.removeIf(key -> key.getView() == v && key.getFirst() >= first);
+            if (spillStore != null) {
+                spillStore.removeIf(key -> (key >>> 40) == viewId && (key & PAGE_MASK) >= first / PAGE_ROWS);
+            }
+            decoded.keySet().removeIf(row -> row >= extent);
+            sequences.keySet().removeIf(row -> row >= extent);
+        }
+        size = newSize;
+        updates.commitEvent();
+    }
+
+    /**
+     * Place the specified rows starting at the specified row number in the dataset view,
+     * extending this list if necessary.
+     *
+     * @param row row number in the dataset view of the first row
+     * @param rows rows to place, must not be null
+     */
+    void put(final long row, final List<E> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        codec(rows.get(0));
+        long end = row + rows.size();
+        int oldSize = size;
+        if (end > extent) {
+            extent = end;
+            size = windowSize();
+        }
+        updates.beginEvent();
+        if (size > oldSize) {
+            inserted(oldSize, size - oldSize);
+        }
+        Page page = null;
+        long key = -1L;
+        for (int i = 0, n = rows.size(); i < n; i++) {
+            long r = row + i;
+            if (r / PAGE_ROWS != key) {
+                if (page != null) {
+                    cache(key, page);
+                }
+                key = r / PAGE_ROWS;
+                page = page(key);
+                if (page == null) {
+                    page = new Page();
+                }
+            }
+            E element = rows.get(i);
+            // rows of the same dataset view found again in the page cache are already encoded
+            if (!page.contains((int) (r % PAGE_ROWS))) {
+                encode(r, element, page);
+            }
+            page.fetched.set((int) (r % PAGE_ROWS));
+            // rows are decoded again as they are shown, without their sequence
+            decoded.remove(r);
+            sequences.remove(r);
+            int index = indexOfRow(r);
+            if (index >= 0 && index < oldSize) {
+                updates.elementUpdated(index, null, element);
+            }
+        }
+        cache(key, page);
+        updates.commitEvent();
+    }
+
+    /**
+     * Record the specified number of rows fetched because they were not loaded as page cache misses.
+     *
+     * @param count number of rows fetched
+     */
+    void missed(final int count) {
+        cache.miss(count);
+    }
+
+    /**
+     * Set the identity of the dataset view for the rows in this list, to be called after
+     * this list is cleared.  Pages of rows from the same dataset view, fetched earlier by this
+     * or another row list, are found again in the page cache.  Pages of other dataset views
+     * spilled by this row list are dropped.
+     *
+     * @param view identity of the dataset view, must not be null
+     */
+    void setView(final Object view) {
+        this.view = cache.intern(view);
+        Long id = views.get(this.view);
+        if (id == null) {
+            id = Long.valueOf(views.size());
+            views.put(this.view, id);
+        }
+        if (id.longValue() != viewId && spillStore != null) {
+            // reuse the segment files for the pages of this view, rather than growing them with each view
+            spillStore.clear();
+        }
+        viewId = id.longValue();
+        decoded.clear();
+        sequences.clear();
+    }
+
+    @Override
+    public boolean add(final E element) {
+        put(getExtent(), Collections.singletonList(element));
+        return true;
+    }
+
+    @Override
+    public boolean addAll(final Collection<? extends E> elements) {
+        put(getExtent(), new ArrayList<E>(elements));
+        return !elements.isEmpty();
+    }
+
+    @Override
+    public E remove(final int index) {
+        E element = get(index);
+        long row = rowAt(index);
+        int i = -Arrays.binarySearch(removed, row) - 1;
+        long[] r = new long[removed.length + 1];
+        System.arraycopy(removed, 0, r, 0, i);
+        r[i] = row;
+        System.arraycopy(removed, i, r, i + 1, removed.length - i);
+        removed = r;
+        decoded.remove(row);
+        sequences.remove(row);
+
+        updates.beginEvent();
+        updates.elementDeleted(index, element);
+        // a full window slides the next row in
+        size--;
+        int newSize = windowSize();
+        inserted(size, newSize - size);
+        size = newSize;
+        updates.commitEvent();
+        return element;
+    }
+
+    @Override
+    public void clear() {
+        // pages of the previous dataset view stay in the page cache, but not in the spill store
+        setView(new Object());
+        removed = new long[0];
+        offset = 0L;
+        extent = 0L;
+        if (size == 0) {
+            return;
+        }
+        updates.beginEvent();
+        deleted(0, size);
+        size = 0;
+        updates.commitEvent();
+    }
+
+    @Override
+    public void dispose() {
+        clear();
+        // pages of the same dataset views put since by other row lists are kept
+        cache.removeAll(this);
+        views.clear();
+        if (spillStore != null) {
+            spillStore.close();
+            spillStore = null;
+        }
+        spill = false;
+    }
+
+    /**
+     * Return the row with the specified row number, decoding it if necessary, or <code>null</code>.
+     */
+    private E row(final long row) {
+        E element = decoded.get(row);
+        if (element != null) {
+            return element;
+        }
+        Page page = page(row / PAGE_ROWS);
+        element = decode(page, row, true);
+        if (element != null) {
+            decoded.put(row, element);
+            sequences.put(row, reader.getSequence());
+            // rows shown for the first time since they were fetched were counted as misses
+            int i = (int) (row % PAGE_ROWS);
+            if (page.fetched.get(i)) {
+                page.fetched.clear(i);
+            }
+            else {
+                cache.hit();
+            }
+        }
+        return element;
+    }
+
+    /**
+     * Decode the row with the specified row number from the specified page, without its sequence if
+     * <code>withoutSequence</code> is true, or return <code>null</code> if it is not in a page.
+     */
+    private E decode(final Page page, final long row, final boolean withoutSequence) {
+        if (page == null) {
+            return null;
+        }
+        int i = (int) (row % PAGE_ROWS);
+        if (page.offsets[i] < 0) {
+            return null;
+        }
+        try {
+            decoder = DecoderFactory.get().binaryDecoder(page.data, page.offsets[i], page.lengths[i], decoder);
+            return reader.read(decoder, withoutSequence);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("could not decode row " + row, e);
+        }
+    }
+
+    /**
+     * Return the page with the specified key in the current dataset view, reading it back from
+     * the spill store if necessary, or <code>null</code>.
+     */
+    private Page page(final long key) {
+        Page page = (Page) cache.get(new PageCache.Key(view, key * PAGE_ROWS, PAGE_ROWS));
+        if (page == null && spillStore != null) {
+            byte[] bytes = spillStore.read(spillKey(key));
+            if (bytes != null) {
+                page = Page.fromBytes(bytes);
+                cache(key, page);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Put the specified page with the specified key in the current dataset view in the page cache,
+     * or update its size.
+     */
+    private void cache(final long key, final Page page) {
+        final long spillKey = spillKey(key);
+        cache.put(new PageCache.Key(view, key * PAGE_ROWS, PAGE_ROWS), page, page.data.length + PAGE_OVERHEAD, this, evicted -> spill(spillKey, (Page) evicted));
+    }
+
+    /**
+     * Return the spill store key for the page with the specified key in the current dataset view.
+     */
+    private long spillKey(final long key) {
+        return (viewId << 40) | key;
+    }
+
+    /**
+     * Spill the specified page evicted from the page cache to the spill store, unless an unchanged copy is already there.
+     */
+    private void spill(final long key, final Page page) {
+        // only pages of the current dataset view are spilled, see setView
+        if (!spill || (key >>> 40) != viewId) {
+            return;
+        }
+        if (page.spilled && spillStore != null && spillStore.contains(key)) {
+            return;
+        }
+        try {
+            if (spillStore == null) {
+                spillStore = new SpillStore();
+            }
+            spillStore.write(key, page.toBytes());
+        }
+        catch (IOException | UncheckedIOException e) {
+            // drop evicted pages instead, their rows are fetched again on demand
+            spill = false;
+            if (spillStore != null) {
+                spillStore.close();
+                spillStore = null;
+            }
+        }
+    }
+
+    /**
+     * Create the datum writer and reader for rows, if necessary, using the schema of the specified
+     * row if the schema is not known.
+     */
+    private void codec(final E element) {
+        if (writer == null) {
+            if (schema == null) {
+                schema = ((GenericContainer) element).getSchema();
+            }
+            writer = new RowDatumWriter<E>(schema, cache);
+            reader = new RowDatumReader<E>(schema, cache);
+        }
+    }
+
+    /**
+     * Encode the specified row into the specified page.
+     */
+    private void encode(final long row, final E element, final Page page) {
+        buffer.reset();
+        try {
+            encoder = EncoderFactory.get().directBinaryEncoder(buffer, encoder);
+            writer.write(element, encoder);
+            encoder.flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("could not encode row " + row, e);
+        }
+        page.append((int) (row % PAGE_ROWS), buffer);
+    }
+
+
+    /**
+     * Datum writer that encodes dictionary columns with their dictionaries and packs
+     * nucleotide sequences.  Both stay Avro strings, so that rows may be read with a resolving decoder.
+     *
+     * @param <E> Avro record type
+     */
+    private static final class RowDatumWriter<E> extends SpecificDatumWriter<E> {
+        private final PageCache cache;
+        private ColumnDictionary dictionary;
+        private boolean packed;
+
+
+        /**
+         * Create a new row datum writer.
+         *
+         * @param schema Avro schema of the record type
+         * @param cache page cache holding the dictionaries
+         */
+        RowDatumWriter(final Schema schema, final PageCache cache) {
+            super(schema);
+            this.cache = cache;
+        }
+
+
+        @Override
+        protected void writeField(final Object datum, final Schema.Field f, final Encoder out, final Object state) throws IOException {
+            ColumnDictionary previousDictionary = dictionary;
+            boolean previousPacked = packed;
+            dictionary = DICTIONARY_COLUMNS.contains(f.name()) ? cache.getDictionary(f.name()) : null;
+            packed = PACKED_COLUMN.equals(f.name());
+            try {
+                super.writeField(datum, f, out, state);
+            }
+            finally {
+                dictionary = previousDictionary;
+                packed = previousPacked;
+            }
+        }
+
+        @Override
+        protected void writeString(final Schema schema, final Object datum, final Encoder out) throws IOException {
+            if (packed) {
+                out.writeString(pack((CharSequence) datum));
+            }
+            else {
+                super.writeString(schema, (dictionary == null) ? datum : dictionary.encode(datum.toString()), out);
+            }
+        }
+
+        /**
+         * Pack the specified sequence, prefixed with <code>1</code> if packed or <code>0</code> if
+         * it does not pack and is kept as UTF-8 text.
+         */
+        private static Utf8 pack(final CharSequence sequence) {
+            PackedSequence packedSequence = PackedSequence.pack(sequence);
+            byte[] bytes = (packedSequence == null) ? sequence.toString().getBytes(StandardCharsets.UTF_8) : packedSequence.toBytes();
+            byte[] prefixed = new byte[bytes.length + 1];
+            prefixed[0] = (byte) ((packedSequence == null) ? 0 : 1);
+            System.arraycopy(bytes, 0, prefixed, 1, bytes.length);
+            return new Utf8(prefixed);
+        }
+    }
+
+    /**
+     * Datum reader that decodes dictionary columns with their dictionaries and unpacks
+     * nucleotide sequences, optionally leaving packed sequences out of the records it reads.
+     *
+     * @param <E> Avro record type
+     */
+    private static final class RowDatumReader<E> extends SpecificDatumReader<E> {
+        private final PageCache cache;
+        private ColumnDictionary dictionary;
+        private boolean packed;
+        private int depth;
+        private boolean withoutSequence;
+        private CharSequence sequence;
+
+
+        /**
+         * Create a new row datum reader.
+         *
+         * @param schema Avro schema of the record type
+         * @param cache page cache holding the dictionaries
+         */
+        RowDatumReader(final Schema schema, final PageCache cache) {
+            super(schema);
+            this.cache = cache;
+        }
+
+
+        /**
+         * Read a record from the specified decoder, leaving its <code>sequence</code> column
+         * <code>null</code> if <code>withoutSequence</code> is true, see {@link #getSequence()}.
+         *
+         * @param decoder decoder
+         * @param withoutSequence true to leave the <code>sequence</code> column of the record <code>null</code>
+         * @return a record read from the specified decoder
+         * @throws IOException if an I/O error occurs
+         */
+        E read(final Decoder decoder, final boolean withoutSequence) throws IOException {
+            this.withoutSequence = withoutSequence;
+            sequence = null;
+            return read(null, decoder);
+        }
+
+        /**
+         * Return the sequence of the record last read without its sequence, if any.
+         *
+         * @return the sequence of the record last read without its sequence, or <code>null</code>
+         */
+        CharSequence getSequence() {
+            return sequence;
+        }
+
+        @Override
+        protected void readField(final Object r, final Schema.Field f, final Object oldDatum, final ResolvingDecoder in, final Object state) throws IOException {
+            ColumnDictionary previousDictionary = dictionary;
+            boolean previousPacked = packed;
+            dictionary = DICTIONARY_COLUMNS.contains(f.name()) ? cache.getDictionary(f.name()) : null;
+            packed = PACKED_COLUMN.equals(f.name());
+            depth++;
+            try {
+                super.readField(r, f, oldDatum, in, state);
+            }
+            finally {
+                dictionary = previousDictionary;
+                packed = previousPacked;
+                depth--;
+            }
+        }
+
+        @Override
+        protected Object readString(final Object old, final Schema expected, final Decoder in) throws IOException {
+            if (packed) {
+                CharSequence value = unpack(in.readString(null));
+                // only the top level sequence column is left out, e.g. not those of nested alignments
+                if (withoutSequence && depth == 1) {
+                    sequence = value;
+                    return null;
+                }
+                return value.toString();
+            }
+            Object value = super.readString(old, expected, in);
+            return (dictionary == null) ? value : dictionary.decode((CharSequence) value);
+        }
+
+        /**
+         * Unpack the specified sequence written by {@link RowDatumWriter#pack(CharSequence)}.
+         */
+        private static CharSequence unpack(final Utf8 utf8) {
+            byte[] bytes = utf8.getBytes();
+            int length = utf8.getByteLength();
+            return (bytes[0] == 1) ? PackedSequence.fromBytes(bytes, 1, length - 1) : new String(bytes, 1, length - 1, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Page of Avro binary encoded rows.
+     */
+    private static final class Page {
+        private byte[] data = new byte[1024];
+        private int length;
+        private final int[] offsets = new int[PAGE_ROWS];
+        private final int[] lengths = new int[PAGE_ROWS];
+
+        /** True if an unchanged copy of this page is in the spill store. */
+        private boolean spilled;
+
+        /** Rows fetched into this page and not yet shown, not counted as page cache hits when shown. */
+        private final BitSet fetched = new BitSet(PAGE_ROWS);
+
+
+        /**
+         * Create a new empty page.
+         */
+        Page() {
+            Arrays.fill(offsets, -1);
+        }
+
+
+        /**
+         * Return true if this page contains the row at the specified index.
+         *
+         * @param index index in this page
+         * @return true if this page contains the row at the specified index
+         */
+        boolean contains(final int index) {
+            return offsets[index] >= 0;
+        }
+
+        /**
+         * Append the specified encoded row to this page at the specified index.
+         *
+         * @param index index in this page
+         * @param encoded encoded row
+         */
+        void append(final int index, final ByteArrayOutputStream encoded) {
+            int n = encoded.size();
+            if (length + n > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + n));
+            }
+            System.arraycopy(encoded.toByteArray(), 0, data, length, n);
+            offsets[index] = length;
+            lengths[index] = n;
+            length += n;
+            spilled = false;
+        }
+
+        /**
+         * Return this page as bytes, to be read back with {@link #fromBytes(byte[])}.
+         *
+         * @return this page as bytes
+         */
+        byte[] toBytes() {
+            ByteBuffer buffer = ByteBuffer.allocate(4 + 8 * PAGE_ROWS + length);
+            buffer.putInt(length);
+            buffer.asIntBuffer().put(offsets).put(lengths);
+            buffer.position(4 + 8 * PAGE_ROWS);
+            buffer.put(data, 0, length);
+            return buffer.array();
+        }
+
+        /**
+         * Read a page from the specified bytes, written by {@link #toBytes()}.
+         *
+         * @param bytes bytes
+         * @return a page read from the specified bytes
+         */
+        static Page fromBytes(final byte[] bytes) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            Page page = new Page();
+            page.length = buffer.getInt();
+            buffer.asIntBuffer().get(page.offsets).get(page.lengths);
+            buffer.position(4 + 8 * PAGE_ROWS);
+            page.data = new byte[page.length];
+            buffer.get(page.data);
+            page.spilled = true;
+            return page;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import javax.swing.table.AbstractTableModel;
+
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventListener;
+
+import ca.odell.glazedlists.gui.AdvancedTableFormat;
+import ca.odell.glazedlists.gui.TableFormat;
+
+/**
+ * Row table model.
+ *
+ * <p>
+ * A table model over the row list of an explorer model, without the copy of every element
+ * a GlazedLists event table model keeps.  Rows that are not loaded are shown empty and
+ * requested from the explorer model as they are painted, so that only rows near the viewport
+ * are fetched and decoded.  Painting the last row requests the next page of rows, if any.
+ * The sequence column, if any, shows the packed sequence of each row, see {@link RowList#getSequence(int)}.
+ * </p>
+ *
+ * @param <E> element type
+ * @author  Michael Heuer
+ */
+final class RowTableModel<E> extends AbstractTableModel implements ListEventListener<E> {
+    private final ExplorerModel<E, ?> model;
+    private final RowList<E> rows;
+    private final TableFormat<E> tableFormat;
+    private int sequenceColumn = -1;
+    private int loadRow = -1;
+
+
+    /**
+     * Create a new row table model.
+     *
+     * @param model explorer model, must not be null
+     * @param tableFormat table format, must not be null
+     */
+    RowTableModel(final ExplorerModel<E, ?> model, final TableFormat<E> tableFormat) {
+        this.model = model;
+        this.rows = model.getElements();
+        this.tableFormat = tableFormat;
+        rows.addListEventListener(this);
+    }
+
+
+    /**
+     * Show the packed sequence of each row in the specified column.
+     *
+     * @param sequenceColumn sequence column, or <code>-1</code> for none
+     */
+    void setSequenceColumn(final int sequenceColumn) {
+        this.sequenceColumn = sequenceColumn;
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return tableFormat.getColumnCount();
+    }
+
+    @Override
+    public String getColumnName(final int column) {
+        return tableFormat.getColumnName(column);
+    }
+
+    @Override
+    public Class<?> getColumnClass(final int column) {
+        if (tableFormat instanceof AdvancedTableFormat) {
+            return ((AdvancedTableFormat<E>) tableFormat).getColumnClass(column);
+        }
+        return super.getColumnClass(column);
+    }
+
+    @Override
+    public Object getValueAt(final int row, final int column) {
+        if (row == rows.size() - 1) {
+            model.more();
+        }
+        E element = rows.get(row);
+        if (element == null) {
+            // load once per row rather than once per cell as the row is painted
+            if (row != loadRow) {
+                loadRow = row;
+                model.load(row);
+            }
+            return null;
+        }
+        if (column == sequenceColumn) {
+            return rows.getSequence(row);
+        }
+        return tableFormat.getColumnValue(element, column);
+    }
+
+    @Override
+    public void listChanged(final ListEvent<E> event) {
+        // row lists are only modified on the event dispatch thread
+        loadRow = -1;
+        while (event.nextBlock()) {
+            int first = event.getBlockStartIndex();
+            int last = event.getBlockEndIndex();
+            switch (event.getType()) {
+            case ListEvent.INSERT:
+                fireTableRowsInserted(first, last);
+                break;
+            case ListEvent.DELETE:
+                fireTableRowsDeleted(first, last);
+                break;
+            default:
+                fireTableRowsUpdated(first, last);
+                break;
+            }
+        }
+    }
+}
@@ -18,7 +18,6 @@ package com.github.heuermh.adam.explorer;
 import javax.swing.border.EmptyBorder;
 
 import ca.odell.glazedlists.EventList;
-import ca.odell.glazedlists.GlazedLists;
 
 import ca.odell.glazedlists.gui.TableFormat;
 
@@ -57,7 +56,7 @@ final class SampleView extends LabelFieldPanel {
     static class SampleTable extends ExplorerTable<Sample> {
         private static final String[] PROPERTY_NAMES = { "name", "id" };
         private static final String[] COLUMN_LABELS = { "Name", "Identifier" }; // todo: include processing step table?
-        private static final TableFormat<Sample> TABLE_FORMAT = GlazedLists.tableFormat(Sample.class, PROPERTY_NAMES, COLUMN_LABELS);
+        private static final TableFormat<Sample> TABLE_FORMAT = AccessorTableFormat.create(Sample.class, PROPERTY_NAMES, COLUMN_LABELS);
 
         /**
          * Create a new sample table with the specified samples.
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.awt.Component;
+
+import javax.swing.JTable;
+
+import org.dishevelled.identify.StripeTableCellRenderer;
+
+/**
+ * Sequence cell renderer.
+ *
+ * <p>
+ * Renders a preview of the first bases of a sequence, decoding only those bases from a
+ * packed sequence, see {@link PackedSequence}.  Longer sequences end with an ellipsis.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class SequenceCellRenderer extends StripeTableCellRenderer {
+
+    /** Number of bases to preview. */
+    static final int PREVIEW_LENGTH = 100;
+
+
+    @Override
+    public Component getTableCellRendererComponent(final JTable table,
+                                                   final Object value,
+                                                   final boolean isSelected,
+                                                   final boolean hasFocus,
+                                                   final int row,
+                                                   final int column) {
+        boolean truncated = (value instanceof CharSequence) && ((CharSequence) value).length() > PREVIEW_LENGTH;
+        super.getTableCellRendererComponent(table, (value instanceof CharSequence) ? preview((CharSequence) value) : value,
+                                            isSelected, hasFocus, row, column);
+        setToolTipText(truncated ? "Double-click to view the whole sequence" : null);
+        return this;
+    }
+
+    /**
+     * Return a preview of the first bases of the specified sequence, ending with an ellipsis
+     * if the sequence is longer than the preview.
+     *
+     * @param sequence sequence, if any
+     * @return a preview of the first bases of the specified sequence, or <code>null</code>
+     */
+    static String preview(final CharSequence sequence) {
+        if (sequence == null) {
+            return null;
+        }
+        return (sequence.length() > PREVIEW_LENGTH) ? sequence.subSequence(0, PREVIEW_LENGTH) + "\u2026" : sequence.toString();
+    }
+}
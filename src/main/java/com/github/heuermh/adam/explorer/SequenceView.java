@@ -16,14 +16,14 @@
 package com.github.heuermh.adam.explorer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import java.util.concurrent.ExecutionException;
-
 import java.util.stream.Collectors;
 
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
-import javax.swing.SwingWorker;
 
 import javax.swing.border.EmptyBorder;
 
@@ -63,6 +63,12 @@ final class SequenceView extends LabelFieldPanel {
     private final SequenceModel model;
     private final SequenceTable table;
 
+    /** Facet property names. */
+    private static final String[] FACET_PROPERTY_NAMES = { "alphabet", "sampleId" };
+
+    /** Facet labels. */
+    private static final String[] FACET_LABELS = { "Alphabet", "Sample" };
+
     /**
      * Create a new sequence view with the specified dataset.
      *
@@ -76,6 +82,13 @@ final class SequenceView extends LabelFieldPanel {
         model.take(10);
     }
 
+    /**
+     * Cancel any Spark jobs running for this view.
+     */
+    void cancel() {
+        model.cancel();
+    }
+
     private void layoutComponents() {
         JTabbedPane tabbedPane = new JTabbedPane();
         tabbedPane.add("Sequences", layoutSequenceView());
@@ -88,19 +101,28 @@ final class SequenceView extends LabelFieldPanel {
         LabelFieldPanel panel = new LabelFieldPanel();
         panel.setOpaque(false);
         panel.setBorder(new EmptyBorder(12, 12, 12, 12));
-        panel.addField("Sequence count:", new DatasetCountLabel(model.getDataset()));
+        panel.addField("Sequence count:", new DatasetCountLabel(model));
+        panel.addField("Page cache:", new PageCacheLabel(PageCache.getInstance()));
         panel.addField("Sequences currently viewing:", new CountLabel<Sequence>(model.getSequences()));
+        FilterBar filterBar = new FilterBar(model, SequenceTable.PROPERTY_NAMES, SequenceTable.COLUMN_LABELS);
+        panel.addField("Filter:", filterBar);
+        panel.addField("Sort:", new SortBar(model, SequenceTable.PROPERTY_NAMES, SequenceTable.COLUMN_LABELS));
         panel.addSpacing(12);
-        panel.addFinalField(table);
+        JScrollPane facets = new JScrollPane(new FacetPanel(model, FACET_PROPERTY_NAMES, FACET_LABELS, filterBar::update));
+        facets.setBorder(null);
+        facets.setOpaque(false);
+        facets.getViewport().setOpaque(false);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, facets, table);
+        splitPane.setBorder(null);
+        splitPane.setOpaque(false);
+        panel.addFinalField(splitPane);
         return panel;
     }
 
     /**
      * Sequence model.
      */
-    static class SequenceModel {
-        private final SequenceDataset dataset;
-        private final EventList<Sequence> sequences;
+    static class SequenceModel extends ExplorerModel<Sequence, SequenceDataset> {
         private final EventList<Reference> references;
         private final EventList<Sample> samples;
 
@@ -111,8 +133,8 @@ final class SequenceView extends LabelFieldPanel {
          * @param dataset dataset, must not be null
          */
         SequenceModel(final SequenceDataset dataset) {
-            this.dataset = dataset;
-            sequences = GlazedLists.eventList(new ArrayList<Sequence>());
+            super(dataset, new ColumnProjection<Sequence>(Sequence.getClassSchema(), SequenceTable.PROPERTY_NAMES)
+                  .truncate("sequence", SequenceCellRenderer.PREVIEW_LENGTH + 1));
 
             List<SequenceRecord> s = JavaConversions.seqAsJavaList(dataset.references().records());;
             references = GlazedLists.eventList(s.stream().map(v -> v.toADAMReference()).collect(Collectors.toList()));
@@ -120,40 +142,8 @@ final class SequenceView extends LabelFieldPanel {
             samples = GlazedLists.eventList(JavaConversions.seqAsJavaList(dataset.samples()));
         }
 
-        void take(final int take) {
-            new SwingWorker<List<Sequence>, Void>() {
-                @Override
-                public List<Sequence> doInBackground() {
-                    return dataset.jrdd().take(take);
-                }
-
-                @Override
-                public void done() {
-                    try {
-                        List<Sequence> result = get();
-
-                        sequences.getReadWriteLock().writeLock().lock();
-                        try {
-                            sequences.clear();
-                            sequences.addAll(result);
-                        }
-                        finally {
-                            sequences.getReadWriteLock().writeLock().unlock();
-                        }
-                    }
-                    catch (InterruptedException | ExecutionException e) {
-                        // ignore
-                    }
-                }
-            }.execute();
-        }
-
-        SequenceDataset getDataset() {
-            return dataset;
-        }
-
         EventList<Sequence> getSequences() {
-            return sequences;
+            return getElements();
         }
 
         EventList<Reference> getReferences() {
@@ -172,7 +162,7 @@ final class SequenceView extends LabelFieldPanel {
         private final SequenceModel model;
         private static final String[] PROPERTY_NAMES = { "name", "description", "sampleId", "alphabet", "length", "sequence" };
         private static final String[] COLUMN_LABELS = { "Name", "Description", "Sample", "Alphabet", "Length", "Sequence" };
-        private static final TableFormat<Sequence> TABLE_FORMAT = GlazedLists.tableFormat(Sequence.class, PROPERTY_NAMES, COLUMN_LABELS);
+        private static final TableFormat<Sequence> TABLE_FORMAT = AccessorTableFormat.create(Sequence.class, PROPERTY_NAMES, COLUMN_LABELS);
 
 
         /**
@@ -181,16 +171,27 @@ final class SequenceView extends LabelFieldPanel {
          * @param model model, must not be null
          */
         SequenceTable(final SequenceModel model) {
-            super("Sequences:", model.getSequences(), TABLE_FORMAT);
+            super("Sequences:", model, TABLE_FORMAT);
             this.model = model;
 
             StripeTableCellRenderer renderer = new StripeTableCellRenderer();
             getTable().setDefaultRenderer(Alphabet.class, renderer);
+            int sequenceColumn = Arrays.asList(PROPERTY_NAMES).indexOf("sequence");
+            setSequenceColumn(sequenceColumn);
+            getTable().getColumnModel().getColumn(sequenceColumn).setCellRenderer(new SequenceCellRenderer());
         }
 
 
         @Override
         protected String transferableString(final Sequence s) {
+            return Joiner
+                .on("\t")
+                .useForNull("")
+                .join(s.getName(), s.getDescription(), s.getSampleId(), s.getAlphabet(), s.getLength(), SequenceCellRenderer.preview(s.getSequence()));
+        }
+
+        @Override
+        protected String exportString(final Sequence s) {
             return Joiner
                 .on("\t")
                 .useForNull("")
@@ -198,13 +199,21 @@ final class SequenceView extends LabelFieldPanel {
         }
 
         @Override
-        public void add() {
-            if (model.getSequences().isEmpty()) {
-                model.take(10);
+        protected void open(final Sequence s) {
+            if (s.getName() == null || s.getLength() == null) {
+                return;
             }
-            else {
-                model.take(model.getSequences().size() * 2);
+            List<ColumnFilter> key = new ArrayList<ColumnFilter>();
+            key.add(new ColumnFilter("name", ColumnFilter.Operator.EQUAL, s.getName()));
+            if (s.getSampleId() != null) {
+                key.add(new ColumnFilter("sampleId", ColumnFilter.Operator.EQUAL, s.getSampleId()));
             }
+            SequenceViewer.show(s.getName(), s.getLength(), (start, length) -> model.substring(key, "sequence", start, length));
+        }
+
+        @Override
+        public void add() {
+            model.next(ExplorerModel.PAGE_SIZE);
         }
     }
 }
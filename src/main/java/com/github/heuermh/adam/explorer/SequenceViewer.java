@@ -0,0 +1,188 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.awt.BorderLayout;
+import java.awt.Font;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.ExecutionException;
+
+import java.util.function.BiFunction;
+
+import javax.swing.AbstractListModel;
+import javax.swing.JFrame;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.SwingWorker;
+import javax.swing.WindowConstants;
+
+/**
+ * Sequence viewer.
+ *
+ * <p>
+ * A scrollable view of a very long sequence, one line of bases per list row.  Only the
+ * lines that are visible are requested, and bases are fetched in windows of lines on demand,
+ * for example from the dataset on the cluster, so that the whole sequence is never materialized
+ * in the driver.  The most recently shown windows are kept.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class SequenceViewer extends JPanel {
+    private final long length;
+    private final BiFunction<Long, Integer, String> windows;
+    private final LineModel lines;
+    private final Set<Long> loading = new HashSet<Long>();
+    private final Map<Long, String> fetched = new LinkedHashMap<Long, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, String> eldest) {
+                return size() > MAX_WINDOWS;
+            }
+        };
+
+    /** Number of bases per line. */
+    static final int LINE_LENGTH = 100;
+
+    /** Number of lines per window of bases fetched at once. */
+    static final int WINDOW_LINES = 100;
+
+    /** Maximum number of windows of bases to keep. */
+    static final int MAX_WINDOWS = 64;
+
+
+    /**
+     * Create a new sequence viewer.
+     *
+     * @param length length of the sequence
+     * @param windows fetches the specified number of bases of the sequence starting at the specified
+     *    zero-based position, called off the event dispatch thread, must not be null
+     */
+    SequenceViewer(final long length, final BiFunction<Long, Integer, String> windows) {
+        super(new BorderLayout());
+        this.length = length;
+        this.windows = windows;
+
+        lines = new LineModel();
+        JList<String> list = new JList<String>(lines);
+        list.setFont(new Font(Font.MONOSPACED, Font.PLAIN, list.getFont().getSize()));
+
+        // fixed cell size, so that only visible lines are requested
+        char[] prototype = new char[LINE_LENGTH];
+        Arrays.fill(prototype, 'N');
+        list.setPrototypeCellValue(line(0L, new String(prototype)));
+
+        add("Center", new JScrollPane(list));
+    }
+
+
+    /**
+     * Show a sequence viewer in a new window.
+     *
+     * @param title window title
+     * @param length length of the sequence
+     * @param windows fetches the specified number of bases of the sequence starting at the specified
+     *    zero-based position, called off the event dispatch thread, must not be null
+     */
+    static void show(final String title, final long length, final BiFunction<Long, Integer, String> windows) {
+        JFrame frame = new JFrame(title);
+        frame.setSize(970, 600);
+        frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        frame.add("Center", new SequenceViewer(length, windows));
+        frame.setVisible(true);
+    }
+
+    /**
+     * Return the specified line, showing its position and bases.
+     */
+    private static String line(final long start, final String bases) {
+        return String.format("%,15d  %s", start + 1L, bases);
+    }
+
+    /**
+     * Fetch the specified window of bases in the background, if it is not already being fetched.
+     */
+    private void fetch(final long window) {
+        if (!loading.add(window)) {
+            return;
+        }
+        final long start = window * WINDOW_LINES * LINE_LENGTH;
+        final int count = (int) Math.min((long) WINDOW_LINES * LINE_LENGTH, length - start);
+        new SwingWorker<String, Void>() {
+            @Override
+            public String doInBackground() {
+                return windows.apply(start, count);
+            }
+
+            @Override
+            public void done() {
+                loading.remove(window);
+                try {
+                    String bases = get();
+                    if (bases != null) {
+                        fetched.put(window, bases);
+                        int first = (int) (window * WINDOW_LINES);
+                        lines.changed(first, Math.min(first + WINDOW_LINES, lines.getSize()) - 1);
+                    }
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    // ignore
+                }
+            }
+        }.execute();
+    }
+
+
+    /**
+     * Line list model.
+     */
+    private final class LineModel extends AbstractListModel<String> {
+
+        @Override
+        public int getSize() {
+            return (int) Math.min(Integer.MAX_VALUE, (length + LINE_LENGTH - 1) / LINE_LENGTH);
+        }
+
+        @Override
+        public String getElementAt(final int index) {
+            long start = (long) index * LINE_LENGTH;
+            long window = index / WINDOW_LINES;
+            String bases = fetched.get(window);
+            if (bases == null) {
+                fetch(window);
+                return line(start, "");
+            }
+            int offset = (index % WINDOW_LINES) * LINE_LENGTH;
+            return line(start, bases.substring(Math.min(offset, bases.length()), Math.min(offset + LINE_LENGTH, bases.length())));
+        }
+
+        /**
+         * Notify listeners that the specified lines have changed.
+         *
+         * @param first first line, inclusive
+         * @param last last line, inclusive
+         */
+        void changed(final int first, final int last) {
+            fireContentsChanged(this, first, last);
+        }
+    }
+}
@@ -16,14 +16,14 @@
 package com.github.heuermh.adam.explorer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import java.util.concurrent.ExecutionException;
-
 import java.util.stream.Collectors;
 
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
-import javax.swing.SwingWorker;
 
 import javax.swing.border.EmptyBorder;
 
@@ -63,6 +63,12 @@ final class SliceView extends LabelFieldPanel {
     private final SliceModel model;
     private final SliceTable table;
 
+    /** Facet property names. */
+    private static final String[] FACET_PROPERTY_NAMES = { "alphabet", "sampleId", "strand" };
+
+    /** Facet labels. */
+    private static final String[] FACET_LABELS = { "Alphabet", "Sample", "Strand" };
+
     /**
      * Create a new slice view with the specified dataset.
      *
@@ -76,6 +82,13 @@ final class SliceView extends LabelFieldPanel {
         model.take(10);
     }
 
+    /**
+     * Cancel any Spark jobs running for this view.
+     */
+    void cancel() {
+        model.cancel();
+    }
+
     private void layoutComponents() {
         JTabbedPane tabbedPane = new JTabbedPane();
         tabbedPane.add("Slices", layoutSliceView());
@@ -88,19 +101,28 @@ final class SliceView extends LabelFieldPanel {
         LabelFieldPanel panel = new LabelFieldPanel();
         panel.setOpaque(false);
         panel.setBorder(new EmptyBorder(12, 12, 12, 12));
-        panel.addField("Slice count:", new DatasetCountLabel(model.getDataset()));
+        panel.addField("Slice count:", new DatasetCountLabel(model));
+        panel.addField("Page cache:", new PageCacheLabel(PageCache.getInstance()));
         panel.addField("Slices currently viewing:", new CountLabel<Slice>(model.getSlices()));
+        FilterBar filterBar = new FilterBar(model, SliceTable.PROPERTY_NAMES, SliceTable.COLUMN_LABELS);
+        panel.addField("Filter:", filterBar);
+        panel.addField("Sort:", new SortBar(model, SliceTable.PROPERTY_NAMES, SliceTable.COLUMN_LABELS));
         panel.addSpacing(12);
-        panel.addFinalField(table);
+        JScrollPane facets = new JScrollPane(new FacetPanel(model, FACET_PROPERTY_NAMES, FACET_LABELS, filterBar::update));
+        facets.setBorder(null);
+        facets.setOpaque(false);
+        facets.getViewport().setOpaque(false);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, facets, table);
+        splitPane.setBorder(null);
+        splitPane.setOpaque(false);
+        panel.addFinalField(splitPane);
         return panel;
     }
 
     /**
      * Slice model.
      */
-    static class SliceModel {
-        private final SliceDataset dataset;
-        private final EventList<Slice> slices;
+    static class SliceModel extends ExplorerModel<Slice, SliceDataset> {
         private final EventList<Reference> references;
         private final EventList<Sample> samples;
 
@@ -111,8 +133,8 @@ final class SliceView extends LabelFieldPanel {
          * @param dataset dataset, must not be null
          */
         SliceModel(final SliceDataset dataset) {
-            this.dataset = dataset;
-            slices = GlazedLists.eventList(new ArrayList<Slice>());
+            super(dataset, new ColumnProjection<Slice>(Slice.getClassSchema(), SliceTable.PROPERTY_NAMES)
+                  .truncate("sequence", SequenceCellRenderer.PREVIEW_LENGTH + 1));
 
             List<SequenceRecord> s = JavaConversions.seqAsJavaList(dataset.references().records());;
             references = GlazedLists.eventList(s.stream().map(v -> v.toADAMReference()).collect(Collectors.toList()));
@@ -120,40 +142,8 @@ final class SliceView extends LabelFieldPanel {
             samples = GlazedLists.eventList(JavaConversions.seqAsJavaList(dataset.samples()));
         }
 
-        void take(final int take) {
-            new SwingWorker<List<Slice>, Void>() {
-                @Override
-                public List<Slice> doInBackground() {
-                    return dataset.jrdd().take(take);
-                }
-
-                @Override
-                public void done() {
-                    try {
-                        List<Slice> result = get();
-
-                        slices.getReadWriteLock().writeLock().lock();
-                        try {
-                            slices.clear();
-                            slices.addAll(result);
-                        }
-                        finally {
-                            slices.getReadWriteLock().writeLock().unlock();
-                        }
-                    }
-                    catch (InterruptedException | ExecutionException e) {
-                        // ignore
-                    }
-                }
-            }.execute();
-        }
-
-        SliceDataset getDataset() {
-            return dataset;
-        }
-
         EventList<Slice> getSlices() {
-            return slices;
+            return getElements();
         }
 
         EventList<Reference> getReferences() {
@@ -172,7 +162,7 @@ final class SliceView extends LabelFieldPanel {
         private final SliceModel model;
         private static final String[] PROPERTY_NAMES = { "name", "description", "sampleId", "alphabet", "start", "end", "length", "index", "slices", "totalLength", "sequence" };
         private static final String[] COLUMN_LABELS = { "Name", "Description", "Sample", "Alphabet", "Start", "End", "Length", "Index", "Slices", "Total Length", "Sequence" };
-        private static final TableFormat<Slice> TABLE_FORMAT = GlazedLists.tableFormat(Slice.class, PROPERTY_NAMES, COLUMN_LABELS);
+        private static final TableFormat<Slice> TABLE_FORMAT = AccessorTableFormat.create(Slice.class, PROPERTY_NAMES, COLUMN_LABELS);
 
 
         /**
@@ -181,16 +171,27 @@ final class SliceView extends LabelFieldPanel {
          * @param model model, must not be null
          */
         SliceTable(final SliceModel model) {
-            super("Slices:", model.getSlices(), TABLE_FORMAT);
+            super("Slices:", model, TABLE_FORMAT);
             this.model = model;
 
             StripeTableCellRenderer renderer = new StripeTableCellRenderer();
             getTable().setDefaultRenderer(Alphabet.class, renderer);
+            int sequenceColumn = Arrays.asList(PROPERTY_NAMES).indexOf("sequence");
+            setSequenceColumn(sequenceColumn);
+            getTable().getColumnModel().getColumn(sequenceColumn).setCellRenderer(new SequenceCellRenderer());
         }
 
 
         @Override
         protected String transferableString(final Slice s) {
+            return Joiner
+                .on("\t")
+                .useForNull("")
+                .join(s.getName(), s.getDescription(), s.getSampleId(), s.getAlphabet(), s.getStart(), s.getEnd(), s.getLength(), s.getIndex(), s.getSlices(), s.getTotalLength(), SequenceCellRenderer.preview(s.getSequence()));
+        }
+
+        @Override
+        protected String exportString(final Slice s) {
             return Joiner
                 .on("\t")
                 .useForNull("")
@@ -198,13 +199,24 @@ final class SliceView extends LabelFieldPanel {
         }
 
         @Override
-        public void add() {
-            if (model.getSlices().isEmpty()) {
-                model.take(10);
+        protected void open(final Slice s) {
+            if (s.getName() == null || s.getLength() == null) {
+                return;
             }
-            else {
-                model.take(model.getSlices().size() * 2);
+            List<ColumnFilter> key = new ArrayList<ColumnFilter>();
+            key.add(new ColumnFilter("name", ColumnFilter.Operator.EQUAL, s.getName()));
+            if (s.getSampleId() != null) {
+                key.add(new ColumnFilter("sampleId", ColumnFilter.Operator.EQUAL, s.getSampleId()));
             }
+            if (s.getStart() != null) {
+                key.add(new ColumnFilter("start", ColumnFilter.Operator.EQUAL, s.getStart()));
+            }
+            SequenceViewer.show(s.getName(), s.getLength(), (start, length) -> model.substring(key, "sequence", start, length));
+        }
+
+        @Override
+        public void add() {
+            model.next(ExplorerModel.PAGE_SIZE);
         }
     }
 }
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.awt.FlowLayout;
+
+import java.awt.event.ActionEvent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+
+import org.apache.spark.sql.types.StructType;
+
+import org.dishevelled.iconbundle.tango.TangoProject;
+
+import org.dishevelled.identify.IdButton;
+import org.dishevelled.identify.IdentifiableAction;
+
+/**
+ * Sort bar, orders the rows in an explorer model by a displayed column across the
+ * whole dataset view with a distributed top-K.  Tables backed by an explorer model are not
+ * sortable by clicking on column headers, see {@link ExplorerTable}.
+ *
+ * @author  Michael Heuer
+ */
+class SortBar extends JPanel {
+    private final ExplorerModel<?, ?> model;
+    private final Map<String, String> columns;
+    private final JComboBox<String> column;
+    private final JLabel sort;
+    private final IdentifiableAction sortAscendingAction;
+    private final IdentifiableAction sortDescendingAction;
+    private final IdentifiableAction clearSortAction;
+
+
+    /**
+     * Create a new sort bar for the specified model.  Only displayed columns with string,
+     * numeric, or boolean types in the Spark SQL schema of the dataset may be sorted.
+     *
+     * @param model model, must not be null
+     * @param propertyNames displayed property names, must not be null
+     * @param columnLabels displayed column labels, must not be null
+     */
+    SortBar(final ExplorerModel<?, ?> model, final String[] propertyNames, final String[] columnLabels) {
+        super(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        this.model = model;
+
+        columns = new LinkedHashMap<String, String>();
+        StructType schema = model.getDataset().dataset().schema();
+        for (int i = 0; i < propertyNames.length; i++) {
+            if (ColumnProjection.isScalar(ColumnProjection.resolve(schema, propertyNames[i]))) {
+                columns.put(columnLabels[i], propertyNames[i]);
+            }
+        }
+
+        column = new JComboBox<String>(columns.keySet().toArray(new String[0]));
+        sort = new JLabel("");
+
+        sortAscendingAction = new IdentifiableAction("Sort ascending", TangoProject.VIEW_SORT_ASCENDING) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    sort(true);
+                }
+            };
+        sortDescendingAction = new IdentifiableAction("Sort descending", TangoProject.VIEW_SORT_DESCENDING) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    sort(false);
+                }
+            };
+        clearSortAction = new IdentifiableAction("Clear sort", TangoProject.EDIT_CLEAR) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    clearSort();
+                }
+            };
+
+        boolean enabled = model.isSortable() && !columns.isEmpty();
+        column.setEnabled(enabled);
+        sortAscendingAction.setEnabled(enabled);
+        sortDescendingAction.setEnabled(enabled);
+        clearSortAction.setEnabled(false);
+
+        add(column);
+        add(createButton(sortAscendingAction));
+        add(createButton(sortDescendingAction));
+        add(createButton(clearSortAction));
+        add(sort);
+    }
+
+
+    /**
+     * Order the rows in the model by the selected column.
+     *
+     * @param ascending true to sort in ascending order
+     */
+    void sort(final boolean ascending) {
+        String label = (String) column.getSelectedItem();
+        if (label == null) {
+            return;
+        }
+        model.setSort(columns.get(label), ascending);
+        sort.setText(label + (ascending ? " ascending" : " descending"));
+        clearSortAction.setEnabled(true);
+    }
+
+    /**
+     * Remove the order of the rows in the model.
+     */
+    void clearSort() {
+        model.setSort(null, true);
+        sort.setText("");
+        clearSortAction.setEnabled(false);
+    }
+
+    private static IdButton createButton(final IdentifiableAction action) {
+        IdButton button = new IdButton(action, TangoProject.EXTRA_SMALL);
+        button.displayIcon();
+        button.setBorderPainted(false);
+        button.setToolTipText(action.getName());
+        return button;
+    }
+}
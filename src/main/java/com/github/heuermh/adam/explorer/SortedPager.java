@@ -0,0 +1,251 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.monotonically_increasing_id;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import java.util.function.Consumer;
+
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+
+/**
+ * Sorted pager.
+ *
+ * <p>
+ * Pages through a dataset view in the order of a single column using a distributed top-K,
+ * <code>orderBy(column).limit(count)</code>, which Spark plans as a bounded heap per partition
+ * merged on the driver rather than as a shuffle sort.  Rows with equal values in the sort column
+ * are ordered by a row id, <code>monotonically_increasing_id()</code>, so that the order is total
+ * and pages neither overlap nor skip rows.
+ * </p>
+ *
+ * <p>
+ * Row ids encode the partition index and the position of the row within its partition, so cursors
+ * of row ids are only valid if every job sees the same rows in the same partitions in the same
+ * order.  That holds for the views of an explorer model, which are scans of the dataset with filters
+ * and projections only, with partitions fixed by the input splits, but not for views with a shuffle,
+ * e.g. after a join, <code>repartition</code>, or an aggregation, whose partitioning and order within
+ * partitions may change from one job to the next, not least with adaptive query execution.
+ * </p>
+ *
+ * <p>
+ * Each page starts after the sort value and row id of the last row of the previous page,
+ * <code>where (column, id) &gt; (last column, last id)</code>, so that only <code>count</code> rows
+ * are shipped to the driver however deep the page is.  The cursor at the end of each page fetched
+ * is kept, so seeking back to a page fetched before costs nothing.  Seeking forward more than
+ * {@link #MAX_SKIP} rows past the last cursor is refused, since it would scan the sort values of
+ * all of the rows skipped.
+ * </p>
+ *
+ * @param <T> element type
+ * @author  Michael Heuer
+ */
+final class SortedPager<T> implements Pager<T> {
+    private final Dataset<Row> rows;
+    private final ColumnProjection<T> projection;
+    private final boolean ascending;
+    private final Column order;
+    private final Column tiebreak;
+    private final TreeMap<Long, Cursor> cursors = new TreeMap<Long, Cursor>();
+    private long offset;
+    private Cursor cursor;
+    private boolean exhausted;
+
+    /** Maximum number of rows skipped when seeking forward past the last cursor. */
+    static final int MAX_SKIP = 10000;
+
+    /** Column for the value of the sort column. */
+    private static final String SORT_KEY = "_sortKey";
+
+    /** Column for the row id. */
+    private static final String ROW_ID = "_rowId";
+
+
+    /**
+     * Create a new sorted pager.
+     *
+     * @param rows Spark SQL <code>Dataset</code> view selected by the specified projection, must not be null
+     * @param projection column projection, must not be null
+     * @param column column to sort by, must not be null
+     * @param ascending true to sort in ascending order
+     */
+    SortedPager(final Dataset<Row> rows, final ColumnProjection<T> projection, final String column, final boolean ascending) {
+        // columns not in the Avro schema are ignored by the projection; row ids are only stable
+        // across jobs if the rows are not shuffled, see above
+        this.rows = rows.withColumn(SORT_KEY, rows.col(column)).withColumn(ROW_ID, monotonically_increasing_id());
+        this.projection = projection;
+        this.ascending = ascending;
+        this.order = ascending ? col(SORT_KEY).asc_nulls_last() : col(SORT_KEY).desc_nulls_last();
+        this.tiebreak = col(ROW_ID).asc();
+        // the cursor at the start of the sorted order is null
+        cursors.put(0L, null);
+    }
+
+
+    /**
+     * Return a new sorted pager over the same rows in the same order, selected by the specified
+     * projection, e.g. with all of the columns untruncated, starting with the cursors of this pager.
+     *
+     * @param rows Spark SQL <code>Dataset</code> view selected by the specified projection, with the
+     *    same partitions as the rows of this pager, must not be null
+     * @param projection column projection, must not be null
+     * @param column column to sort by, must not be null
+     * @return a new sorted pager over the same rows in the same order
+     */
+    synchronized SortedPager<T> project(final Dataset<Row> rows, final ColumnProjection<T> projection, final String column) {
+        SortedPager<T> pager = new SortedPager<T>(rows, projection, column, ascending);
+        // row ids depend only on the partitions, so the cursors carry over
+        pager.cursors.putAll(cursors);
+        return pager;
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        return !exhausted;
+    }
+
+    @Override
+    public synchronized boolean seek(final long row) {
+        if (row == offset && cursors.containsKey(row)) {
+            return true;
+        }
+        Map.Entry<Long, Cursor> floor = cursors.floorEntry(row);
+        long skip = row - floor.getKey();
+        if (skip > MAX_SKIP) {
+            return false;
+        }
+        offset = floor.getKey();
+        cursor = floor.getValue();
+        exhausted = false;
+        if (skip > 0L) {
+            List<Row> skipped = after(cursor)
+                .select(col(SORT_KEY), col(ROW_ID))
+                .orderBy(order, tiebreak)
+                .limit((int) skip)
+                .collectAsList();
+            if (skipped.size() < skip) {
+                exhausted = true;
+                return false;
+            }
+            Row last = skipped.get(skipped.size() - 1);
+            cursor = new Cursor(last.get(0), last.getLong(1));
+            offset = row;
+        }
+        return true;
+    }
+
+    @Override
+    public List<T> next(final int count) {
+        return next(count, null);
+    }
+
+    @Override
+    public synchronized List<T> next(final int count, final Consumer<List<T>> batches) {
+        List<Row> top = after(cursor).orderBy(order, tiebreak).limit(count).collectAsList();
+        List<T> page = new ArrayList<T>(top.size());
+        for (Row row : top) {
+            page.add(projection.toRecord(row));
+        }
+        if (!top.isEmpty()) {
+            Row last = top.get(top.size() - 1);
+            cursor = new Cursor(last.get(last.fieldIndex(SORT_KEY)), last.getLong(last.fieldIndex(ROW_ID)));
+            offset += top.size();
+            cursors.put(offset, cursor);
+        }
+        exhausted = top.size() < count;
+
+        // the top-K is merged on the driver, so the page arrives as a single batch
+        if (batches != null && !page.isEmpty()) {
+            batches.accept(page);
+        }
+        return page;
+    }
+
+    /**
+     * Return the rows after the specified cursor in the sorted order.
+     */
+    private Dataset<Row> after(final Cursor cursor) {
+        if (cursor == null) {
+            return rows;
+        }
+        Column key = col(SORT_KEY);
+        Column id = col(ROW_ID);
+        // nulls are last in either order
+        if (cursor.getKey() == null) {
+            return rows.where(key.isNull().and(id.gt(cursor.getId())));
+        }
+        Column value = lit(cursor.getKey());
+        Column beyond = ascending ? key.gt(value) : key.lt(value);
+        return rows.where(beyond.or(key.equalTo(value).and(id.gt(cursor.getId()))).or(key.isNull()));
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        // a full sort is a shuffle, rows are then fetched a sorted partition at a time
+        final Iterator<Row> sorted = rows.orderBy(order, tiebreak).toLocalIterator();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return sorted.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return projection.toRecord(sorted.next());
+            }
+        };
+    }
+
+
+    /**
+     * Position in the sorted order, the sort value and row id of the last row before it.
+     */
+    private static final class Cursor {
+        private final Object key;
+        private final long id;
+
+
+        /**
+         * Create a new cursor.
+         *
+         * @param key sort value, if any
+         * @param id row id
+         */
+        Cursor(final Object key, final long id) {
+            this.key = key;
+            this.id = id;
+        }
+
+
+        Object getKey() {
+            return key;
+        }
+
+        long getId() {
+            return id;
+        }
+    }
+}
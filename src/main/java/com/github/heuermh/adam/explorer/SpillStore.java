@@ -0,0 +1,194 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Spill store.
+ *
+ * <p>
+ * Stores pages of encoded rows by key in memory-mapped segment files in a temporary directory,
+ * so that pages evicted from memory can be read back without fetching them again.  Only the
+ * position of each page is kept on the heap.  Pages are appended; a page written again under
+ * the same key replaces the earlier copy, whose space is not reclaimed until the store is cleared.
+ * This store is not thread safe.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class SpillStore {
+    private final Path directory;
+    private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+    private final List<Path> files = new ArrayList<Path>();
+    private final Map<Long, Long> positions = new HashMap<Long, Long>();
+    private int segment;
+    private int position;
+
+    /** Size of a segment file, in bytes. */
+    static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+
+    /**
+     * Create a new spill store in a new temporary directory.
+     *
+     * @throws IOException if the temporary directory could not be created
+     */
+    SpillStore() throws IOException {
+        directory = Files.createTempDirectory("adam-explorer-");
+        directory.toFile().deleteOnExit();
+    }
+
+
+    /**
+     * Write the specified page under the specified key, replacing any page already stored under that key.
+     *
+     * @param key key
+     * @param page page, must not be null
+     * @throws UncheckedIOException if the page could not be written
+     */
+    void write(final long key, final byte[] page) {
+        int length = 4 + page.length;
+        if (segments.isEmpty() || position + length > segments.get(segment).capacity()) {
+            nextSegment(length);
+        }
+        ByteBuffer buffer = segments.get(segment).duplicate();
+        buffer.position(position);
+        buffer.putInt(page.length);
+        buffer.put(page);
+        positions.put(key, ((long) segment << 32) | position);
+        position += length;
+    }
+
+    /**
+     * Read the page stored under the specified key, if any.
+     *
+     * @param key key
+     * @return the page stored under the specified key, or <code>null</code> if none is stored
+     */
+    byte[] read(final long key) {
+        Long location = positions.get(key);
+        if (location == null) {
+            return null;
+        }
+        ByteBuffer buffer = segments.get((int) (location >>> 32)).duplicate();
+        buffer.position((int) (location & 0xffffffffL));
+        byte[] page = new byte[buffer.getInt()];
+        buffer.get(page);
+        return page;
+    }
+
+    /**
+     * Return true if a page is stored under the specified key.
+     *
+     * @param key key
+     * @return true if a page is stored under the specified key
+     */
+    boolean contains(final long key) {
+        return positions.containsKey(key);
+    }
+
+    /**
+     * Remove the page stored under the specified key, if any.
+     *
+     * @param key key
+     */
+    void remove(final long key) {
+        positions.remove(key);
+    }
+
+    /**
+     * Remove the pages stored under keys matching the specified predicate.
+     *
+     * @param predicate predicate, must not be null
+     */
+    void removeIf(final LongPredicate predicate) {
+        positions.keySet().removeIf(key -> predicate.test(key));
+    }
+
+    /**
+     * Remove all pages from this store, reusing its segment files.
+     */
+    void clear() {
+        positions.clear();
+        segment = 0;
+        position = 0;
+    }
+
+    /**
+     * Remove all pages from this store and delete its segment files and temporary directory.
+     */
+    void close() {
+        clear();
+        segments.clear();
+        for (Path file : files) {
+            file.toFile().delete();
+        }
+        files.clear();
+        directory.toFile().delete();
+    }
+
+    /**
+     * Move to the next segment with room for the specified number of bytes, mapping a new segment file if necessary.
+     */
+    private void nextSegment(final int length) {
+        if (!segments.isEmpty()) {
+            segment++;
+        }
+        position = 0;
+        if (segment < segments.size() && segments.get(segment).capacity() >= length) {
+            return;
+        }
+        try {
+            Path file = Files.createTempFile(directory, "segment-", ".avro");
+            file.toFile().deleteOnExit();
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw");
+                 FileChannel channel = randomAccessFile.getChannel()) {
+                // mapped buffers remain valid after the channel is closed
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0L, Math.max(SEGMENT_SIZE, length));
+                if (segment < segments.size()) {
+                    // replace a reused segment that is too small in place, positions encode segment indices
+                    segments.set(segment, mapped);
+                    files.set(segment, file).toFile().delete();
+                }
+                else {
+                    segments.add(mapped);
+                    files.add(file);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("could not map segment file in " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import static org.apache.spark.sql.functions.col;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Row;
+
+import org.bdgenomics.adam.ds.GenomicDataset;
+
+import org.bdgenomics.adam.models.ReferenceRegion;
+
+import org.bdgenomics.formats.avro.Strand;
+
+/**
+ * Tile.
+ *
+ * <p>
+ * The genomic intervals of a dataset view overlapping one fixed-size region of a reference, fetched
+ * from the dataset by region, see {@link RegionFilter}, with only the <code>start</code> and <code>end</code>
+ * columns, a label, and a strand shipped to the driver.  Intervals are assigned to lanes when the tile is
+ * fetched, so that drawing a tile does not lay it out again.  Tiles with more than {@link #MAX_INTERVALS}
+ * intervals are marked dense and keep only the first intervals fetched.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class Tile {
+    private final long[] starts;
+    private final long[] ends;
+    private final boolean[] reverse;
+    private final String[] labels;
+    private final int[] lanes;
+    private final int laneCount;
+    private final boolean dense;
+
+    /** Tile sizes, in bases, from finest to coarsest; each a multiple of the previous. */
+    static final int[] TILE_SIZES = { 1000, 10000, 100000, 1000000 };
+
+    /** Maximum number of intervals in a tile. */
+    static final int MAX_INTERVALS = 5000;
+
+
+    /**
+     * Create a new tile, assigning intervals to lanes.
+     *
+     * @param starts interval starts, in ascending order
+     * @param ends interval ends
+     * @param reverse true for intervals on the reverse strand
+     * @param labels interval labels
+     * @param dense true if the tile has more intervals than those given
+     */
+    Tile(final long[] starts, final long[] ends, final boolean[] reverse, final String[] labels, final boolean dense) {
+        this.starts = starts;
+        this.ends = ends;
+        this.reverse = reverse;
+        this.labels = labels;
+        this.dense = dense;
+
+        // greedy, first lane free at each start
+        lanes = new int[starts.length];
+        long[] laneEnds = new long[16];
+        int count = 0;
+        for (int i = 0; i < starts.length; i++) {
+            int lane = 0;
+            while (lane < count && laneEnds[lane] > starts[i]) {
+                lane++;
+            }
+            if (lane == count) {
+                if (count == laneEnds.length) {
+                    laneEnds = Arrays.copyOf(laneEnds, count * 2);
+                }
+                count++;
+            }
+            laneEnds[lane] = ends[i];
+            lanes[i] = lane;
+        }
+        laneCount = count;
+    }
+
+
+    /**
+     * Return the number of intervals in this tile.
+     *
+     * @return the number of intervals in this tile
+     */
+    int size() {
+        return starts.length;
+    }
+
+    long getStart(final int i) {
+        return starts[i];
+    }
+
+    long getEnd(final int i) {
+        return ends[i];
+    }
+
+    boolean isReverse(final int i) {
+        return reverse[i];
+    }
+
+    String getLabel(final int i) {
+        return labels[i];
+    }
+
+    int getLane(final int i) {
+        return lanes[i];
+    }
+
+    /**
+     * Return the number of lanes in this tile.
+     *
+     * @return the number of lanes in this tile
+     */
+    int getLaneCount() {
+        return laneCount;
+    }
+
+    /**
+     * Return true if this tile has more intervals than it keeps.
+     *
+     * @return true if this tile has more intervals than it keeps
+     */
+    boolean isDense() {
+        return dense;
+    }
+
+    /**
+     * Return the estimated size of this tile on the heap, in bytes.
+     *
+     * @return the estimated size of this tile on the heap, in bytes
+     */
+    long bytes() {
+        long bytes = 64L + starts.length * 29L;
+        for (String label : labels) {
+            bytes += (label == null) ? 0L : 40L + 2L * label.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Encode this tile.
+     *
+     * @return this tile encoded
+     */
+    byte[] encode() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 + starts.length * 24);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeBoolean(dense);
+            out.writeInt(starts.length);
+            for (int i = 0; i < starts.length; i++) {
+                out.writeLong(starts[i]);
+                out.writeLong(ends[i]);
+                out.writeBoolean(reverse[i]);
+                out.writeBoolean(labels[i] != null);
+                if (labels[i] != null) {
+                    out.writeUTF(labels[i]);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Decode the specified encoded tile.
+     *
+     * @param bytes encoded tile, must not be null
+     * @return the specified encoded tile decoded
+     */
+    static Tile decode(final byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            boolean dense = in.readBoolean();
+            int size = in.readInt();
+            long[] starts = new long[size];
+            long[] ends = new long[size];
+            boolean[] reverse = new boolean[size];
+            String[] labels = new String[size];
+            for (int i = 0; i < size; i++) {
+                starts[i] = in.readLong();
+                ends[i] = in.readLong();
+                reverse[i] = in.readBoolean();
+                labels[i] = in.readBoolean() ? in.readUTF() : null;
+            }
+            return new Tile(starts, ends, reverse, labels, dense);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Fetch the tile for the specified region of the specified dataset view.  Blocks until
+     * the Spark job completes; do not call on the event dispatch thread.
+     *
+     * @param view dataset view, must not be null
+     * @param region region, must not be null
+     * @param label label column, e.g. <code>col("readName")</code>, must not be null
+     * @param reverse reverse strand column, boolean, must not be null
+     * @return the tile for the specified region of the specified dataset view
+     */
+    static Tile fetch(final GenomicDataset<?, ?, ?> view, final ReferenceRegion region, final Column label, final Column reverse) {
+        List<Row> rows = RegionFilter.filter(view, region).dataset().toDF()
+            .filter(col("start").isNotNull().and(col("end").isNotNull()))
+            .select(col("start"), col("end"), label, reverse)
+            .limit(MAX_INTERVALS + 1)
+            .collectAsList();
+
+        // some region filters are coarser than the region, e.g. partition bins
+        List<Row> overlapping = new ArrayList<Row>(rows.size());
+        for (Row row : rows) {
+            if (row.getLong(0) < region.end() && row.getLong(1) > region.start()) {
+                overlapping.add(row);
+            }
+        }
+        overlapping.sort((a, b) -> Long.compare(a.getLong(0), b.getLong(0)));
+
+        int size = Math.min(overlapping.size(), MAX_INTERVALS);
+        long[] starts = new long[size];
+        long[] ends = new long[size];
+        boolean[] reverses = new boolean[size];
+        String[] labels = new String[size];
+        for (int i = 0; i < size; i++) {
+            Row row = overlapping.get(i);
+            starts[i] = row.getLong(0);
+            ends[i] = row.getLong(1);
+            labels[i] = row.isNullAt(2) ? null : row.get(2).toString();
+            reverses[i] = !row.isNullAt(3) && row.getBoolean(3);
+        }
+        return new Tile(starts, ends, reverses, labels, rows.size() > MAX_INTERVALS);
+    }
+
+    /**
+     * Return the region of the specified tile.
+     *
+     * @param referenceName reference name
+     * @param tileSize tile size, one of {@link #TILE_SIZES}
+     * @param index tile index
+     * @return the region of the specified tile
+     */
+    static ReferenceRegion region(final String referenceName, final int tileSize, final long index) {
+        return ReferenceRegion.apply(referenceName, index * tileSize, (index + 1L) * tileSize, Strand.INDEPENDENT);
+    }
+
+
+    /**
+     * Tile key.
+     */
+    static final class Key {
+        private final Object view;
+        private final String referenceName;
+        private final int tileSize;
+        private final long index;
+
+
+        /**
+         * Create a new tile key.
+         *
+         * @param view identity of the dataset view, must not be null
+         * @param referenceName reference name, must not be null
+         * @param tileSize tile size, one of {@link Tile#TILE_SIZES}
+         * @param index tile index
+         */
+        Key(final Object view, final String referenceName, final int tileSize, final long index) {
+            this.view = view;
+            this.referenceName = referenceName;
+            this.tileSize = tileSize;
+            this.index = index;
+        }
+
+
+        /**
+         * Return the identity of the dataset view for this key.
+         *
+         * @return the identity of the dataset view for this key
+         */
+        Object getView() {
+            return view;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return tileSize == key.tileSize && index == key.index && referenceName.equals(key.referenceName) && view.equals(key.view);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(view, referenceName, tileSize, index);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.spark.SparkConf;
+
+/**
+ * Tile cache.
+ *
+ * <p>
+ * A least recently used cache of tiles, shared by all tracks in the driver and bounded by the
+ * estimated size of the tiles it holds.  Tiles evicted from memory are written to a spill store
+ * on disk, see {@link SpillStore}, and read back from there when they are needed again, so that
+ * panning back or zooming out and in again does not fetch them from the dataset again.  The spill
+ * store is bounded too; once full it is cleared and refilled.
+ * </p>
+ *
+ * <p>
+ * The capacities of the cache are configured with the Spark configuration keys
+ * <code>spark.adam.explorer.tiles.size</code> and <code>spark.adam.explorer.tiles.disk.size</code>,
+ * e.g. <code>--conf spark.adam.explorer.tiles.size=128m</code>, by the first track created.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+final class TileCache {
+    private final long capacity;
+    private final long diskCapacity;
+    private long size;
+    private long diskSize;
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private long nextId;
+    private SpillStore spillStore;
+    private final LinkedHashMap<Tile.Key, Tile> tiles = new LinkedHashMap<Tile.Key, Tile>(16, 0.75f, true);
+    private final Map<Tile.Key, Long> spilled = new HashMap<Tile.Key, Long>();
+
+    /** Shared tile cache, if created. */
+    private static TileCache instance;
+
+    /** Spark configuration key for the capacity of the shared tile cache in memory. */
+    static final String CAPACITY = "spark.adam.explorer.tiles.size";
+
+    /** Default capacity of the shared tile cache in memory. */
+    static final String DEFAULT_CAPACITY = "32m";
+
+    /** Spark configuration key for the capacity of the shared tile cache on disk. */
+    static final String DISK_CAPACITY = "spark.adam.explorer.tiles.disk.size";
+
+    /** Default capacity of the shared tile cache on disk. */
+    static final String DEFAULT_DISK_CAPACITY = "512m";
+
+
+    /**
+     * Create a new tile cache with the specified capacities.
+     *
+     * @param capacity capacity in memory, in bytes
+     * @param diskCapacity capacity on disk, in bytes
+     */
+    TileCache(final long capacity, final long diskCapacity) {
+        if (capacity < 0L) {
+            throw new IllegalArgumentException("capacity must be at least zero, was " + capacity);
+        }
+        if (diskCapacity < 0L) {
+            throw new IllegalArgumentException("diskCapacity must be at least zero, was " + diskCapacity);
+        }
+        this.capacity = capacity;
+        this.diskCapacity = diskCapacity;
+    }
+
+
+    /**
+     * Return the tile with the specified key from memory, if any, without reading from disk.
+     * Fast enough to call while painting.
+     *
+     * @param key key
+     * @return the tile with the specified key, or <code>null</code> if it is not in memory
+     */
+    synchronized Tile peek(final Tile.Key key) {
+        return tiles.get(key);
+    }
+
+    /**
+     * Return the tile with the specified key, if any, reading it back from disk if it was
+     * evicted from memory, and recording a hit or miss.
+     *
+     * @param key key
+     * @return the tile with the specified key, or <code>null</code> if it is not in this cache
+     */
+    synchronized Tile get(final Tile.Key key) {
+        Tile tile = tiles.get(key);
+        if (tile != null) {
+            hits++;
+            return tile;
+        }
+        Long id = spilled.get(key);
+        if (id != null) {
+            byte[] bytes = spillStore.read(id);
+            if (bytes != null) {
+                diskHits++;
+                tile = Tile.decode(bytes);
+                put(key, tile);
+                return tile;
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Put the specified tile in this cache, evicting least recently used tiles to disk until
+     * this cache is within its capacity in memory.
+     *
+     * @param key key
+     * @param tile tile, must not be null
+     */
+    synchronized void put(final Tile.Key key, final Tile tile) {
+        Tile previous = tiles.put(key, tile);
+        if (previous != null) {
+            size -= previous.bytes();
+        }
+        size += tile.bytes();
+
+        for (Iterator<Map.Entry<Tile.Key, Tile>> i = tiles.entrySet().iterator(); size > capacity && i.hasNext(); ) {
+            Map.Entry<Tile.Key, Tile> eldest = i.next();
+            i.remove();
+            size -= eldest.getValue().bytes();
+            spill(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /**
+     * Write the specified tile to disk, clearing the spill store first if it is full.
+     */
+    private void spill(final Tile.Key key, final Tile tile) {
+        if (spilled.containsKey(key) || diskCapacity == 0L) {
+            return;
+        }
+        byte[] bytes = tile.encode();
+        try {
+            if (spillStore == null) {
+                spillStore = new SpillStore();
+            }
+            if (diskSize + bytes.length > diskCapacity) {
+                spillStore.clear();
+                spilled.clear();
+                diskSize = 0L;
+            }
+            long id = nextId++;
+            spillStore.write(id, bytes);
+            spilled.put(key, id);
+            diskSize += bytes.length;
+        }
+        catch (IOException | UncheckedIOException e) {
+            // tiles not spilled are fetched again
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + diskHits + misses;
+        return String.format("%.0f%% hits, %.0f%% from disk, %.1f of %.1f MB, %.1f MB on disk",
+                             (lookups == 0L) ? 0.0d : 100.0d * (hits + diskHits) / lookups,
+                             (lookups == 0L) ? 0.0d : 100.0d * diskHits / lookups,
+                             size / 1048576.0d, capacity / 1048576.0d, diskSize / 1048576.0d);
+    }
+
+    /**
+     * Return the tile cache shared by all tracks, creating it with the capacities configured
+     * in the specified Spark configuration if necessary.
+     *
+     * @param conf Spark configuration, must not be null
+     * @return the tile cache shared by all tracks
+     */
+    static synchronized TileCache getInstance(final SparkConf conf) {
+        if (instance == null) {
+            instance = new TileCache(conf.getSizeAsBytes(CAPACITY, DEFAULT_CAPACITY), conf.getSizeAsBytes(DISK_CAPACITY, DEFAULT_DISK_CAPACITY));
+        }
+        return instance;
+    }
+}
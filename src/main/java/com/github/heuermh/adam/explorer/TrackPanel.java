@@ -0,0 +1,117 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.Toolkit;
+
+import java.awt.event.ActionEvent;
+
+import java.util.List;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+
+import org.apache.spark.sql.Column;
+
+import org.bdgenomics.adam.models.SequenceRecord;
+
+import org.dishevelled.iconbundle.tango.TangoProject;
+
+import org.dishevelled.identify.IdButton;
+import org.dishevelled.identify.IdentifiableAction;
+
+import scala.collection.JavaConversions;
+
+/**
+ * Track panel.
+ *
+ * <p>
+ * Shows an interval track for the dataset of an explorer model, see {@link IntervalTrack}, with a
+ * locus field to move the track to a region.  The track starts at the beginning of the first
+ * reference in the sequence dictionary of the dataset, if any.
+ * </p>
+ *
+ * @author  Michael Heuer
+ */
+class TrackPanel extends JPanel {
+    private final IntervalTrack track;
+    private final JTextField locusField;
+    private final IdentifiableAction goAction;
+
+    /** Span of the region shown first, in bases. */
+    private static final long INITIAL_SPAN = 10000L;
+
+
+    /**
+     * Create a new track panel for the dataset of the specified model.
+     *
+     * @param model explorer model, must not be null
+     * @param label label column, e.g. <code>col("readName")</code>, must not be null
+     * @param reverse reverse strand column, boolean, must not be null
+     */
+    TrackPanel(final ExplorerModel<?, ?> model, final Column label, final Column reverse) {
+        super(new BorderLayout());
+        setOpaque(false);
+
+        track = new IntervalTrack(model, label, reverse);
+        locusField = new JTextField(24);
+        locusField.setToolTipText("Locus, e.g. chr1:1,000,000-1,010,000; scroll the track to zoom, drag to pan");
+        goAction = new IdentifiableAction("Go to locus", TangoProject.GO_JUMP) {
+                @Override
+                public void actionPerformed(final ActionEvent event) {
+                    goToLocus();
+                }
+            };
+        locusField.setAction(goAction);
+
+        IdButton go = new IdButton(goAction, TangoProject.EXTRA_SMALL);
+        go.displayIcon();
+        go.setBorderPainted(false);
+        go.setToolTipText("Go to locus");
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        controls.setOpaque(false);
+        controls.add(new JLabel("Locus:"));
+        controls.add(locusField);
+        controls.add(go);
+
+        add("North", controls);
+        add("Center", track);
+
+        List<SequenceRecord> records = JavaConversions.seqAsJavaList(model.getDataset().references().records());
+        if (!records.isEmpty()) {
+            SequenceRecord first = records.get(0);
+            locusField.setText(String.format("%s:1-%d", first.name(), Math.min(INITIAL_SPAN, Math.max(1L, first.length()))));
+            goToLocus();
+        }
+    }
+
+
+    /**
+     * Move the track to the locus in the locus field.
+     */
+    void goToLocus() {
+        try {
+            track.show(RegionFilter.parse(locusField.getText()));
+        }
+        catch (IllegalArgumentException e) {
+            Toolkit.getDefaultToolkit().beep();
+        }
+    }
+}
@@ -15,15 +15,17 @@
  */
 package com.github.heuermh.adam.explorer;
 
-import java.util.ArrayList;
-import java.util.List;
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.concat_ws;
+import static org.apache.spark.sql.functions.lit;
 
-import java.util.concurrent.ExecutionException;
+import java.util.List;
 
 import java.util.stream.Collectors;
 
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
-import javax.swing.SwingWorker;
 
 import javax.swing.border.EmptyBorder;
 
@@ -34,6 +36,8 @@ import ca.odell.glazedlists.gui.TableFormat;
 
 import com.google.common.base.Joiner;
 
+import htsjdk.samtools.ValidationStringency;
+
 import htsjdk.variant.vcf.VCFHeaderLine;
 
 import org.bdgenomics.adam.ds.variant.VariantDataset;
@@ -61,6 +65,12 @@ final class VariantView extends LabelFieldPanel {
     private final VariantModel model;
     private final VariantTable table;
 
+    /** Facet property names. */
+    private static final String[] FACET_PROPERTY_NAMES = { "referenceName", "filtersPassed" };
+
+    /** Facet labels. */
+    private static final String[] FACET_LABELS = { "Reference", "Filters passed" };
+
     /**
      * Create a new variant view with the specified dataset.
      *
@@ -74,6 +84,13 @@ final class VariantView extends LabelFieldPanel {
         model.take(10);
     }
 
+    /**
+     * Cancel any Spark jobs running for this view.
+     */
+    void cancel() {
+        model.cancel();
+    }
+
     private void layoutComponents() {
         JTabbedPane tabbedPane = new JTabbedPane();
         tabbedPane.add("Variants", layoutVariantView());
@@ -86,21 +103,32 @@ final class VariantView extends LabelFieldPanel {
         LabelFieldPanel panel = new LabelFieldPanel();
         panel.setOpaque(false);
         panel.setBorder(new EmptyBorder(12, 12, 12, 12));
-        panel.addField("Variant count:", new DatasetCountLabel(model.getDataset()));
+        panel.addField("Variant count:", new DatasetCountLabel(model));
+        panel.addField("Page cache:", new PageCacheLabel(PageCache.getInstance()));
         panel.addField("Variants currently viewing:", new CountLabel<Variant>(model.getVariants()));
+        panel.addField("Region:", new RegionField(model));
+        FilterBar filterBar = new FilterBar(model, VariantTable.PROPERTY_NAMES, VariantTable.COLUMN_LABELS);
+        panel.addField("Filter:", filterBar);
+        panel.addField("Sort:", new SortBar(model, VariantTable.PROPERTY_NAMES, VariantTable.COLUMN_LABELS));
+        panel.addField("Track:", new TrackPanel(model, concat_ws(">", col("referenceAllele"), col("alternateAllele")), lit(false)));
         panel.addSpacing(12);
-        panel.addFinalField(table);
+        JScrollPane facets = new JScrollPane(new FacetPanel(model, FACET_PROPERTY_NAMES, FACET_LABELS, filterBar::update));
+        facets.setBorder(null);
+        facets.setOpaque(false);
+        facets.getViewport().setOpaque(false);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, facets, table);
+        splitPane.setBorder(null);
+        splitPane.setOpaque(false);
+        panel.addFinalField(splitPane);
         return panel;
     }
 
     /**
      * Variant model.
      */
-    static class VariantModel {
-        private final VariantDataset dataset;
+    static class VariantModel extends ExplorerModel<Variant, VariantDataset> {
         private final EventList<Reference> references;
         private final EventList<VCFHeaderLine> headerLines;
-        private final EventList<Variant> variants;
 
         /**
          * Create a new variant model with the specified dataset.
@@ -108,8 +136,7 @@ final class VariantView extends LabelFieldPanel {
          * @param dataset dataset, must not be null
          */
         VariantModel(final VariantDataset dataset) {
-            this.dataset = dataset;
-            variants = GlazedLists.eventList(new ArrayList<Variant>());
+            super(dataset, Variant.getClassSchema(), VariantTable.PROPERTY_NAMES);
 
             List<SequenceRecord> s = JavaConversions.seqAsJavaList(dataset.references().records());
             references = GlazedLists.eventList(s.stream().map(v -> v.toADAMReference()).collect(Collectors.toList()));
@@ -117,40 +144,8 @@ final class VariantView extends LabelFieldPanel {
             headerLines = GlazedLists.eventList(JavaConversions.seqAsJavaList(dataset.headerLines()));
         }
 
-        void take(final int take) {
-            new SwingWorker<List<Variant>, Void>() {
-                @Override
-                public List<Variant> doInBackground() {
-                    return dataset.jrdd().take(take);
-                }
-
-                @Override
-                public void done() {
-                    try {
-                        List<Variant> result = get();
-
-                        variants.getReadWriteLock().writeLock().lock();
-                        try {
-                            variants.clear();
-                            variants.addAll(result);
-                        }
-                        finally {
-                            variants.getReadWriteLock().writeLock().unlock();
-                        }
-                    }
-                    catch (InterruptedException | ExecutionException e) {
-                        // ignore
-                    }
-                }
-            }.execute();
-        }
-
-        VariantDataset getDataset() {
-            return dataset;
-        }
-
         EventList<Variant> getVariants() {
-            return variants;
+            return getElements();
         }
 
         EventList<Reference> getReferences() {
@@ -169,7 +164,7 @@ final class VariantView extends LabelFieldPanel {
         private final VariantModel model;
         private static final String[] PROPERTY_NAMES = { "referenceName", "start", "end", "referenceAllele", "alternateAllele" };
         private static final String[] COLUMN_LABELS = { "Reference Name", "Start", "End", "Ref", "Alt" };
-        private static final TableFormat<Variant> TABLE_FORMAT = GlazedLists.tableFormat(Variant.class, PROPERTY_NAMES, COLUMN_LABELS);
+        private static final TableFormat<Variant> TABLE_FORMAT = AccessorTableFormat.create(Variant.class, PROPERTY_NAMES, COLUMN_LABELS);
 
         /**
          * Create a new variant table with the specified model.
@@ -177,8 +172,13 @@ final class VariantView extends LabelFieldPanel {
          * @param model model, must not be null
          */
         VariantTable(final VariantModel model) {
-            super("Variants:", model.getVariants(), TABLE_FORMAT);
+            super("Variants:", model, TABLE_FORMAT);
             this.model = model;
+
+            getToolBar().add(new DatasetExportAction<VariantDataset>(this, model,
+                new DatasetExportAction.Format<VariantDataset>("ADAM Parquet", "adam", (d, path, single) -> d.saveAsParquet(path)),
+                new DatasetExportAction.Format<VariantDataset>("VCF", "vcf",
+                    (d, path, single) -> d.toVariantContexts().saveAsVcf(path, single, false, false, ValidationStringency.LENIENT))));
         }
 
 
@@ -192,12 +192,7 @@ final class VariantView extends LabelFieldPanel {
 
         @Override
         public void add() {
-            if (model.getVariants().isEmpty()) {
-                model.take(10);
-            }
-            else {
-                model.take(model.getVariants().size() * 2);
-            }
+            model.next(ExplorerModel.PAGE_SIZE);
         }
     }
 }
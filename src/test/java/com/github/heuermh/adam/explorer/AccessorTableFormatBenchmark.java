@@ -0,0 +1,150 @@
+/**
+ * Copyright 2018-2021 held jointly by the individual authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.heuermh.adam.explorer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import ca.odell.glazedlists.GlazedLists;
+
+import ca.odell.glazedlists.gui.TableFormat;
+
+import org.bdgenomics.formats.avro.Genotype;
+import org.bdgenomics.formats.avro.Variant;
+
+/**
+ * Accessor table format benchmark.
+ *
+ * <p>
+ * Compares reading and sorting column values of genotypes, including nested properties, through
+ * {@link AccessorTableFormat} and through the JavaBeans reflection table format returned by
+ * <code>GlazedLists.tableFormat</code>.  Not run as a test; run it with e.g.
+ * </p>
+ *
+ * <pre>
+ * $ mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.github.heuermh.adam.explorer.AccessorTableFormatBenchmark \
+ *     -Dexec.args="100000 5"
+ * </pre>
+ *
+ * @author  Michael Heuer
+ */
+final class AccessorTableFormatBenchmark {
+    private static final String[] PROPERTY_NAMES = { "referenceName", "start", "end", "variant.referenceAllele", "variant.alternateAllele", "alleles", "sampleId" };
+    private static final String[] COLUMN_LABELS = { "Reference", "Start", "End", "Ref", "Alt", "Alleles", "Sample" };
+
+    /** Columns to sort by, a string, a long, and a nested string column. */
+    private static final int[] SORT_COLUMNS = { 0, 1, 3 };
+
+
+    /**
+     * Private no-arg constructor.
+     */
+    private AccessorTableFormatBenchmark() {
+        // empty
+    }
+
+
+    /**
+     * Read all of the column values of the specified rows ten times, and return the elapsed time in milliseconds.
+     */
+    private static long render(final TableFormat<Genotype> tableFormat, final List<Genotype> rows) {
+        long start = System.nanoTime();
+        long values = 0L;
+        for (int i = 0; i < 10; i++) {
+            for (Genotype genotype : rows) {
+                for (int column = 0; column < tableFormat.getColumnCount(); column++) {
+                    if (tableFormat.getColumnValue(genotype, column) != null) {
+                        values++;
+                    }
+                }
+            }
+        }
+        if (values < 0L) {
+            throw new IllegalStateException();
+        }
+        return (System.nanoTime() - start) / 1000000L;
+    }
+
+    /**
+     * Sort copies of the specified rows by each of the sort columns, and return the elapsed time in milliseconds.
+     */
+    private static long sort(final TableFormat<Genotype> tableFormat, final List<Genotype> rows) {
+        Comparator<Comparable<Object>> comparator = Comparator.nullsFirst(Comparator.<Comparable<Object>>naturalOrder());
+        long start = System.nanoTime();
+        for (int column : SORT_COLUMNS) {
+            List<Genotype> copy = new ArrayList<Genotype>(rows);
+            copy.sort((a, b) -> comparator.compare(value(tableFormat, a, column), value(tableFormat, b, column)));
+        }
+        return (System.nanoTime() - start) / 1000000L;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> value(final TableFormat<Genotype> tableFormat, final Genotype genotype, final int column) {
+        return (Comparable<Object>) tableFormat.getColumnValue(genotype, column);
+    }
+
+    /**
+     * Create the specified number of random genotypes.
+     */
+    private static List<Genotype> createRows(final int count) {
+        Random random = new Random(42L);
+        List<Genotype> rows = new ArrayList<Genotype>(count);
+        for (int i = 0; i < count; i++) {
+            Variant variant = Variant.newBuilder()
+                .setReferenceName("chr1")
+                .setStart(0L)
+                .setEnd(1L)
+                .setReferenceAllele("ACGT".substring(random.nextInt(4)))
+                .setAlternateAllele("T")
+                .build();
+
+            rows.add(Genotype.newBuilder()
+                     .setReferenceName("chr" + random.nextInt(20))
+                     .setStart((long) random.nextInt(1000000))
+                     .setEnd(0L)
+                     .setSampleId("sample" + random.nextInt(5))
+                     .setAlleles(Collections.emptyList())
+                     .setVariant(variant)
+                     .build());
+        }
+        return rows;
+    }
+
+
+    /**
+     * Main.
+     *
+     * @param args command line arguments, number of rows and number of rounds
+     */
+    public static void main(final String[] args) {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+        List<Genotype> rows = createRows(count);
+
+        TableFormat<Genotype> bean = GlazedLists.tableFormat(Genotype.class, PROPERTY_NAMES, COLUMN_LABELS);
+        TableFormat<Genotype> accessor = AccessorTableFormat.create(Genotype.class, PROPERTY_NAMES, COLUMN_LABELS);
+
+        // the first rounds warm up the JIT compiler
+        for (int round = 0; round < rounds; round++) {
+            System.out.println(String.format("round %d: render %d ms bean, %d ms accessor; sort %d ms bean, %d ms accessor",
+                                             round, render(bean, rows), render(accessor, rows), sort(bean, rows), sort(accessor, rows)));
+        }
+    }
+}